@@ -37,6 +37,8 @@ public class LogReaderBindingConstants {
     public static final String CHANNEL_ERRORS = "errorEvents";
     public static final String CHANNEL_CUSTOMEVENTS = "customEvents";
     public static final String CHANNEL_LOGROTATED = "logRotated";
+    public static final String CHANNEL_LINESPERSECOND = "linesPerSecond";
+    public static final String CHANNEL_MATCHLATENCY = "matchLatency";
 
     public static final String CHANNEL_NEWWARNING = "newWarningEvent";
     public static final String CHANNEL_NEWERROR = "newErrorEvent";
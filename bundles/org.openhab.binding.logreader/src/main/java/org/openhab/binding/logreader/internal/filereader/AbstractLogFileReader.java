@@ -73,6 +73,21 @@ public abstract class AbstractLogFileReader implements LogFileReader {
         }
     }
 
+    /**
+     * Send a batch of read log lines to all registered listeners.
+     *
+     */
+    public void sendLinesToListeners(List<String> lines) {
+        for (FileReaderListener fileReaderListener : fileReaderListeners) {
+            try {
+                fileReaderListener.handle(lines);
+            } catch (Exception e) {
+                // catch all exceptions give all handlers a fair chance of handling the messages
+                logger.debug("An exception occurred while calling the FileReaderListener. ", e);
+            }
+        }
+    }
+
     /**
      * Send file rotation event to all registered listeners.
      *
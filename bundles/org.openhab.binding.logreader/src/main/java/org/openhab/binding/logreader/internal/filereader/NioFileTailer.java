@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.filereader;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.logreader.internal.filereader.api.FileReaderException;
+import org.openhab.binding.logreader.internal.filereader.api.LogFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * NIO based log file reader implementation.
+ *
+ * The file is read through a {@link FileChannel} into a reusable buffer. Between reads the reader waits for a change
+ * in the directory of the file with a {@link WatchService}, but at most the refresh rate, as the watch service is
+ * itself polling on some platforms. All complete lines found in one read are delivered to the listeners as a batch.
+ *
+ * Rotation is detected by a changed file key (the inode on Unix like systems) of the file path, in which case the rest
+ * of the old file is read before the new file is opened, or by the file getting shorter than the read position.
+ *
+ * Each {@link #start(String, long, ScheduledExecutorService)} creates a new reader with its own state, so a reader
+ * that is still finishing after {@link #stop()} does not interfere with the one started next.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class NioFileTailer extends AbstractLogFileReader implements LogFileReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long MIN_REFRESH_RATE = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(NioFileTailer.class);
+    private final Charset charset = Charset.defaultCharset();
+
+    private @Nullable Reader reader;
+
+    @Override
+    public synchronized void start(String filePath, long refreshRate, ScheduledExecutorService scheduler)
+            throws FileReaderException {
+        stop();
+        Path path = Paths.get(filePath).toAbsolutePath();
+
+        try {
+            WatchService watchService = path.getFileSystem().newWatchService();
+            Path directory = path.getParent();
+            if (directory != null && Files.isDirectory(directory)) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            } else {
+                logger.debug("Directory of '{}' does not exist, polling the file", path);
+            }
+            Reader reader = new Reader(path, Math.max(refreshRate, MIN_REFRESH_RATE), watchService);
+            this.reader = reader;
+
+            logger.debug("Start executor");
+            scheduler.execute(reader::run);
+        } catch (IOException | RuntimeException e) {
+            throw new FileReaderException(e);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        logger.debug("Shutdown");
+
+        Reader reader = this.reader;
+        if (reader != null) {
+            reader.stop();
+            this.reader = null;
+        }
+    }
+
+    /**
+     * State of a single run, from start to stop
+     */
+    private class Reader {
+        private final Path path;
+        private final long refreshRate;
+        private final WatchService watchService;
+
+        private final byte[] chunk = new byte[BUFFER_SIZE];
+        private final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+
+        // bytes of an incomplete line at the end of the last read
+        private byte[] partialLine = new byte[256];
+        private int partialLength;
+
+        private volatile boolean running = true;
+        private @Nullable FileChannel channel;
+        private @Nullable Object fileKey;
+        private boolean fileNotFoundSent;
+
+        Reader(Path path, long refreshRate, WatchService watchService) {
+            this.path = path;
+            this.refreshRate = refreshRate;
+            this.watchService = watchService;
+        }
+
+        void stop() {
+            running = false;
+            try {
+                // wakes up the reader thread
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Closing watch service failed", e);
+            }
+        }
+
+        void run() {
+            boolean first = true;
+            try {
+                while (running) {
+                    try {
+                        if (channel == null) {
+                            // the initial file is followed from its end, files appearing later from their start
+                            open(first);
+                            first = false;
+                        }
+                        if (channel != null) {
+                            read();
+                        }
+                    } catch (IOException e) {
+                        if (running) {
+                            sendExceptionToListeners(e);
+                        }
+                        closeChannel();
+                    }
+                    waitForChange();
+                }
+            } catch (ClosedWatchServiceException e) {
+                logger.debug("Reader stopped");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeChannel();
+            }
+        }
+
+        private void waitForChange() throws InterruptedException {
+            WatchKey key = watchService.poll(refreshRate, TimeUnit.MILLISECONDS);
+            if (key != null) {
+                // the events are not of interest, any change in the directory is checked by reading the file
+                key.pollEvents();
+                key.reset();
+            }
+        }
+
+        private void open(boolean atEnd) throws IOException {
+            BasicFileAttributes attributes = readAttributes(path);
+            if (attributes == null) {
+                if (!fileNotFoundSent) {
+                    fileNotFoundSent = true;
+                    sendFileNotFoundToListeners();
+                }
+                return;
+            }
+            fileNotFoundSent = false;
+
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            if (atEnd) {
+                channel.position(channel.size());
+            }
+            this.channel = channel;
+            fileKey = attributes.fileKey();
+            partialLength = 0;
+        }
+
+        private void read() throws IOException {
+            FileChannel channel = Objects.requireNonNull(this.channel);
+            BasicFileAttributes attributes = readAttributes(path);
+
+            if (channel.size() < channel.position()) {
+                logger.debug("File truncated, reading from start");
+                sendFileRotationToListeners();
+                channel.position(0);
+                partialLength = 0;
+            }
+            readLines(channel);
+
+            Object currentKey = attributes == null ? null : attributes.fileKey();
+            if (currentKey != null && !currentKey.equals(fileKey)) {
+                logger.debug("File replaced, reading new file from start");
+                sendFileRotationToListeners();
+                closeChannel();
+                open(false);
+                FileChannel newChannel = this.channel;
+                if (newChannel != null) {
+                    readLines(newChannel);
+                }
+            }
+        }
+
+        private void readLines(FileChannel channel) throws IOException {
+            List<String> lines = new ArrayList<>();
+            buffer.clear();
+            while (running && channel.read(buffer) > 0) {
+                int length = buffer.position();
+                buffer.clear();
+
+                int start = 0;
+                for (int i = 0; i < length; i++) {
+                    if (chunk[i] == '\n') {
+                        lines.add(toLine(start, i));
+                        start = i + 1;
+                        if (lines.size() >= MAX_BATCH_SIZE) {
+                            sendLinesToListeners(lines);
+                            lines = new ArrayList<>();
+                        }
+                    }
+                }
+                appendPartialLine(start, length);
+            }
+            if (!lines.isEmpty()) {
+                sendLinesToListeners(lines);
+            }
+        }
+
+        private String toLine(int start, int end) {
+            byte[] bytes = chunk;
+            int offset = start;
+            int length = end - start;
+            if (partialLength > 0) {
+                appendPartialLine(start, end);
+                bytes = partialLine;
+                offset = 0;
+                length = partialLength;
+                partialLength = 0;
+            }
+            if (length > 0 && bytes[offset + length - 1] == '\r') {
+                length--;
+            }
+            return new String(bytes, offset, length, charset);
+        }
+
+        private void appendPartialLine(int start, int end) {
+            int length = end - start;
+            if (partialLength + length > partialLine.length) {
+                partialLine = Arrays.copyOf(partialLine, Math.max(2 * partialLine.length, partialLength + length));
+            }
+            System.arraycopy(chunk, start, partialLine, partialLength, length);
+            partialLength += length;
+        }
+
+        private void closeChannel() {
+            FileChannel channel = this.channel;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Closing file failed", e);
+                }
+                this.channel = null;
+            }
+        }
+    }
+
+    private static @Nullable BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -14,7 +14,14 @@ package org.openhab.binding.logreader.internal.handler;
 
 import static org.openhab.binding.logreader.internal.LogReaderBindingConstants.*;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.smarthome.core.library.types.DateTimeType;
@@ -45,6 +52,8 @@ import org.slf4j.LoggerFactory;
 public class LogHandler extends BaseThingHandler implements FileReaderListener {
     private final Logger logger = LoggerFactory.getLogger(LogHandler.class);
 
+    private static final int STATISTICS_INTERVAL_SECONDS = 10;
+
     private LogReaderConfiguration configuration;
 
     private LogFileReader fileReader;
@@ -53,6 +62,11 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
     private SearchEngine warningEngine;
     private SearchEngine customEngine;
 
+    private final LongAdder lineCounter = new LongAdder();
+    private final LongAdder matchNanos = new LongAdder();
+    private long lastStatisticsNanos;
+    private ScheduledFuture<?> statisticsJob;
+
     public LogHandler(Thing thing, LogFileReader fileReader) {
         super(thing);
         this.fileReader = fileReader;
@@ -105,6 +119,9 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
         try {
             fileReader.registerListener(this);
             fileReader.start(configuration.filePath, configuration.refreshRate, scheduler);
+            lastStatisticsNanos = System.nanoTime();
+            statisticsJob = scheduler.scheduleWithFixedDelay(this::updateStatistics, STATISTICS_INTERVAL_SECONDS,
+                    STATISTICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
             updateStatus(ThingStatus.ONLINE);
         } catch (Exception e) {
             logger.debug("Exception occurred during initalization: {}. ", e.getMessage(), e);
@@ -147,7 +164,26 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
         }
     }
 
+    private void updateStatistics() {
+        long now = System.nanoTime();
+        long lineCount = lineCounter.sumThenReset();
+        long nanos = matchNanos.sumThenReset();
+        double seconds = (now - lastStatisticsNanos) / 1e9;
+        lastStatisticsNanos = now;
+
+        updateChannelIfLinked(CHANNEL_LINESPERSECOND,
+                new DecimalType(BigDecimal.valueOf(lineCount / seconds).setScale(1, RoundingMode.HALF_UP)));
+        double micros = lineCount == 0 ? 0 : nanos / 1000.0 / lineCount;
+        updateChannelIfLinked(CHANNEL_MATCHLATENCY,
+                new DecimalType(BigDecimal.valueOf(micros).setScale(1, RoundingMode.HALF_UP)));
+    }
+
     private void shutdown() {
+        ScheduledFuture<?> job = statisticsJob;
+        if (job != null) {
+            job.cancel(false);
+            statisticsJob = null;
+        }
         logger.debug("Stop file reader");
         fileReader.unregisterListener(this);
         fileReader.stop();
@@ -170,25 +206,55 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
         if (line == null) {
             return;
         }
+        handle(Collections.singletonList(line));
+    }
 
+    @Override
+    public void handle(List<String> lines) {
         if (!(thing.getStatus() == ThingStatus.ONLINE)) {
             updateStatus(ThingStatus.ONLINE);
         }
 
-        if (errorEngine.isMatching(line)) {
+        String lastError = null;
+        String lastWarning = null;
+        String lastCustom = null;
+
+        long nanos = 0;
+        for (String line : lines) {
+            long start = System.nanoTime();
+            boolean error = errorEngine.isMatching(line);
+            boolean warning = warningEngine.isMatching(line);
+            boolean custom = customEngine.isMatching(line);
+            nanos += System.nanoTime() - start;
+
+            if (error) {
+                lastError = line;
+                triggerChannel(CHANNEL_NEWERROR, line);
+            }
+            if (warning) {
+                lastWarning = line;
+                triggerChannel(CHANNEL_NEWWARNING, line);
+            }
+            if (custom) {
+                lastCustom = line;
+                triggerChannel(CHANNEL_NEWCUSTOM, line);
+            }
+        }
+        matchNanos.add(nanos);
+        lineCounter.add(lines.size());
+
+        // states are updated once per batch, with the counters and last line after the batch
+        if (lastError != null) {
             updateChannelIfLinked(CHANNEL_ERRORS, new DecimalType(errorEngine.getMatchCount()));
-            updateChannelIfLinked(CHANNEL_LASTERROR, new StringType(line));
-            triggerChannel(CHANNEL_NEWERROR, line);
+            updateChannelIfLinked(CHANNEL_LASTERROR, new StringType(lastError));
         }
-        if (warningEngine.isMatching(line)) {
+        if (lastWarning != null) {
             updateChannelIfLinked(CHANNEL_WARNINGS, new DecimalType(warningEngine.getMatchCount()));
-            updateChannelIfLinked(CHANNEL_LASTWARNING, new StringType(line));
-            triggerChannel(CHANNEL_NEWWARNING, line);
+            updateChannelIfLinked(CHANNEL_LASTWARNING, new StringType(lastWarning));
         }
-        if (customEngine.isMatching(line)) {
+        if (lastCustom != null) {
             updateChannelIfLinked(CHANNEL_CUSTOMEVENTS, new DecimalType(customEngine.getMatchCount()));
-            updateChannelIfLinked(CHANNEL_LASTCUSTOMEVENT, new StringType(line));
-            triggerChannel(CHANNEL_NEWCUSTOM, line);
+            updateChannelIfLinked(CHANNEL_LASTCUSTOMEVENT, new StringType(lastCustom));
         }
     }
 
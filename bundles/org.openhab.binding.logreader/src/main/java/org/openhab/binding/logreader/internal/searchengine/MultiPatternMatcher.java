@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.searchengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Checks whether any of several regular expressions is found in a string, with a single pass over the string where
+ * possible.
+ *
+ * <ul>
+ * <li>Patterns consisting of literal characters only are checked with {@link String#contains(CharSequence)}.</li>
+ * <li>All other patterns are combined to a single alternation, so that the regular expression engine scans the string
+ * once for all of them. Patterns with back references are matched separately, as combining them would change the
+ * group numbers, and so are patterns with named groups, as a group name must be unique within a pattern.</li>
+ * <li>Before running regular expressions, the literal prefixes of the patterns are looked up in the string. If no
+ * prefix is found, none of the patterns can match and the regular expressions are skipped.</li>
+ * </ul>
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MultiPatternMatcher {
+
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+    private static final Pattern NAMED_GROUP = Pattern.compile("\\(\\?<[a-zA-Z]");
+
+    private final List<String> literals = new ArrayList<>();
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private boolean prefilter = true;
+
+    /**
+     * Compiles the patterns
+     *
+     * @param regexes regular expressions
+     * @throws PatternSyntaxException if a regular expression is invalid
+     */
+    public MultiPatternMatcher(List<String> regexes) throws PatternSyntaxException {
+        List<String> combinable = new ArrayList<>();
+        for (String regex : regexes) {
+            // compile individually first, to report syntax errors of the pattern itself
+            Pattern pattern = Pattern.compile(regex);
+            String literal = getLiteral(regex);
+            if (literal != null) {
+                literals.add(literal);
+                continue;
+            }
+            String prefix = getLiteralPrefix(regex);
+            if (prefix.isEmpty()) {
+                prefilter = false;
+            } else {
+                prefixes.add(prefix);
+            }
+            if (BACK_REFERENCE.matcher(regex).find() || NAMED_GROUP.matcher(regex).find()) {
+                patterns.add(pattern);
+            } else {
+                combinable.add(regex);
+            }
+        }
+        if (combinable.size() == 1) {
+            patterns.add(Pattern.compile(combinable.get(0)));
+        } else if (combinable.size() > 1) {
+            patterns.add(Pattern.compile(combinable.stream().collect(Collectors.joining(")|(?:", "(?:", ")"))));
+        }
+    }
+
+    /**
+     * Check whether any of the patterns is found in the data
+     *
+     * @param data the data to search
+     * @return true if a pattern was found
+     */
+    public boolean find(String data) {
+        for (String literal : literals) {
+            if (data.contains(literal)) {
+                return true;
+            }
+        }
+        if (patterns.isEmpty() || (prefilter && !containsPrefix(data))) {
+            return false;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(data).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether there are no patterns at all
+     */
+    public boolean isEmpty() {
+        return literals.isEmpty() && patterns.isEmpty();
+    }
+
+    private boolean containsPrefix(String data) {
+        for (String prefix : prefixes) {
+            if (data.contains(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the string a regular expression is equivalent to when searching for it, i.e. whether it consists of literal
+     * characters only, optionally followed by <code>+</code>
+     *
+     * @return the literal string, or null if the regular expression is no literal
+     */
+    static @Nullable String getLiteral(String regex) {
+        String prefix = getLiteralPrefix(regex);
+        if (prefix.isEmpty()) {
+            return null;
+        }
+        int prefixLength = literalPrefixSourceLength(regex);
+        String rest = regex.substring(prefixLength);
+        if (rest.isEmpty() || rest.equals("+")) {
+            // searching for "ab+" finds the same strings as searching for "ab"
+            return prefix;
+        }
+        return null;
+    }
+
+    /**
+     * Get the literal characters any string matching the regular expression starts with
+     *
+     * @return the literal prefix, empty if the regular expression does not start with a literal character or has
+     *         alternatives at top level
+     */
+    static String getLiteralPrefix(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            // "abc|xyz" does not need to contain "abc"
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int length = 1;
+            if (c == '\\') {
+                // escaped meta characters are literals, other escapes are character classes or special constructs
+                if (i + 1 >= regex.length() || META_CHARACTERS.indexOf(regex.charAt(i + 1)) < 0) {
+                    break;
+                }
+                c = regex.charAt(i + 1);
+                length = 2;
+            } else if (META_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+            int next = i + length;
+            if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) {
+                // the character is optional
+                break;
+            }
+            prefix.append(c);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (regex.startsWith("Q", i + 1)) {
+                    // quoted section up to \\E
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = end < 0 ? regex.length() : end + 1;
+                } else {
+                    i++;
+                }
+            } else if (c == '[') {
+                classDepth++;
+                // a ] right after the opening bracket is a member of the class
+                if (regex.startsWith("^]", i + 1)) {
+                    i += 2;
+                } else if (regex.startsWith("]", i + 1)) {
+                    i++;
+                }
+            } else if (classDepth > 0) {
+                if (c == ']') {
+                    classDepth--;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int literalPrefixSourceLength(String regex) {
+        int i = 0;
+        int chars = getLiteralPrefix(regex).length();
+        for (int n = 0; n < chars; n++) {
+            i += regex.charAt(i) == '\\' ? 2 : 1;
+        }
+        return i;
+    }
+}
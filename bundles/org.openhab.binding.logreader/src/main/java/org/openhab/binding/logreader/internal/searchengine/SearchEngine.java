@@ -12,10 +12,9 @@
  */
 package org.openhab.binding.logreader.internal.searchengine;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -23,12 +22,14 @@ import org.eclipse.jdt.annotation.Nullable;
 /**
  * This class implements logic for regular expression based searching.
  *
+ * All search patterns, and all blacklisting patterns, are checked together by a {@link MultiPatternMatcher}.
+ *
  * @author Pauli Anttila - Initial contribution
  */
 public class SearchEngine {
 
-    private List<Pattern> matchers;
-    private List<Pattern> blacklistingMatchers;
+    private MultiPatternMatcher matchers;
+    private MultiPatternMatcher blacklistingMatchers;
 
     private long matchCount;
 
@@ -40,8 +41,8 @@ public class SearchEngine {
      *
      */
     public SearchEngine(String patterns, String blacklistingPatterns) throws PatternSyntaxException {
-        matchers = compilePatterns(patterns);
-        blacklistingMatchers = compilePatterns(blacklistingPatterns);
+        matchers = new MultiPatternMatcher(splitPatterns(patterns));
+        blacklistingMatchers = new MultiPatternMatcher(splitPatterns(blacklistingPatterns));
     }
 
     /**
@@ -51,7 +52,7 @@ public class SearchEngine {
      * @return true if one of the search patterns found.
      */
     public boolean isMatching(String data) {
-        if (isMatching(matchers, data)) {
+        if (matchers.find(data)) {
             if (notBlacklisted(data)) {
                 matchCount++;
                 return true;
@@ -73,39 +74,19 @@ public class SearchEngine {
     }
 
     /**
-     * Split pattern string and precompile search patterns.
+     * Split pattern string to search patterns.
      *
      * @param patterns patterns which will handled.
-     * @return list of precompiled patterns. If pattern parameter is null, empty list is returned.
+     * @return list of patterns. If pattern parameter is null, empty list is returned.
      */
-    private List<Pattern> compilePatterns(@Nullable String patterns) throws PatternSyntaxException {
-        List<Pattern> patternsList = new ArrayList<Pattern>();
-
+    private List<String> splitPatterns(@Nullable String patterns) {
         if (patterns != null && !patterns.isEmpty()) {
-            String list[] = patterns.split("\\|");
-            if (list.length > 0) {
-
-                for (String patternStr : list) {
-                    patternsList.add(Pattern.compile(patternStr));
-                }
-            }
+            return Arrays.asList(patterns.split("\\|"));
         }
-        return patternsList;
+        return Collections.emptyList();
     }
 
     private boolean notBlacklisted(String data) {
-        return !isMatching(blacklistingMatchers, data);
-    }
-
-    private boolean isMatching(@Nullable List<Pattern> patterns, String data) {
-        if (patterns != null) {
-            for (Pattern pattern : patterns) {
-                Matcher matcher = pattern.matcher(data);
-                if (matcher.find()) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return !blacklistingMatchers.find(data);
     }
 }
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.filereader;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.logreader.internal.filereader.api.FileReaderException;
+import org.openhab.binding.logreader.internal.filereader.api.FileReaderListener;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class NioFileTailerTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final String ROTATED = "<rotated>";
+    private static final String NOT_FOUND = "<not found>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private final NioFileTailer tailer = new NioFileTailer();
+    private ScheduledExecutorService scheduler;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        scheduler = Executors.newScheduledThreadPool(2);
+        file = folder.getRoot().toPath().resolve("test.log");
+        tailer.registerListener(new FileReaderListener() {
+            @Override
+            public void fileNotFound() {
+                events.add(NOT_FOUND);
+            }
+
+            @Override
+            public void fileRotated() {
+                events.add(ROTATED);
+            }
+
+            @Override
+            public void handle(String line) {
+                events.add(line);
+            }
+
+            @Override
+            public void handle(Exception ex) {
+                events.add("<" + ex + ">");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        tailer.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void followsExistingFileFromItsEnd() throws Exception {
+        append("old\n");
+        start();
+
+        append("new\n");
+
+        assertEquals("new", nextEvent());
+    }
+
+    @Test
+    public void joinsPartialLines() throws Exception {
+        start();
+
+        append("first ");
+        append("half\r\nsecond");
+        assertEquals("first half", nextEvent());
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        append(" line\n");
+        assertEquals("second line", nextEvent());
+    }
+
+    @Test
+    public void readsLongLines() throws Exception {
+        start();
+        StringBuilder line = new StringBuilder();
+        while (line.length() < 200_000) {
+            line.append("0123456789");
+        }
+
+        append(line + "\nshort\n");
+
+        assertEquals(line.toString(), nextEvent());
+        assertEquals("short", nextEvent());
+    }
+
+    @Test
+    public void readsTruncatedFileFromStart() throws Exception {
+        start();
+        append("before truncation\n");
+        assertEquals("before truncation", nextEvent());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        append("after\n");
+
+        assertEquals(ROTATED, nextEvent());
+        assertEquals("after", nextEvent());
+    }
+
+    @Test
+    public void readsRestOfRotatedFileBeforeNewFile() throws Exception {
+        start();
+        append("line 1\n");
+        assertEquals("line 1", nextEvent());
+
+        tailer.stop();
+        append("line 2\n");
+        Files.move(file, folder.getRoot().toPath().resolve("test.log.1"));
+        append("line 3\n");
+        start();
+        // a restarted reader follows the new file from its end
+        append("line 4\n");
+        assertEquals("line 4", nextEvent());
+
+        append("line 5\n");
+        Files.move(file, folder.getRoot().toPath().resolve("test.log.2"));
+        append("line 6\n");
+
+        assertEquals("line 5", nextEvent());
+        assertEquals(ROTATED, nextEvent());
+        assertEquals("line 6", nextEvent());
+    }
+
+    @Test
+    public void waitsForMissingFile() throws Exception {
+        tailer.start(file.toString(), 10, scheduler);
+        assertEquals(NOT_FOUND, nextEvent());
+
+        append("created\n");
+
+        assertEquals("created", nextEvent());
+    }
+
+    @Test
+    public void restartDoesNotDuplicateLines() throws Exception {
+        start();
+        start();
+
+        append("once\n");
+
+        assertEquals("once", nextEvent());
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private void start() throws FileReaderException, IOException {
+        if (!Files.exists(file)) {
+            Files.createFile(file);
+        }
+        tailer.start(file.toString(), 10, scheduler);
+        // give the reader the chance to open the file, so that it follows the file from the current end
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(file, text.getBytes(Charset.defaultCharset()), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    private String nextEvent() throws InterruptedException {
+        String event = events.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull("Expected an event", event);
+        return event;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.searchengine;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class MultiPatternMatcherTest {
+
+    @Test
+    public void literalPrefixStopsAtMetaCharacters() {
+        assertEquals("ERROR ", MultiPatternMatcher.getLiteralPrefix("ERROR .*"));
+        assertEquals("abc", MultiPatternMatcher.getLiteralPrefix("abc[0-9]"));
+        assertEquals("abc", MultiPatternMatcher.getLiteralPrefix("abc(d|e)"));
+        assertEquals("", MultiPatternMatcher.getLiteralPrefix(".abc"));
+    }
+
+    @Test
+    public void literalPrefixIncludesEscapedMetaCharacters() {
+        assertEquals("a.b(c)", MultiPatternMatcher.getLiteralPrefix("a\\.b\\(c\\)\\s"));
+        assertEquals("1+1", MultiPatternMatcher.getLiteralPrefix("1\\+1"));
+    }
+
+    @Test
+    public void literalPrefixStopsAtOtherEscapes() {
+        assertEquals("id", MultiPatternMatcher.getLiteralPrefix("id\\d+"));
+        assertEquals("", MultiPatternMatcher.getLiteralPrefix("\\Qa.b\\E"));
+    }
+
+    @Test
+    public void literalPrefixExcludesOptionalCharacters() {
+        assertEquals("ab", MultiPatternMatcher.getLiteralPrefix("abc?"));
+        assertEquals("ab", MultiPatternMatcher.getLiteralPrefix("abc*"));
+        assertEquals("ab", MultiPatternMatcher.getLiteralPrefix("abc{0,2}"));
+        assertEquals("abc", MultiPatternMatcher.getLiteralPrefix("abc+"));
+    }
+
+    @Test
+    public void literalPrefixIsEmptyForAnchorsAndTopLevelAlternatives() {
+        assertEquals("", MultiPatternMatcher.getLiteralPrefix("^abc"));
+        assertEquals("", MultiPatternMatcher.getLiteralPrefix("abc|xyz"));
+        assertEquals("", MultiPatternMatcher.getLiteralPrefix("a[(]|x"));
+        assertEquals("", MultiPatternMatcher.getLiteralPrefix("a[]]|x"));
+        assertEquals("a", MultiPatternMatcher.getLiteralPrefix("a[|]"));
+        assertEquals("a", MultiPatternMatcher.getLiteralPrefix("a\\Q|\\E"));
+    }
+
+    @Test
+    public void literalOnlyForPlainStrings() {
+        assertEquals("ERROR", MultiPatternMatcher.getLiteral("ERROR"));
+        assertEquals("a.b", MultiPatternMatcher.getLiteral("a\\.b"));
+        assertEquals("abc", MultiPatternMatcher.getLiteral("abc+"));
+        assertNull(MultiPatternMatcher.getLiteral("abc$"));
+        assertNull(MultiPatternMatcher.getLiteral("^abc"));
+        assertNull(MultiPatternMatcher.getLiteral("abc?"));
+        assertNull(MultiPatternMatcher.getLiteral("a.c"));
+        assertNull(MultiPatternMatcher.getLiteral("abc|xyz"));
+        assertNull(MultiPatternMatcher.getLiteral(""));
+    }
+
+    @Test
+    public void findsLiterals() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("ERROR", "a\\.b"));
+
+        assertTrue(matcher.find("2020-01-01 ERROR something"));
+        assertTrue(matcher.find("x a.b y"));
+        assertFalse(matcher.find("x aXb y"));
+    }
+
+    @Test
+    public void findsCombinedPatterns() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("WARN.*timeout", "ERROR \\d+", "^Start"));
+
+        assertTrue(matcher.find("WARN: connection timeout"));
+        assertTrue(matcher.find("ERROR 42"));
+        assertTrue(matcher.find("Start of log"));
+        assertFalse(matcher.find("ERROR x"));
+        assertFalse(matcher.find("Log Start"));
+    }
+
+    @Test
+    public void findsAlternativesWithoutCommonPrefix() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("abc|xyz", "de+f"));
+
+        assertTrue(matcher.find("...xyz..."));
+        assertTrue(matcher.find("...abc..."));
+        assertTrue(matcher.find("...deef..."));
+        assertFalse(matcher.find("...ab..."));
+    }
+
+    @Test
+    public void keepsGroupNumbersOfBackReferences() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("x(a)y", "(b)\\1"));
+
+        assertTrue(matcher.find("bb"));
+        assertFalse(matcher.find("ba"));
+    }
+
+    @Test
+    public void allowsSameGroupNameInSeveralPatterns() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(
+                Arrays.asList("user (?<name>\\w+) logged in", "user (?<name>\\w+) logged out", "(?<word>o)\\k<word>"));
+
+        assertTrue(matcher.find("user bob logged out"));
+        assertTrue(matcher.find("user bob logged in"));
+        assertTrue(matcher.find("foo"));
+        assertFalse(matcher.find("user bob failed"));
+    }
+
+    @Test
+    public void isEmptyWithoutPatterns() {
+        assertTrue(new MultiPatternMatcher(Collections.emptyList()).isEmpty());
+        assertFalse(new MultiPatternMatcher(Collections.singletonList("a")).isEmpty());
+    }
+}
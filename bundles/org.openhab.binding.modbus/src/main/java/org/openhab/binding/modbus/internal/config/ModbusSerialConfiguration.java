@@ -44,6 +44,8 @@ public class ModbusSerialConfiguration {
     private int connectMaxTries;
     private int connectTimeoutMillis;
     private boolean enableDiscovery;
+    private boolean coalesceReads;
+    private int coalesceGapTolerance;
 
     public @Nullable String getPort() {
         return port;
@@ -164,4 +166,21 @@ public class ModbusSerialConfiguration {
     public void setDiscoveryEnabled(boolean enableDiscovery) {
         this.enableDiscovery = enableDiscovery;
     }
+
+    public boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    public void setCoalesceReads(boolean coalesceReads) {
+        this.coalesceReads = coalesceReads;
+    }
+
+    public int getCoalesceGapTolerance() {
+        return coalesceGapTolerance;
+    }
+
+    public void setCoalesceGapTolerance(int coalesceGapTolerance) {
+        this.coalesceGapTolerance = coalesceGapTolerance;
+    }
+
 }
@@ -33,6 +33,10 @@ public class ModbusTcpConfiguration {
     private int reconnectAfterMillis;
     private int connectTimeoutMillis;
     private boolean enableDiscovery;
+    private boolean coalesceReads;
+    private int coalesceGapTolerance;
+    private int maxInFlightTransactions = 1;
+    private int responseTimeoutMillis = 3000;
 
     public @Nullable String getHost() {
         return host;
@@ -106,4 +110,36 @@ public class ModbusTcpConfiguration {
         this.enableDiscovery = enableDiscovery;
     }
 
+    public boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    public void setCoalesceReads(boolean coalesceReads) {
+        this.coalesceReads = coalesceReads;
+    }
+
+    public int getCoalesceGapTolerance() {
+        return coalesceGapTolerance;
+    }
+
+    public void setCoalesceGapTolerance(int coalesceGapTolerance) {
+        this.coalesceGapTolerance = coalesceGapTolerance;
+    }
+
+    public int getMaxInFlightTransactions() {
+        return maxInFlightTransactions;
+    }
+
+    public void setMaxInFlightTransactions(int maxInFlightTransactions) {
+        this.maxInFlightTransactions = maxInFlightTransactions;
+    }
+
+    public int getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    public void setResponseTimeoutMillis(int responseTimeoutMillis) {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
 }
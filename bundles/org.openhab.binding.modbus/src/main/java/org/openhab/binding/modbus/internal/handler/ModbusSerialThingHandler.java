@@ -65,6 +65,8 @@ public class ModbusSerialThingHandler
         poolConfiguration.setConnectMaxTries(config.getConnectMaxTries());
         poolConfiguration.setConnectTimeoutMillis(config.getConnectTimeoutMillis());
         poolConfiguration.setInterTransactionDelayMillis(config.getTimeBetweenTransactionsMillis());
+        poolConfiguration.setCoalesceReads(config.isCoalesceReads());
+        poolConfiguration.setCoalesceGapTolerance(config.getCoalesceGapTolerance());
 
         // Never reconnect serial connections "automatically"
         poolConfiguration.setInterConnectDelayMillis(1000);
@@ -60,6 +60,10 @@ public class ModbusTcpThingHandler
         poolConfiguration.setConnectTimeoutMillis(config.getConnectTimeoutMillis());
         poolConfiguration.setInterConnectDelayMillis(config.getTimeBetweenReconnectMillis());
         poolConfiguration.setInterTransactionDelayMillis(config.getTimeBetweenTransactionsMillis());
+        poolConfiguration.setCoalesceReads(config.isCoalesceReads());
+        poolConfiguration.setCoalesceGapTolerance(config.getCoalesceGapTolerance());
+        poolConfiguration.setMaxInFlightTransactions(config.getMaxInFlightTransactions());
+        poolConfiguration.setResponseTimeoutMillis(config.getResponseTimeoutMillis());
         poolConfiguration.setReconnectAfterMillis(config.getReconnectAfterMillis());
     }
 
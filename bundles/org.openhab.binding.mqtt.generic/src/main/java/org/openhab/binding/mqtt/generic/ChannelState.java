@@ -14,6 +14,7 @@ package org.openhab.binding.mqtt.generic;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Formatter;
 import java.util.IllegalFormatException;
 import java.util.List;
@@ -25,9 +26,11 @@ import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.IncreaseDecreaseType;
+import org.eclipse.smarthome.core.library.types.UpDownType;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.types.Command;
-import org.eclipse.smarthome.core.types.TypeParser;
+import org.eclipse.smarthome.core.types.UnDefType;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.binding.mqtt.generic.values.Value;
@@ -60,6 +63,8 @@ public class ChannelState implements MqttMessageSubscriber {
     protected boolean hasSubscribed = false;
     private @Nullable ScheduledFuture<?> scheduledFuture;
     private CompletableFuture<@Nullable Void> future = new CompletableFuture<>();
+    // The payload the cached value was last updated from, if receiving it again results in the same state
+    private volatile byte @Nullable [] lastPayload;
 
     /**
      * Creates a new channel state.
@@ -132,6 +137,10 @@ public class ChannelState implements MqttMessageSubscriber {
 
     /**
      * Incoming message from the MqttBrokerConnection
+     * <p>
+     * A payload equal to the last processed one is not transformed and parsed again, the cached state is propagated
+     * instead. Relative commands like INCREASE are always processed.
+     * </p>
      *
      * @param topic The topic. Is the same as the field stateTopic.
      * @param payload The byte payload. Must be UTF8 encoded text or binary data.
@@ -151,6 +160,15 @@ public class ChannelState implements MqttMessageSubscriber {
             return;
         }
 
+        // Same payload as before: Skip transformations and parsing, unless the cache got reset in the meantime
+        if (!config.trigger && cachedValue.getChannelState() != UnDefType.UNDEF
+                && Arrays.equals(payload, lastPayload)) {
+            notifyListener(channelStateUpdateListener);
+            receivedOrTimeout();
+            return;
+        }
+        lastPayload = null;
+
         // String value: Apply transformations
         String strValue = new String(payload, StandardCharsets.UTF_8);
         for (ChannelStateTransformation t : transformationsIn) {
@@ -172,7 +190,7 @@ public class ChannelState implements MqttMessageSubscriber {
             return;
         }
 
-        Command command = TypeParser.parseCommand(cachedValue.getSupportedCommandTypes(), strValue);
+        Command command = cachedValue.parseCommand(strValue);
         if (command == null) {
             logger.warn("Incoming payload '{}' not supported by type '{}'", strValue,
                     cachedValue.getClass().getSimpleName());
@@ -197,12 +215,19 @@ public class ChannelState implements MqttMessageSubscriber {
             return;
         }
 
+        if (!(command instanceof IncreaseDecreaseType || command instanceof UpDownType)) {
+            lastPayload = payload;
+        }
+        notifyListener(channelStateUpdateListener);
+        receivedOrTimeout();
+    }
+
+    private void notifyListener(ChannelStateUpdateListener channelStateUpdateListener) {
         if (config.postCommand) {
             channelStateUpdateListener.postChannelCommand(channelUID, (Command) cachedValue.getChannelState());
         } else {
             channelStateUpdateListener.updateChannelState(channelUID, cachedValue.getChannelState());
         }
-        receivedOrTimeout();
     }
 
     /**
@@ -254,6 +279,7 @@ public class ChannelState implements MqttMessageSubscriber {
         this.connection = null;
         this.channelStateUpdateListener = null;
         hasSubscribed = false;
+        lastPayload = null;
         cachedValue.resetState();
     }
 
@@ -330,6 +356,7 @@ public class ChannelState implements MqttMessageSubscriber {
      *         and exceptionally otherwise.
      */
     public CompletableFuture<Boolean> publishValue(Command command) {
+        lastPayload = null;
         cachedValue.update(command);
 
         String mqttCommandValue = cachedValue.getMQTTpublishValue();
@@ -13,11 +13,17 @@
 package org.openhab.binding.mqtt.generic.tools;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -27,32 +33,109 @@ import org.eclipse.jdt.annotation.Nullable;
  * Collects objects over time until a specified delay passed by.
  * Then call the user back with a list of accumulated objects and start over again.
  *
+ * Objects are accumulated in a lock-free queue, so that many threads can add objects without contention. The batch is
+ * delivered to the consumer
+ * <ul>
+ * <li>when no new object was added for <code>delay</code> milliseconds,</li>
+ * <li>at the latest <code>maxAge</code> milliseconds after the first object of the batch was added, or</li>
+ * <li>immediately, when <code>maxBatchSize</code> objects have been accumulated.</li>
+ * </ul>
+ * The consumer is never called concurrently, and batches never contain more than <code>maxBatchSize</code> objects.
+ *
+ * If the consumer cannot keep up and <code>capacity</code> objects are pending, new objects are handled according to
+ * the {@link BackPressure} policy.
+ *
  * @author David Graeff - Initial contribution
  *
  * @param <T> Any object
  */
 @NonNullByDefault
 public class DelayedBatchProcessing<T> implements Consumer<T> {
+
+    /**
+     * What to do with new objects when the pending objects reach the capacity
+     */
+    public enum BackPressure {
+        /**
+         * Deliver the pending objects to the consumer in the calling thread before adding the new object
+         */
+        PROCESS_IN_CALLER,
+        /**
+         * Discard the new object
+         */
+        DROP_NEWEST,
+        /**
+         * Discard the oldest pending object to make room for the new object
+         */
+        DROP_OLDEST
+    }
+
     private final int delay;
+    private final int maxAge;
+    private final int maxBatchSize;
+    private final int capacity;
+    private final BackPressure backPressure;
     private final Consumer<List<T>> consumer;
-    private final List<T> queue = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean armed = new AtomicBoolean();
+    // Incremented when a timer is armed and when the batch is delivered or cancelled. Timers of an older generation
+    // have been superseded and must neither deliver nor reschedule.
+    private final AtomicLong generation = new AtomicLong();
+    private final Object consumerLock = new Object();
     private final ScheduledExecutorService executor;
     protected @Nullable ScheduledFuture<?> future;
+    private volatile long firstAcceptNanos;
+    private volatile long lastAcceptNanos;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder processedItems = new LongAdder();
+    private final LongAdder droppedItems = new LongAdder();
+    private final LongAdder sizeTriggeredBatches = new LongAdder();
+    private final LongAccumulator largestBatch = new LongAccumulator(Long::max, 0);
 
     /**
-     * Creates a {@link DelayedBatchProcessing}.
+     * Creates a {@link DelayedBatchProcessing}, delivering the objects <code>delay</code> milliseconds after the first
+     * object of a batch was added, without limits on the batch size.
      *
      * @param delay A delay in milliseconds
      * @param consumer A consumer of the list of collected objects
      * @param executor A scheduled executor service
      */
     public DelayedBatchProcessing(int delay, Consumer<List<T>> consumer, ScheduledExecutorService executor) {
-        this.delay = delay;
-        this.consumer = consumer;
-        this.executor = executor;
+        this(delay, delay, Integer.MAX_VALUE, Integer.MAX_VALUE, BackPressure.PROCESS_IN_CALLER, consumer, executor);
+    }
+
+    /**
+     * Creates a {@link DelayedBatchProcessing}.
+     *
+     * @param delay Time in milliseconds without new objects after which the batch is delivered
+     * @param maxAge Maximum time in milliseconds between adding the first object of a batch and delivering the batch.
+     *            Should be at least <code>delay</code>.
+     * @param maxBatchSize Maximum number of objects in a batch. Reaching it delivers the batch immediately.
+     * @param capacity Maximum number of pending objects before the back-pressure policy is applied
+     * @param backPressure What to do with new objects when the capacity is reached
+     * @param consumer A consumer of the list of collected objects
+     * @param executor A scheduled executor service
+     */
+    public DelayedBatchProcessing(int delay, int maxAge, int maxBatchSize, int capacity, BackPressure backPressure,
+            Consumer<List<T>> consumer, ScheduledExecutorService executor) {
         if (delay <= 0) {
             throw new IllegalArgumentException("Delay need to be greater than 0!");
         }
+        if (maxAge < delay) {
+            throw new IllegalArgumentException("Maximum age need to be at least the delay!");
+        }
+        if (maxBatchSize <= 0 || capacity < maxBatchSize) {
+            throw new IllegalArgumentException("Batch size need to be greater than 0 and at most the capacity!");
+        }
+        this.delay = delay;
+        this.maxAge = maxAge;
+        this.maxBatchSize = maxBatchSize;
+        this.capacity = capacity;
+        this.backPressure = backPressure;
+        this.consumer = consumer;
+        this.executor = executor;
     }
 
     /**
@@ -63,10 +146,33 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      */
     @Override
     public void accept(T t) {
+        if (pending.get() >= capacity) {
+            switch (backPressure) {
+                case PROCESS_IN_CALLER:
+                    run();
+                    break;
+                case DROP_NEWEST:
+                    droppedItems.increment();
+                    return;
+                case DROP_OLDEST:
+                    if (queue.poll() != null) {
+                        pending.decrementAndGet();
+                        droppedItems.increment();
+                    }
+                    break;
+            }
+        }
+        lastAcceptNanos = nanoTime();
         queue.add(t);
-        final ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture == null || scheduledFuture.isDone()) {
-            this.future = executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        int size = pending.incrementAndGet();
+        if (armed.compareAndSet(false, true)) {
+            firstAcceptNanos = lastAcceptNanos;
+            long timerGeneration = generation.incrementAndGet();
+            future = executor.schedule(() -> timerExpired(timerGeneration), delay, TimeUnit.MILLISECONDS);
+        }
+        if (size == maxBatchSize) {
+            sizeTriggeredBatches.increment();
+            executor.execute(this::run);
         }
     }
 
@@ -76,15 +182,9 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      * @return A list of accumulated objects
      */
     public List<T> join() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture != null && !scheduledFuture.isDone()) {
-            scheduledFuture.cancel(false);
-        }
+        cancelTimer();
         List<T> lqueue = new ArrayList<>();
-        synchronized (queue) {
-            lqueue.addAll(queue);
-            queue.clear();
-        }
+        drainTo(lqueue, Integer.MAX_VALUE);
         return lqueue;
     }
 
@@ -92,30 +192,128 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      * Return true if there is a delayed processing going on.
      */
     public boolean isArmed() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        return scheduledFuture != null && !scheduledFuture.isDone();
+        return armed.get();
     }
 
     /**
      * Deliver queued items now to the target consumer.
      */
     public void forceProcessNow() {
+        run();
+    }
+
+    /**
+     * Return the number of objects waiting for delivery
+     */
+    public int getPendingItems() {
+        return pending.get();
+    }
+
+    /**
+     * Return the number of batches delivered to the consumer
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Return the number of batches that were delivered immediately because they reached the maximum batch size
+     */
+    public long getSizeTriggeredBatches() {
+        return sizeTriggeredBatches.sum();
+    }
+
+    /**
+     * Return the number of objects delivered to the consumer
+     */
+    public long getProcessedItems() {
+        return processedItems.sum();
+    }
+
+    /**
+     * Return the number of objects discarded due to the back-pressure policy
+     */
+    public long getDroppedItems() {
+        return droppedItems.sum();
+    }
+
+    /**
+     * Return the size of the largest delivered batch
+     */
+    public long getLargestBatch() {
+        return largestBatch.get();
+    }
+
+    /**
+     * Return the current value of the monotonic clock in nanoseconds. Overridden by tests.
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Invalidate and cancel the armed timer. The generation is incremented before disarming, so that a timer armed by a
+     * concurrent {@link #accept(Object)} afterwards stays valid.
+     */
+    private void cancelTimer() {
+        generation.incrementAndGet();
         ScheduledFuture<?> scheduledFuture = this.future;
         if (scheduledFuture != null && !scheduledFuture.isDone()) {
             scheduledFuture.cancel(false);
         }
+        armed.set(false);
+    }
+
+    private void timerExpired(long timerGeneration) {
+        if (timerGeneration != generation.get()) {
+            // the batch has been delivered or cancelled in the meantime
+            return;
+        }
+        long now = nanoTime();
+        long flushAt = Math.min(lastAcceptNanos + TimeUnit.MILLISECONDS.toNanos(delay),
+                firstAcceptNanos + TimeUnit.MILLISECONDS.toNanos(maxAge));
+        if (flushAt - now > 0) {
+            // objects were added after arming the timer, wait until the batch has been quiet long enough
+            future = executor.schedule(() -> timerExpired(timerGeneration), flushAt - now, TimeUnit.NANOSECONDS);
+            return;
+        }
         run();
     }
 
-    private void run() {
-        List<T> lqueue = new ArrayList<>();
-        synchronized (queue) {
-            lqueue.addAll(queue);
-            queue.clear();
+    private int drainTo(List<T> list, int maxItems) {
+        int drained = 0;
+        T item;
+        while (drained < maxItems && (item = queue.poll()) != null) {
+            list.add(item);
+            drained++;
         }
+        pending.addAndGet(-drained);
+        return drained;
+    }
 
-        if (!lqueue.isEmpty()) {
-            consumer.accept(lqueue);
+    private void run() {
+        // Objects added after this are either drained below, or arm a new timer
+        cancelTimer();
+        synchronized (consumerLock) {
+            while (true) {
+                List<T> lqueue = new ArrayList<>(Math.max(0, Math.min(pending.get(), maxBatchSize)));
+                int size = drainTo(lqueue, maxBatchSize);
+                if (size == 0) {
+                    return;
+                }
+                batches.increment();
+                processedItems.add(size);
+                largestBatch.accumulate(size);
+                consumer.accept(lqueue);
+            }
         }
     }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "DelayedBatchProcessing(pending=%d, batches=%d, processed=%d, dropped=%d, sizeTriggered=%d, largest=%d)",
+                getPendingItems(), getBatches(), getProcessedItems(), getDroppedItems(), getSizeTriggeredBatches(),
+                getLargestBatch());
+    }
 }
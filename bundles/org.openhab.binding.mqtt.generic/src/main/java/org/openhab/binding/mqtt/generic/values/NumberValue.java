@@ -96,6 +96,26 @@ public class NumberValue extends Value {
         }
     }
 
+    @Override
+    public @Nullable Command parseCommand(String value) {
+        DecimalType decimal = parseDecimal(value);
+        if (decimal != null) {
+            return decimal;
+        }
+        switch (value) {
+            case "INCREASE":
+                return IncreaseDecreaseType.INCREASE;
+            case "DECREASE":
+                return IncreaseDecreaseType.DECREASE;
+            case "UP":
+                return UpDownType.UP;
+            case "DOWN":
+                return UpDownType.DOWN;
+            default:
+                return null;
+        }
+    }
+
     @Override
     public StateDescription createStateDescription(String unit, boolean readOnly) {
         return new StateDescription(min, max, step, "%s " + unit.replace("%", "%%"), readOnly, Collections.emptyList());
@@ -86,6 +86,18 @@ public class OnOffValue extends Value {
         }
     }
 
+    @Override
+    public @Nullable Command parseCommand(String value) {
+        switch (value) {
+            case "ON":
+                return OnOffType.ON;
+            case "OFF":
+                return OnOffType.OFF;
+            default:
+                return new StringType(value);
+        }
+    }
+
     @Override
     public String getMQTTpublishValue() {
         return (state == OnOffType.ON) ? onCommand : offCommand;
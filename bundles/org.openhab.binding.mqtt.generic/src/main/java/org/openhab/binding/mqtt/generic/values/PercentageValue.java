@@ -120,6 +120,30 @@ public class PercentageValue extends Value {
         }
     }
 
+    @Override
+    public @Nullable Command parseCommand(String value) {
+        DecimalType decimal = parseDecimal(value);
+        if (decimal != null) {
+            return decimal;
+        }
+        switch (value) {
+            case "INCREASE":
+                return IncreaseDecreaseType.INCREASE;
+            case "DECREASE":
+                return IncreaseDecreaseType.DECREASE;
+            case "ON":
+                return OnOffType.ON;
+            case "OFF":
+                return OnOffType.OFF;
+            case "UP":
+                return UpDownType.UP;
+            case "DOWN":
+                return UpDownType.DOWN;
+            default:
+                return new StringType(value);
+        }
+    }
+
     @Override
     public String getMQTTpublishValue() {
         if (state == UnDefType.UNDEF) {
@@ -27,6 +27,7 @@ import org.eclipse.smarthome.core.library.types.RawType;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.StateDescription;
+import org.eclipse.smarthome.core.types.TypeParser;
 import org.eclipse.smarthome.core.types.UnDefType;
 
 /**
@@ -122,6 +123,41 @@ public abstract class Value {
      */
     public abstract void update(Command command) throws IllegalArgumentException;
 
+    /**
+     * Parses an incoming MQTT value into one of the {@link #getSupportedCommandTypes()}, trying them in order.
+     * <p>
+     * Subclasses may override this with a parser that does not need reflection, but it must return the same
+     * command as {@link TypeParser#parseCommand(List, String)} would.
+     * </p>
+     *
+     * @param value The (transformed) MQTT value
+     * @return The parsed command or null if the value is not supported by any of the command types
+     */
+    public @Nullable Command parseCommand(String value) {
+        return TypeParser.parseCommand(commandTypes, value);
+    }
+
+    /**
+     * Parses a decimal number without the cost of an exception for values that are obviously not a number.
+     *
+     * @param value A value
+     * @return A {@link DecimalType} or null if the value is not a number
+     */
+    protected static @Nullable DecimalType parseDecimal(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        char c = value.charAt(0);
+        if (!Character.isDigit(c) && c != '-' && c != '+' && c != '.') {
+            return null;
+        }
+        try {
+            return new DecimalType(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Returns the given command if it cannot be handled by {@link #update(Command)}
      * or {@link #update(byte[])} and need to be posted straight to the framework instead.
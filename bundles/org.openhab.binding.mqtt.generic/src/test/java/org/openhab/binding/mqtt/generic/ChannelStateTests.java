@@ -174,6 +174,25 @@ public class ChannelStateTests {
         verify(channelStateUpdateListener, times(3)).updateChannelState(eq(channelUID), any());
     }
 
+    @Test
+    public void receiveSamePayloadTest() {
+        NumberValue value = spy(new NumberValue(null, null, new BigDecimal(10)));
+        ChannelState c = spy(new ChannelState(config, channelUID, value, channelStateUpdateListener));
+        c.start(connection, mock(ScheduledExecutorService.class), 100);
+
+        c.processMessage("state", "15".getBytes());
+        c.processMessage("state", "15".getBytes());
+        assertThat(value.getChannelState().toString(), is("15"));
+        verify(value, times(1)).parseCommand(any());
+
+        // Relative commands are applied each time
+        c.processMessage("state", "INCREASE".getBytes());
+        c.processMessage("state", "INCREASE".getBytes());
+        assertThat(value.getChannelState().toString(), is("35"));
+
+        verify(channelStateUpdateListener, times(4)).updateChannelState(eq(channelUID), any());
+    }
+
     @Test
     public void receiveDecimalFractionalTest() {
         NumberValue value = new NumberValue(null, null, new BigDecimal(10.5));
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.binding.mqtt.generic.tools.DelayedBatchProcessing.BackPressure;
+
+/**
+ * Tests cases for {@link DelayedBatchProcessing}.
+ *
+ * @author agent - Initial contribution
+ */
+public class DelayedBatchProcessingTests {
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+    private final List<Runnable> timers = new ArrayList<>();
+    private final List<Long> timerDelays = new ArrayList<>();
+    private long nowMillis;
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void deliversBatchAfterDelay() throws InterruptedException {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(50, batches::add, scheduler);
+        processing.accept(1);
+        processing.accept(2);
+        assertTrue(processing.isArmed());
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS), is(Arrays.asList(1, 2)));
+        assertFalse(processing.isArmed());
+        assertThat(processing.getBatches(), is(1L));
+        assertThat(processing.getProcessedItems(), is(2L));
+    }
+
+    @Test
+    public void maxBatchSizeDeliversImmediately() throws InterruptedException {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(60000, 60000, 2, 10,
+                BackPressure.PROCESS_IN_CALLER, batches::add, scheduler);
+        processing.accept(1);
+        processing.accept(2);
+        processing.accept(3);
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS), is(Arrays.asList(1, 2)));
+        assertThat(processing.getSizeTriggeredBatches(), is(1L));
+
+        processing.forceProcessNow();
+        assertThat(batches.poll(5, TimeUnit.SECONDS), is(Arrays.asList(3)));
+        assertThat(processing.getLargestBatch(), is(2L));
+    }
+
+    @Test
+    public void maxAgeLimitsQuietPeriod() {
+        DelayedBatchProcessing<Integer> processing = manualProcessing(100, 300, 100);
+        // never quiet for the delay, so the batch is delivered on maximum age
+        acceptAt(0, processing, 0);
+        acceptAt(50, processing, 1);
+        fireTimerAt(100, 0);
+        acceptAt(140, processing, 2);
+        fireTimerAt(150, 1);
+        acceptAt(230, processing, 3);
+        fireTimerAt(240, 2);
+        acceptAt(290, processing, 4);
+        assertTrue(batches.isEmpty());
+
+        fireTimerAt(300, 3);
+        assertThat(timerDelays, is(Arrays.asList(100L, 50L, 90L, 60L)));
+        assertThat(batches.poll(), is(Arrays.asList(0, 1, 2, 3, 4)));
+        assertFalse(processing.isArmed());
+    }
+
+    @Test
+    public void supersededTimerDoesNotDeliver() {
+        DelayedBatchProcessing<Integer> processing = manualProcessing(100, 100, 2);
+        acceptAt(0, processing, 1);
+        // delivered right away by reaching the batch size, the first timer is superseded
+        acceptAt(10, processing, 2);
+        assertThat(batches.poll(), is(Arrays.asList(1, 2)));
+        acceptAt(20, processing, 3);
+        assertThat(timers.size(), is(2));
+
+        // the first timer must neither deliver the new batch early nor reschedule itself
+        fireTimerAt(100, 0);
+        assertTrue(batches.isEmpty());
+        assertThat(timers.size(), is(2));
+
+        // after join() no timer delivers anymore
+        assertThat(processing.join(), is(Arrays.asList(3)));
+        fireTimerAt(120, 1);
+        assertTrue(batches.isEmpty());
+        assertThat(timers.size(), is(2));
+    }
+
+    @Test
+    public void dropNewestWhenFull() {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(60000, 60000, 2, 2,
+                BackPressure.DROP_NEWEST, batches::add, mock(ScheduledExecutorService.class));
+        processing.accept(1);
+        processing.accept(2);
+        processing.accept(3);
+
+        assertThat(processing.getDroppedItems(), is(1L));
+        assertThat(processing.join(), is(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void dropOldestWhenFull() {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(60000, 60000, 3, 3,
+                BackPressure.DROP_OLDEST, batches::add, mock(ScheduledExecutorService.class));
+        processing.accept(1);
+        processing.accept(2);
+        processing.accept(3);
+        processing.accept(4);
+
+        assertThat(processing.getDroppedItems(), is(1L));
+        assertThat(processing.join(), is(Arrays.asList(2, 3, 4)));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void concurrentAcceptAndRunDeliverEveryObjectOnce() throws Exception {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(1, 1, 3, 10000,
+                BackPressure.PROCESS_IN_CALLER, batches::add, scheduler);
+        int threads = 4;
+        int perThread = 5000;
+        ExecutorService producers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                int offset = t * perThread;
+                futures.add(producers.submit(() -> {
+                    for (int i = 0; i < perThread; ++i) {
+                        processing.accept(offset + i);
+                        if (i % 7 == 0) {
+                            // run() drains concurrently with accept() of the other threads
+                            processing.forceProcessNow();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+        processing.forceProcessNow();
+
+        Set<Integer> delivered = new HashSet<>();
+        List<Integer> batch;
+        while ((batch = batches.poll()) != null) {
+            assertTrue(batch.size() <= 3);
+            for (Integer value : batch) {
+                assertTrue("delivered twice: " + value, delivered.add(value));
+            }
+        }
+        assertThat(delivered.size(), is(threads * perThread));
+        assertThat(processing.getPendingItems(), is(0));
+    }
+
+    /**
+     * Create a processing whose timers and clock are controlled by the test
+     */
+    private DelayedBatchProcessing<Integer> manualProcessing(int delay, int maxAge, int maxBatchSize) {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            timers.add(invocation.getArgument(0));
+            timerDelays.add(invocation.<TimeUnit> getArgument(2).toMillis(invocation.getArgument(1)));
+            return mock(ScheduledFuture.class);
+        });
+        doAnswer(invocation -> {
+            invocation.<Runnable> getArgument(0).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        return new DelayedBatchProcessing<Integer>(delay, maxAge, maxBatchSize, 100, BackPressure.PROCESS_IN_CALLER,
+                batches::add, executor) {
+            @Override
+            protected long nanoTime() {
+                return TimeUnit.MILLISECONDS.toNanos(nowMillis);
+            }
+        };
+    }
+
+    private void acceptAt(long millis, DelayedBatchProcessing<Integer> processing, int value) {
+        nowMillis = millis;
+        processing.accept(value);
+    }
+
+    private void fireTimerAt(long millis, int index) {
+        nowMillis = millis;
+        timers.get(index).run();
+    }
+
+    @Test
+    public void joinReturnsPendingObjects() {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(60000, batches::add, scheduler);
+        processing.accept(1);
+        processing.accept(2);
+
+        assertThat(processing.join(), is(Arrays.asList(1, 2)));
+        assertFalse(processing.isArmed());
+        assertThat(processing.getPendingItems(), is(0));
+        assertTrue(batches.isEmpty());
+    }
+}
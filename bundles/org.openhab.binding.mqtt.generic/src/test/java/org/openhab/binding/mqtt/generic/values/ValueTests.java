@@ -254,4 +254,17 @@ public class ValueTests {
                 null);
         v.update(new DecimalType(9.0));
     }
+
+    @Test
+    public void parseCommandLikeTypeParser() {
+        Value[] values = { new NumberValue(null, null, null), new OnOffValue("fancyON", "fancyOff"),
+                new PercentageValue(null, null, null, "on", "off") };
+        String[] inputs = { "12", "-1.5", "+3", ".5", "1e3", "1-2", "-", "", "ON", "OFF", "on", "fancyON", "INCREASE",
+                "DECREASE", "UP", "DOWN", "STOP", "12,18,231", "text" };
+        for (Value v : values) {
+            for (String input : inputs) {
+                assertEquals(v.getClass().getSimpleName() + " '" + input + "'", p(v, input), v.parseCommand(input));
+            }
+        }
+    }
 }
@@ -227,6 +227,13 @@ public abstract class AbstractComponent<C extends BaseChannelConfiguration> {
         return configHash;
     }
 
+    /**
+     * The location of this component, consisting of the object-id, node-id and component-id.
+     */
+    public HaID getHaID() {
+        return haID;
+    }
+
     /**
      * Return the channel group type.
      */
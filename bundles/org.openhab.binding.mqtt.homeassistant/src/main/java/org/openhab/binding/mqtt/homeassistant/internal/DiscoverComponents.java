@@ -14,8 +14,10 @@ package org.openhab.binding.mqtt.homeassistant.internal;
 
 import java.lang.ref.WeakReference;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +31,7 @@ import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.binding.mqtt.generic.ChannelStateUpdateListener;
 import org.openhab.binding.mqtt.generic.TransformationServiceProvider;
 import org.openhab.binding.mqtt.homeassistant.internal.util.FutureCollector;
+import org.openhab.binding.mqtt.homeassistant.internal.util.FutureLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,25 +40,36 @@ import com.google.gson.Gson;
 /**
  * Responsible for subscribing to the HomeAssistant MQTT components wildcard topic, either
  * in a time limited discovery mode or as a background discovery.
+ * <p>
+ * Configurations equal to the one of a known component are not parsed again, the known component is reported instead.
+ * Other configurations are parsed in parallel on the scheduler. The subscriptions are performed through a
+ * {@link FutureLimiter}, to bound the number of subscriptions in flight.
  *
  * @author David Graeff - Initial contribution
  */
 @NonNullByDefault
 public class DiscoverComponents implements MqttMessageSubscriber {
+    public static final int MAX_SUBSCRIPTIONS_IN_FLIGHT = 10;
+
     private final Logger logger = LoggerFactory.getLogger(DiscoverComponents.class);
     private final ThingUID thingUID;
     private final ScheduledExecutorService scheduler;
     private final ChannelStateUpdateListener updateListener;
     private final TransformationServiceProvider transformationServiceProvider;
+    private final FutureLimiter subscriptionLimiter;
 
     protected final CompletableFuture<@Nullable Void> discoverFinishedFuture = new CompletableFuture<>();
     private final Gson gson;
 
     private @Nullable ScheduledFuture<?> stopDiscoveryFuture;
     private WeakReference<@Nullable MqttBrokerConnection> connectionRef = new WeakReference<>(null);
-    protected @NonNullByDefault({}) ComponentDiscovered discoveredListener;
+    protected volatile @NonNullByDefault({}) ComponentDiscovered discoveredListener;
     private int discoverTime;
     private Set<String> topics = new HashSet<>();
+    // Components with a known configuration. Their configuration hash is compared to received configurations.
+    private final Map<HaID, AbstractComponent<?>> knownComponents = new ConcurrentHashMap<>();
+    // Configurations being parsed. A configuration is dropped if a newer one has been received in the meantime.
+    private final Map<HaID, String> pendingConfigs = new ConcurrentHashMap<>();
 
     /**
      * Implement this to get notified of new components
@@ -65,20 +79,48 @@ public class DiscoverComponents implements MqttMessageSubscriber {
     }
 
     /**
-     * Create a new discovery object.
+     * Create a new discovery object, which limits its subscriptions in flight to {@link #MAX_SUBSCRIPTIONS_IN_FLIGHT}.
      *
      * @param thingUID The Thing UID to perform the discovery for.
-     * @param scheduler A scheduler for timeouts
+     * @param scheduler A scheduler for timeouts and for parsing received configurations
      * @param channelStateUpdateListener Channel update listener. Usually the handler.
      */
     public DiscoverComponents(ThingUID thingUID, ScheduledExecutorService scheduler,
             ChannelStateUpdateListener channelStateUpdateListener, Gson gson,
             TransformationServiceProvider transformationServiceProvider) {
+        this(thingUID, scheduler, channelStateUpdateListener, gson, transformationServiceProvider,
+                new FutureLimiter(MAX_SUBSCRIPTIONS_IN_FLIGHT));
+    }
+
+    /**
+     * Create a new discovery object.
+     *
+     * @param thingUID The Thing UID to perform the discovery for.
+     * @param scheduler A scheduler for timeouts and for parsing received configurations
+     * @param channelStateUpdateListener Channel update listener. Usually the handler.
+     * @param subscriptionLimiter Limits the subscriptions in flight. {@link #stopDiscovery()} cancels all operations
+     *            pending in this limiter, so only share it with operations that may be dropped together with the
+     *            discovery.
+     */
+    public DiscoverComponents(ThingUID thingUID, ScheduledExecutorService scheduler,
+            ChannelStateUpdateListener channelStateUpdateListener, Gson gson,
+            TransformationServiceProvider transformationServiceProvider, FutureLimiter subscriptionLimiter) {
         this.thingUID = thingUID;
         this.scheduler = scheduler;
         this.updateListener = channelStateUpdateListener;
         this.gson = gson;
         this.transformationServiceProvider = transformationServiceProvider;
+        this.subscriptionLimiter = subscriptionLimiter;
+    }
+
+    /**
+     * Add a component with a known configuration, for example one restored from the thing channels. If the same
+     * configuration is received again, this component is reported without parsing the configuration.
+     *
+     * @param component A component
+     */
+    public void addKnownComponent(AbstractComponent<?> component) {
+        knownComponents.put(component.getHaID(), component);
     }
 
     @Override
@@ -90,24 +132,51 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         HaID haID = new HaID(topic);
         String config = new String(payload);
 
+        AbstractComponent<?> known = knownComponents.get(haID);
+        if (known != null && known.getConfigHash() == config.hashCode()) {
+            pendingConfigs.remove(haID);
+            known.setConfigSeen();
+            logger.trace("Unchanged HomeAssistant thing {} component {}", haID.objectID, haID.component);
+            notifyDiscovered(haID, known);
+            return;
+        }
+
+        pendingConfigs.put(haID, config);
+        scheduler.execute(() -> processConfig(haID, config));
+    }
+
+    private void processConfig(HaID haID, String config) {
         AbstractComponent<?> component = null;
 
         if (config.length() > 0) {
-            component = CFactory.createComponent(thingUID, haID, config, updateListener, gson,
-                    transformationServiceProvider);
+            try {
+                component = CFactory.createComponent(thingUID, haID, config, updateListener, gson,
+                        transformationServiceProvider);
+            } catch (RuntimeException e) {
+                logger.debug("Parsing the configuration of HomeAssistant thing {} failed", haID.objectID, e);
+            }
+        }
+        if (!pendingConfigs.remove(haID, config)) {
+            // A newer configuration has been received in the meantime
+            return;
         }
         if (component != null) {
             component.setConfigSeen();
 
             logger.trace("Found HomeAssistant thing {} component {}", haID.objectID, haID.component);
-            if (discoveredListener != null) {
-                discoveredListener.componentDiscovered(haID, component);
-            }
+            notifyDiscovered(haID, component);
         } else {
             logger.debug("Configuration of HomeAssistant thing {} invalid: {}", haID.objectID, config);
         }
     }
 
+    private void notifyDiscovered(HaID haID, AbstractComponent<?> component) {
+        final ComponentDiscovered discoveredListener = this.discoveredListener;
+        if (discoveredListener != null) {
+            discoveredListener.componentDiscovered(haID, component);
+        }
+    }
+
     /**
      * Start a components discovery.
      *
@@ -135,8 +204,8 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         this.connectionRef = new WeakReference<>(connection);
 
         // Subscribe to the wildcard topic and start receive MQTT retained topics
-        this.topics.parallelStream().map(t -> connection.subscribe(t, this)).collect(FutureCollector.allOf())
-                .thenRun(this::subscribeSuccess).exceptionally(this::subscribeFail);
+        this.topics.stream().map(t -> subscriptionLimiter.submit(() -> connection.subscribe(t, this)))
+                .collect(FutureCollector.allOf()).thenRun(this::subscribeSuccess).exceptionally(this::subscribeFail);
 
         return discoverFinishedFuture;
     }
@@ -164,6 +233,8 @@ public class DiscoverComponents implements MqttMessageSubscriber {
             this.stopDiscoveryFuture = null;
         }
         this.discoveredListener = null;
+        subscriptionLimiter.cancelPending();
+        pendingConfigs.clear();
         final MqttBrokerConnection connection = connectionRef.get();
         if (connection != null) {
             this.topics.parallelStream().forEach(t -> connection.unsubscribe(t, this));
@@ -174,7 +245,8 @@ public class DiscoverComponents implements MqttMessageSubscriber {
     }
 
     /**
-     * Stops an ongoing discovery or do nothing if no discovery is running.
+     * Stops an ongoing discovery or do nothing if no discovery is running. Subscriptions that have not been started yet
+     * are cancelled, as well as any other operation pending in the subscription limiter.
      *
      * @param connection A MQTT broker connection
      */
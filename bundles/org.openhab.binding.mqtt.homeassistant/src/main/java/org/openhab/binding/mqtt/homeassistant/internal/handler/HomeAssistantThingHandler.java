@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -52,6 +53,7 @@ import org.openhab.binding.mqtt.homeassistant.internal.DiscoverComponents.Compon
 import org.openhab.binding.mqtt.homeassistant.internal.HaID;
 import org.openhab.binding.mqtt.homeassistant.internal.HandlerConfiguration;
 import org.openhab.binding.mqtt.homeassistant.internal.util.FutureCollector;
+import org.openhab.binding.mqtt.homeassistant.internal.util.FutureLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +73,9 @@ import com.google.gson.GsonBuilder;
  * <br>
  *
  * If a Components configuration changes, the known ChannelGroupType and ChannelTypes are replaced with the new ones.
+ * Components restored from the Thing channels are known to the discovery, so their unchanged configurations are not
+ * parsed again. At most {@link DiscoverComponents#MAX_SUBSCRIPTIONS_IN_FLIGHT} discovery subscriptions, and as many
+ * component starts of newly discovered components, are in flight at the same time.
  *
  * @author David Graeff - Initial contribution
  */
@@ -85,6 +90,8 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
     public final int attributeReceiveTimeout;
     protected final DelayedBatchProcessing<AbstractComponent<?>> delayedProcessing;
     protected final DiscoverComponents discoverComponents;
+    protected final FutureLimiter subscriptionLimiter = new FutureLimiter(
+            DiscoverComponents.MAX_SUBSCRIPTIONS_IN_FLIGHT);
 
     private final Gson gson;
     protected final Map<String, AbstractComponent<?>> haComponents = new HashMap<>();
@@ -159,6 +166,7 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
             if (component != null) {
                 haComponents.put(component.uid().getId(), component);
                 component.addChannelTypes(channelTypeProvider);
+                discoverComponents.addKnownComponent(component);
             } else {
                 logger.warn("Could not restore component {}", thing);
             }
@@ -211,6 +219,7 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
     protected void stop() {
         if (started) {
             discoverComponents.stopDiscovery();
+            subscriptionLimiter.cancelPending();
             delayedProcessing.join();
             // haComponents does not need to be synchronised -> the discovery thread is disabled
             haComponents.values().parallelStream().map(e -> e.stop()) //
@@ -281,9 +290,13 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
                 discovered.addChannelTypes(channelTypeProvider);
                 // Add component to the component map
                 haComponents.put(discovered.uid().getId(), discovered);
+                discoverComponents.addKnownComponent(discovered);
                 // Start component / Subscribe to channel topics
-                discovered.start(connection, scheduler, 0).exceptionally(e -> {
-                    logger.warn("Failed to start component {}", discovered.uid(), e);
+                subscriptionLimiter.submit(() -> discovered.start(connection, scheduler, 0)).exceptionally(e -> {
+                    // Pending starts are cancelled when the handler stops
+                    if (!(e instanceof CancellationException)) {
+                        logger.warn("Failed to start component {}", discovered.uid(), e);
+                    }
                     return null;
                 });
 
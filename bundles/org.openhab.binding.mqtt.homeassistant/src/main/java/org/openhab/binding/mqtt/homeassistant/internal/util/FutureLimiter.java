@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Limits the number of asynchronous operations (like MQTT subscriptions) that are in flight at the same time.
+ * Operations exceeding the limit are queued and started in order as soon as a running operation completes.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class FutureLimiter {
+    private final int maxInFlight;
+    private final Queue<Pending<?>> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    private class Pending<T> {
+        final Supplier<CompletableFuture<T>> operation;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Pending(Supplier<CompletableFuture<T>> operation) {
+            this.operation = operation;
+        }
+
+        void start() {
+            CompletableFuture<T> future;
+            try {
+                future = operation.get();
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            future.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param maxInFlight The maximum number of operations in flight
+     */
+    public FutureLimiter(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Starts the operation now or as soon as the number of operations in flight allows it.
+     *
+     * @param operation Starts the operation and returns its future
+     * @return A future that completes with the future of the operation, or exceptionally with a
+     *         {@link CancellationException} if the operation has been cancelled before it started.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+        Pending<T> pending = new Pending<>(operation);
+        synchronized (queue) {
+            if (inFlight >= maxInFlight) {
+                queue.add(pending);
+                return pending.result;
+            }
+            inFlight++;
+        }
+        pending.start();
+        return pending.result;
+    }
+
+    /**
+     * Drops all operations that have not been started yet. Operations in flight are not affected.
+     */
+    public void cancelPending() {
+        List<Pending<?>> cancelled;
+        synchronized (queue) {
+            cancelled = new ArrayList<>(queue);
+            queue.clear();
+        }
+        cancelled.forEach(p -> p.result.completeExceptionally(new CancellationException("Operation cancelled")));
+    }
+
+    /**
+     * Returns the number of operations that wait for being started.
+     */
+    public int getPendingCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private void release() {
+        Pending<?> next;
+        synchronized (queue) {
+            next = queue.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        next.start();
+    }
+}
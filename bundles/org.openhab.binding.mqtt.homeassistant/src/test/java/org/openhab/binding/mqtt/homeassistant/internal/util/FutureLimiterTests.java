@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class FutureLimiterTests {
+
+    @Test
+    public void limitsOperationsInFlight() {
+        FutureLimiter subject = new FutureLimiter(2);
+        List<CompletableFuture<Integer>> operations = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            results.add(subject.submit(() -> {
+                CompletableFuture<Integer> operation = new CompletableFuture<>();
+                operations.add(operation);
+                return operation;
+            }));
+        }
+        assertThat(operations.size(), is(2));
+        assertThat(subject.getPendingCount(), is(3));
+
+        operations.get(0).complete(0);
+        assertThat(results.get(0).join(), is(0));
+        assertThat(operations.size(), is(3));
+
+        operations.get(1).completeExceptionally(new IllegalStateException());
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertThat(operations.size(), is(4));
+        assertThat(subject.getPendingCount(), is(1));
+    }
+
+    @Test
+    public void cancelPending() {
+        FutureLimiter subject = new FutureLimiter(1);
+        CompletableFuture<Integer> operation = new CompletableFuture<>();
+
+        CompletableFuture<Integer> first = subject.submit(() -> operation);
+        CompletableFuture<Integer> second = subject.submit(() -> CompletableFuture.completedFuture(2));
+        subject.cancelPending();
+
+        assertTrue(second.isCancelled());
+        assertThat(subject.getPendingCount(), is(0));
+
+        operation.complete(1);
+        assertThat(first.join(), is(1));
+        // The slot is free again
+        assertThat(subject.submit(() -> CompletableFuture.completedFuture(3)).join(), is(3));
+    }
+}
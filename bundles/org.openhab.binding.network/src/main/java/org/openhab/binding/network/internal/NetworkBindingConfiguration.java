@@ -31,12 +31,14 @@ public class NetworkBindingConfiguration {
     public BigDecimal cacheDeviceStateTimeInMS = BigDecimal.valueOf(2000);
     public String arpPingToolPath = "arping";
     public @NonNullByDefault({}) ArpPingUtilEnum arpPingUtilMethod;
+    public BigDecimal discoveryPacketsPerSecond = BigDecimal.valueOf(100);
 
     public void update(NetworkBindingConfiguration newConfiguration) {
         this.allowSystemPings = newConfiguration.allowSystemPings;
         this.allowDHCPlisten = newConfiguration.allowDHCPlisten;
         this.cacheDeviceStateTimeInMS = newConfiguration.cacheDeviceStateTimeInMS;
         this.arpPingToolPath = newConfiguration.arpPingToolPath;
+        this.discoveryPacketsPerSecond = newConfiguration.discoveryPacketsPerSecond;
 
         NetworkUtils networkUtils = new NetworkUtils();
         this.arpPingUtilMethod = networkUtils.determineNativeARPpingMethod(arpPingToolPath);
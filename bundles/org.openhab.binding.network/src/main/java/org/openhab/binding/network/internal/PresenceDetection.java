@@ -15,26 +15,38 @@ package org.openhab.binding.network.internal;
 import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.cache.ExpiringCache;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.network.internal.dhcp.DHCPListenService;
 import org.openhab.binding.network.internal.dhcp.IPRequestReceivedCallback;
 import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheAsync;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.TcpConnectProber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,8 +61,15 @@ import org.slf4j.LoggerFactory;
 public class PresenceDetection implements IPRequestReceivedCallback {
     public static final double NOT_REACHABLE = -1;
     public static final int DESTINATION_TTL = 300 * 1000; // in ms, 300 s
+    // ARP and ICMP pings run external tools, this limits the number of tools running at once for all devices
+    private static final int MAX_CONCURRENT_PINGS = 32;
+    // Pings queued beyond this would not start before the detections waiting for them give up, they are skipped and
+    // the previous value is kept
+    private static final int MAX_QUEUED_PINGS = 2 * MAX_CONCURRENT_PINGS;
+    private static final ExecutorService PING_EXECUTOR = createPingExecutor();
 
     NetworkUtils networkUtils = new NetworkUtils();
+    TcpConnectProber tcpProber = TcpConnectProber.getInstance();
     private final Logger logger = LoggerFactory.getLogger(PresenceDetection.class);
 
     /// Configuration variables
@@ -62,6 +81,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     protected @Nullable IpPingMethodEnum pingMethod = null;
     private boolean iosDevice;
     private Set<Integer> tcpPorts = new HashSet<>();
+    private ExecutorService executor = PING_EXECUTOR;
 
     private long refreshIntervalInMS = 60000;
     private int timeoutInMS = 5000;
@@ -75,10 +95,11 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     ExpiringCacheAsync<PresenceDetectionValue> cache;
     private final PresenceDetectionListener updateListener;
     private @Nullable ScheduledFuture<?> refreshJob;
-    protected @Nullable ExecutorService executorService;
+    protected @Nullable CompletableFuture<Void> detection;
     private String dhcpState = "off";
-    Integer currentCheck = 0;
     int detectionChecks;
+    // True if the executor rejected a check of the ongoing detection
+    private boolean checksSkipped;
 
     public PresenceDetection(final PresenceDetectionListener updateListener, int cacheDeviceStateTimeInMS)
             throws IllegalArgumentException {
@@ -271,17 +292,59 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         cache.getValue(callback);
     }
 
-    public ExecutorService getThreadsFor(int threadCount) {
-        return Executors.newFixedThreadPool(threadCount);
+    private static ExecutorService createPingExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_PINGS, MAX_CONCURRENT_PINGS, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED_PINGS),
+                new NamedThreadFactory("network-presence"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Return the executor running ARP and ICMP pings. It is shared by all presence detections, unless another one
+     * was set by {@link #setExecutor(ExecutorService)}.
+     */
+    protected ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor running ARP and ICMP pings, e.g. to keep the pings of a network scan from delaying those of
+     * the configured devices.
+     *
+     * @param executor An executor, which may reject checks when it is overloaded
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Return the scheduler giving up detections whose checks do not finish in time.
+     */
+    protected ScheduledExecutorService getScheduler() {
+        return ThreadPoolManager.getScheduledPool(ThreadPoolManager.THREAD_POOL_NAME_COMMON);
+    }
+
+    private CompletableFuture<Void> runCheck(Runnable check, ExecutorService executorService) {
+        try {
+            return CompletableFuture.runAsync(check, executorService);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Too many pings pending, skipping a check of {}", hostname);
+            checksSkipped = true;
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
     /**
      * Perform a presence detection with ICMP-, ARP ping and
-     * TCP connection attempts simultaneously. A fixed thread pool will be created with as many
-     * thread as necessary to perform all tests at once.
+     * TCP connection attempts simultaneously. TCP connection attempts are performed without blocking
+     * a thread by the {@link TcpConnectProber}, ARP and ICMP pings are run by a bounded executor
+     * shared by all presence detections.
      *
      * This is a NO-OP, if there is already an ongoing detection or if the cached value
-     * is not expired yet.
+     * is not expired yet. A detection is finished after twice the timeout at the latest, even if
+     * a check hangs or is still waiting for a free thread. If the executor is overloaded and rejects a
+     * check, a device that has not been seen keeps its previous value instead of being reported as not reachable.
      *
      * Please be aware of the following restrictions:
      * - ARP pings are only executed on IPv4 addresses.
@@ -292,7 +355,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * @return Return true if a presence detection is performed and false otherwise.
      */
     public boolean performPresenceDetection(boolean waitForDetectionToFinish) {
-        if (executorService != null) {
+        if (detection != null) {
             logger.debug(
                     "There is already an ongoing presence discovery for {} and a new one was issued by the scheduler! TCP Port {}",
                     hostname, tcpPorts);
@@ -305,7 +368,6 @@ public class PresenceDetection implements IPRequestReceivedCallback {
 
         Set<String> interfaceNames = null;
 
-        currentCheck = 0;
         detectionChecks = tcpPorts.size();
         if (pingMethod != null) {
             detectionChecks += 1;
@@ -319,49 +381,47 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             return false;
         }
 
-        final ExecutorService executorService = getThreadsFor(detectionChecks);
-        this.executorService = executorService;
+        // Set before starting the checks, they might finish right away
+        final CompletableFuture<Void> detection = new CompletableFuture<>();
+        this.detection = detection;
+        checksSkipped = false;
+        final ExecutorService executorService = getExecutor();
+        final List<CompletableFuture<?>> checks = new ArrayList<>();
 
         for (Integer tcpPort : tcpPorts) {
-            executorService.execute(() -> {
-                Thread.currentThread().setName("presenceDetectionTCP_" + hostname + " " + String.valueOf(tcpPort));
-                performServicePing(tcpPort);
-                checkIfFinished();
-            });
+            checks.add(performServicePing(tcpPort));
         }
 
-        // ARP ping for IPv4 addresses. Use single executor for Windows tool and 
-        // each own executor for each network interface for other tools
+        // ARP ping for IPv4 addresses. Use single check for Windows tool and
+        // each own check for each network interface for other tools
         if (arpPingMethod == ArpPingUtilEnum.ELI_FULKERSON_ARP_PING_FOR_WINDOWS) {
-            executorService.execute(() -> {
-               Thread.currentThread().setName("presenceDetectionARP_" + hostname + " ");
-               // arp-ping.exe tool capable of handling multiple interfaces by itself
-               performARPping("");
-               checkIfFinished();
-            });
-        } else if (interfaceNames != null) {                        
+            // arp-ping.exe tool capable of handling multiple interfaces by itself
+            checks.add(runCheck(() -> performARPping(""), executorService));
+        } else if (interfaceNames != null) {
             for (final String interfaceName : interfaceNames) {
-                executorService.execute(() -> {
-                   Thread.currentThread().setName("presenceDetectionARP_" + hostname + " " + interfaceName);
-                   performARPping(interfaceName);
-                   checkIfFinished();
-               });               
+                checks.add(runCheck(() -> performARPping(interfaceName), executorService));
             }
         }
 
         // ICMP ping
         if (pingMethod != null) {
-            executorService.execute(() -> {
+            checks.add(runCheck(() -> {
                 if (pingMethod != IpPingMethodEnum.JAVA_PING) {
-                    Thread.currentThread().setName("presenceDetectionICMP_" + hostname);
                     performSystemPing();
                 } else {
                     performJavaPing();
                 }
-                checkIfFinished();
-            });
+            }, executorService));
         }
 
+        ScheduledFuture<?> timeout = getScheduler().schedule(() -> submitFinalResult(detection),
+                2 * timeoutInMS + 100, TimeUnit.MILLISECONDS);
+        CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[checks.size()]))
+                .whenComplete((result, e) -> {
+                    timeout.cancel(false);
+                    submitFinalResult(detection);
+                });
+
         if (waitForDetectionToFinish) {
             waitForPresenceDetection();
         }
@@ -372,18 +432,18 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     /**
      * Calls updateListener.finalDetectionResult() with a final result value.
      * Safe to be called from different threads. After a call to this method,
-     * the presence detection process is finished and all threads are forcefully
-     * shut down.
+     * the presence detection process is finished. Checks which did not finish yet
+     * may still report partial results.
+     *
+     * @param detection The detection process to finish. Nothing is done if it has already been finished.
      */
-    private synchronized void submitFinalResult() {
-        // Do nothing if we are not in a detection process
-        ExecutorService service = executorService;
-        if (service == null) {
+    private synchronized void submitFinalResult(CompletableFuture<Void> detection) {
+        // Do nothing if that detection process is not the ongoing one
+        if (this.detection != detection) {
             return;
         }
         // Finish the detection process
-        service.shutdownNow();
-        executorService = null;
+        this.detection = null;
         detectionChecks = 0;
 
         PresenceDetectionValue v;
@@ -391,8 +451,14 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         // The cache will be expired by now if cache_time < timeoutInMS. But the device might be actually reachable.
         // Therefore use lastSeenInMS here and not cache.isExpired() to determine if we got a ping response.
         if (lastSeenInMS + timeoutInMS + 100 < System.currentTimeMillis()) {
-            // We haven't seen the device in the detection process
-            v = new PresenceDetectionValue(hostname, -1);
+            @Nullable PresenceDetectionValue previous = cache.getExpiredValue();
+            if (checksSkipped && previous != null) {
+                // Not all checks could be run, which tells nothing about the device. Keep the previous value.
+                v = previous;
+            } else {
+                // We haven't seen the device in the detection process
+                v = new PresenceDetectionValue(hostname, -1);
+            }
         } else {
             // Make the cache valid again and submit the value.
             v = cache.getExpiredValue();
@@ -404,39 +470,28 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             destination.invalidateValue();
         }
         updateListener.finalDetectionResult(v);
+        detection.complete(null);
     }
 
     /**
-     * This method is called after each individual check and increases a check counter.
-     * If the counter equals the total checks,the final result is submitted. This will
-     * happen way before the "timeoutInMS", if all checks were successful.
-     * Thread safe.
-     */
-    private synchronized void checkIfFinished() {
-        currentCheck += 1;
-        if (currentCheck < detectionChecks) {
-            return;
-        }
-        submitFinalResult();
-    }
-
-    /**
-     * Waits for the presence detection threads to finish. Returns immediately
+     * Waits for the presence detection checks to finish. Returns immediately
      * if no presence detection is performed right now.
+     *
+     * Pings may have to wait for a free thread of the shared executor, therefore
+     * this waits up to twice the timeout before submitting the final result.
      */
     public void waitForPresenceDetection() {
-        ExecutorService service = executorService;
-        if (service == null) {
+        CompletableFuture<Void> detection = this.detection;
+        if (detection == null) {
             return;
         }
         try {
             // We may get interrupted here by cancelRefreshJob().
-            service.awaitTermination(timeoutInMS + 100, TimeUnit.MILLISECONDS);
-            submitFinalResult();
+            detection.get(2 * timeoutInMS + 100, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            submitFinalResult(detection);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Reset interrupt flag
-            service.shutdownNow();
-            executorService = null;
         }
     }
 
@@ -465,22 +520,33 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         return v;
     }
 
-    protected void performServicePing(int tcpPort) {
+    /**
+     * Performs a TCP connection attempt with the {@link TcpConnectProber}.
+     *
+     * @param tcpPort The port to connect to.
+     * @return A future completing after the attempt finished.
+     */
+    protected CompletableFuture<Void> performServicePing(int tcpPort) {
         logger.trace("Perform TCP presence detection for {} on port: {}", hostname, tcpPort);
-        try {
-            double pingTime = System.nanoTime();
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress != null
-                    && networkUtils.servicePing(destinationAddress.getHostAddress(), tcpPort, timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, latency);
-                v.addReachableTcpService(tcpPort);
-                updateListener.partialDetectionResult(v);
-            }
-        } catch (IOException e) {
-            // This should not happen and might be a user configuration issue, we log a warning message therefore.
-            logger.warn("Could not create a socket connection", e);
+        InetAddress destinationAddress = destination.getValue();
+        if (destinationAddress == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        double pingTime = System.nanoTime();
+        return tcpProber.probe(new InetSocketAddress(destinationAddress, tcpPort), timeoutInMS)
+                .handle((reachable, e) -> {
+                    if (e != null) {
+                        // This should not happen and might be a user configuration issue, we log a warning message
+                        // therefore.
+                        logger.warn("Could not create a socket connection", e);
+                    } else if (reachable) {
+                        final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
+                        PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, latency);
+                        v.addReachableTcpService(tcpPort);
+                        updateListener.partialDetectionResult(v);
+                    }
+                    return null;
+                });
     }
 
     /**
@@ -569,6 +635,10 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     /**
      * Start/Restart a fixed scheduled runner to update the devices reach-ability state.
      *
+     * The first detection is performed right away. The periodic runs start after a random time between half and one
+     * and a half refresh intervals, so that the detections of many devices are spread over time instead of all
+     * running at once. The runner does not wait for the detection to finish, results are reported to the listener.
+     *
      * @param scheduledExecutorService A scheduler to run pings periodically.
      */
     public void startAutomaticRefresh(ScheduledExecutorService scheduledExecutorService) {
@@ -576,8 +646,11 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         if (future != null && !future.isDone()) {
             future.cancel(true);
         }
-        refreshJob = scheduledExecutorService.scheduleWithFixedDelay(() -> performPresenceDetection(true), 0,
-                refreshIntervalInMS, TimeUnit.MILLISECONDS);
+        scheduledExecutorService.execute(() -> performPresenceDetection(false));
+        long initialDelay = refreshIntervalInMS / 2
+                + ThreadLocalRandom.current().nextLong(Math.max(1, refreshIntervalInMS));
+        refreshJob = scheduledExecutorService.scheduleWithFixedDelay(() -> performPresenceDetection(false),
+                initialDelay, refreshIntervalInMS, TimeUnit.MILLISECONDS);
     }
 
     /**
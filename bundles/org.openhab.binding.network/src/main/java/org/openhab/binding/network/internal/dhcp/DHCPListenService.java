@@ -13,7 +13,10 @@
 package org.openhab.binding.network.internal.dhcp;
 
 import java.net.SocketException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -28,6 +31,7 @@ import org.slf4j.LoggerFactory;
  * after the receive socket is closed.
  * IPRequestReceivedCallback will be called for the address that is registered and matches the
  * DHO_DHCP_REQUESTED_ADDRESS address field.
+ * The most recently requested addresses are remembered, also for addresses nobody registered for.
  *
  * @author David Graeff - Initial contribution
  */
@@ -36,6 +40,15 @@ public class DHCPListenService {
     static @Nullable DHCPPacketListenerServer instance;
     static Map<String, IPRequestReceivedCallback> registeredListeners = new TreeMap<>();
     static Logger logger = LoggerFactory.getLogger(DHCPListenService.class);
+    static final int MAX_SEEN_ADDRESSES = 1024;
+    static Map<String, Boolean> seenAddresses = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, Boolean> eldest) {
+            return size() > MAX_SEEN_ADDRESSES;
+        }
+    };
 
     @SuppressWarnings({ "null", "unused" })
     public static synchronized DHCPPacketListenerServer register(String hostAddress,
@@ -43,6 +56,9 @@ public class DHCPListenService {
         DHCPPacketListenerServer instance = DHCPListenService.instance;
         if (instance == null) {
             instance = new DHCPPacketListenerServer((String ipAddress) -> {
+                synchronized (seenAddresses) {
+                    seenAddresses.put(ipAddress, Boolean.TRUE);
+                }
                 IPRequestReceivedCallback listener = registeredListeners.get(ipAddress);
                 if (listener != null) {
                     listener.dhcpRequestReceived(ipAddress);
@@ -59,6 +75,15 @@ public class DHCPListenService {
         return instance;
     }
 
+    /**
+     * Return the addresses requested by DHCP requests received so far, the most recent last.
+     */
+    public static Set<String> getSeenAddresses() {
+        synchronized (seenAddresses) {
+            return new LinkedHashSet<>(seenAddresses.keySet());
+        }
+    }
+
     public static void unregister(String hostAddress) {
         synchronized (registeredListeners) {
             registeredListeners.remove(hostAddress);
@@ -14,14 +14,21 @@ package org.openhab.binding.network.internal.discovery;
 
 import static org.openhab.binding.network.internal.NetworkBindingConstants.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,12 +38,15 @@ import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.config.discovery.AbstractDiscoveryService;
 import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
 import org.eclipse.smarthome.config.discovery.DiscoveryService;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.openhab.binding.network.internal.NetworkBindingConfiguration;
 import org.openhab.binding.network.internal.PresenceDetection;
 import org.openhab.binding.network.internal.PresenceDetectionListener;
 import org.openhab.binding.network.internal.PresenceDetectionValue;
+import org.openhab.binding.network.internal.dhcp.DHCPListenService;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
+import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -49,6 +59,11 @@ import org.slf4j.LoggerFactory;
  * the current Network. It uses every Network Interface which is connected to a network.
  * It tries common TCP ports to connect to, ICMP pings and ARP pings.
  *
+ * The IPs are scanned one after the other at a rate limited by the configured packets per second. Without a rate
+ * limit, a few IPs are scanned at once and the next IP is started whenever one was scanned.
+ * IPs which requested an address by DHCP or are in the ARP table of the operating system are scanned first.
+ * Devices are reported as soon as they answer.
+ *
  * @author Marc Mettke - Initial contribution
  * @author David Graeff - Rewritten
  */
@@ -57,6 +72,10 @@ import org.slf4j.LoggerFactory;
 public class NetworkDiscoveryService extends AbstractDiscoveryService implements PresenceDetectionListener {
     static final int PING_TIMEOUT_IN_MS = 500;
     static final int MAXIMUM_IPS_PER_INTERFACE = 255;
+    // The scan runs its ARP and ICMP pings on its own threads, so that it does not delay those of configured devices
+    private static final int MAX_CONCURRENT_PINGS = 16;
+    // Without a rate limit, this many IPs are scanned at once. Each gets an ICMP ping and usually one ARP ping.
+    private static final int MAX_IPS_IN_FLIGHT = MAX_CONCURRENT_PINGS / 2;
     private static final long DISCOVERY_RESULT_TTL = TimeUnit.MINUTES.toSeconds(10);
     private final Logger logger = LoggerFactory.getLogger(NetworkDiscoveryService.class);
 
@@ -65,10 +84,15 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     // TCP port 1025 (Xbox / MS-RPC)
     private Set<Integer> tcpServicePorts = Collections
             .unmodifiableSet(Stream.of(80, 548, 554, 1025).collect(Collectors.toSet()));
-    private Integer scannedIPcount = 0;
-    private @Nullable ExecutorService executorService = null;
+    private final Queue<String> pendingIPs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scannedIPcount = new AtomicInteger();
+    private int scanIPcount;
+    // True if the scan is not rate limited, but starts the next IP whenever one was scanned
+    private volatile boolean scanOnCompletion;
+    private @Nullable ScheduledFuture<?> scanJob;
     private final NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
     private final NetworkUtils networkUtils = new NetworkUtils();
+    private final ExecutorService pingExecutor = createPingExecutor();
 
     public NetworkDiscoveryService() {
         super(SUPPORTED_THING_TYPES_UIDS, (int) Math.round(
@@ -96,12 +120,19 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     @Override
     @Deactivate
     protected void deactivate() {
-        if (executorService != null) {
-            executorService.shutdown();
-        }
+        stopScan();
+        pingExecutor.shutdownNow();
         super.deactivate();
     }
 
+    private static ExecutorService createPingExecutor() {
+        // The queue is bounded by the number of IPs of a scan
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_PINGS, MAX_CONCURRENT_PINGS, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory("network-discovery"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public void partialDetectionResult(PresenceDetectionValue value) {
         final String ip = value.getHostAddress();
@@ -117,67 +148,140 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
 
     @Override
     public void finalDetectionResult(PresenceDetectionValue value) {
+        ipScanned();
+    }
+
+    private void ipScanned() {
+        int scanned = scannedIPcount.incrementAndGet();
+        if (scanned == scanIPcount) {
+            logger.trace("Scan of {} IPs successful", scanned);
+            stopScan();
+        } else if (scanOnCompletion) {
+            scheduler.execute(this::scanNextIP);
+        }
     }
 
     /**
-     * Starts the DiscoveryThread for each IP on each interface on the network
+     * The scan takes as long as sending all packets at the configured rate, plus the ping timeout. Without a rate
+     * limit, it takes at most one detection time for each group of IPs scanned at once.
      */
     @Override
-    protected void startScan() {
-        if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+    public int getScanTimeout() {
+        int ipCount = networkUtils.getNetworkIPs(MAXIMUM_IPS_PER_INTERFACE).size();
+        double packetsPerSecond = configuration.discoveryPacketsPerSecond.doubleValue();
+        double sendingTime = packetsPerSecond > 0 ? ipCount * getPacketsPerIP() / packetsPerSecond
+                : Math.ceil((double) ipCount / MAX_IPS_IN_FLIGHT) * (2 * PING_TIMEOUT_IN_MS + 100) / 1000.0;
+        return (int) Math.ceil(sendingTime + 2 * PING_TIMEOUT_IN_MS / 1000.0) + 1;
+    }
+
+    /**
+     * Number of packets sent to an IP: one for each TCP port, one ICMP ping and an ARP ping on each interface.
+     */
+    private int getPacketsPerIP() {
+        int packets = tcpServicePorts.size() + 1;
+        if (configuration.arpPingUtilMethod != null
+                && configuration.arpPingUtilMethod != ArpPingUtilEnum.UNKNOWN_TOOL) {
+            packets += Math.max(1, networkUtils.getInterfaceNames().size());
         }
-        final ExecutorService service = executorService;
-        if (service == null) {
-            return;
+        return packets;
+    }
+
+    /**
+     * Order the IPs to scan, IPs known to be in use first.
+     *
+     * @param networkIPs All IPs of the networks
+     * @param knownIPs IPs known to be in use, which might include IPs of other networks
+     * @return The IPs of the networks, known IPs first
+     */
+    static List<String> prioritize(Set<String> networkIPs, Set<String> knownIPs) {
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String ip : knownIPs) {
+            if (networkIPs.contains(ip)) {
+                ordered.add(ip);
+            }
         }
+        ordered.addAll(networkIPs);
+        return new ArrayList<>(ordered);
+    }
+
+    /**
+     * Starts the presence detection for each IP on each interface on the network, at the configured rate or, without
+     * a rate limit, for a few IPs at a time
+     */
+    @Override
+    protected synchronized void startScan() {
+        cancelScanJob();
         removeOlderResults(getTimestampOfLastScan(), null);
         logger.trace("Starting Network Device Discovery");
 
-        final Set<String> networkIPs = networkUtils.getNetworkIPs(MAXIMUM_IPS_PER_INTERFACE);
-        scannedIPcount = 0;
-
-        for (String ip : networkIPs) {
-            final PresenceDetection s = new PresenceDetection(this, 2000);
-            s.setHostname(ip);
-            s.setIOSDevice(true);
-            s.setUseDhcpSniffing(false);
-            s.setTimeout(PING_TIMEOUT_IN_MS);
-            // Ping devices
-            s.setUseIcmpPing(true);
-            s.setUseArpPing(true, configuration.arpPingToolPath, configuration.arpPingUtilMethod);
-            // TCP devices
-            s.setServicePorts(tcpServicePorts);
-
-            service.execute(() -> {
-                Thread.currentThread().setName("Discovery thread " + ip);
-                s.performPresenceDetection(true);
-                synchronized (scannedIPcount) {
-                    scannedIPcount += 1;
-                    if (scannedIPcount == networkIPs.size()) {
-                        logger.trace("Scan of {} IPs successful", scannedIPcount);
-                        stopScan();
-                    }
+        Set<String> knownIPs = new LinkedHashSet<>(DHCPListenService.getSeenAddresses());
+        knownIPs.addAll(networkUtils.getArpTableAddresses());
+        final List<String> networkIPs = prioritize(networkUtils.getNetworkIPs(MAXIMUM_IPS_PER_INTERFACE), knownIPs);
+
+        pendingIPs.clear();
+        pendingIPs.addAll(networkIPs);
+        scannedIPcount.set(0);
+        scanIPcount = networkIPs.size();
+
+        double packetsPerSecond = configuration.discoveryPacketsPerSecond.doubleValue();
+        scanOnCompletion = packetsPerSecond <= 0;
+        if (packetsPerSecond > 0) {
+            long intervalInMicros = Math.max(1, Math.round(getPacketsPerIP() * 1000000 / packetsPerSecond));
+            scanJob = scheduler.scheduleAtFixedRate(this::scanNextIP, 0, intervalInMicros, TimeUnit.MICROSECONDS);
+        } else {
+            // Each scanned IP starts the next one, see ipScanned()
+            scanJob = scheduler.schedule(() -> {
+                for (int i = 0; i < MAX_IPS_IN_FLIGHT && scanNextIP(); ++i) {
                 }
-            });
+            }, 0, TimeUnit.MILLISECONDS);
         }
     }
 
-    @Override
-    protected synchronized void stopScan() {
-        super.stopScan();
-        final ExecutorService service = executorService;
-        if (service == null) {
-            return;
+    /**
+     * Starts the presence detection of the next IP. Results are reported to the
+     * {@link PresenceDetectionListener} methods of this service.
+     *
+     * @return false if there are no more IPs to scan
+     */
+    private boolean scanNextIP() {
+        final String ip = pendingIPs.poll();
+        if (ip == null) {
+            cancelScanJob();
+            return false;
         }
 
-        try {
-            service.awaitTermination(PING_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Reset interrupt flag
+        final PresenceDetection s = new PresenceDetection(this, 2000);
+        s.setHostname(ip);
+        s.setIOSDevice(true);
+        s.setUseDhcpSniffing(false);
+        s.setTimeout(PING_TIMEOUT_IN_MS);
+        // Ping devices
+        s.setUseIcmpPing(true);
+        s.setUseArpPing(true, configuration.arpPingToolPath, configuration.arpPingUtilMethod);
+        // TCP devices
+        s.setServicePorts(tcpServicePorts);
+        s.setExecutor(pingExecutor);
+
+        if (!s.performPresenceDetection(false)) {
+            // Nothing to detect, there will be no final result
+            ipScanned();
         }
-        service.shutdown();
-        executorService = null;
+        return true;
+    }
+
+    private synchronized void cancelScanJob() {
+        ScheduledFuture<?> job = scanJob;
+        if (job != null) {
+            job.cancel(false);
+            scanJob = null;
+        }
+    }
+
+    @Override
+    protected synchronized void stopScan() {
+        super.stopScan();
+        cancelScanJob();
+        pendingIPs.clear();
     }
 
     public static ThingUID createServiceUID(String ip, int tcpPort) {
@@ -186,7 +290,7 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     }
 
     /**
-     * Submit newly discovered devices. This method is called by the spawned threads in {@link startScan}.
+     * Submit newly discovered devices. This method is called by the presence detections started in {@link startScan}.
      *
      * @param ip The device IP
      * @param tcpPort The TCP port
@@ -229,7 +333,7 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     }
 
     /**
-     * Submit newly discovered devices. This method is called by the spawned threads in {@link startScan}.
+     * Submit newly discovered devices. This method is called by the presence detections started in {@link startScan}.
      *
      * @param ip The device IP
      */
@@ -15,6 +15,7 @@ package org.openhab.binding.network.internal.utils;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.ConnectException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
@@ -28,11 +29,16 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
@@ -143,6 +149,35 @@ public class NetworkUtils {
         return networkIPs;
     }
 
+    /**
+     * Get the IPv4 addresses of the neighbours known to the operating system. This is only
+     * supported on Linux, where the ARP table is read from /proc/net/arp.
+     *
+     * @return The addresses with a resolved hardware address or an empty set
+     */
+    public Set<String> getArpTableAddresses() {
+        Path arpTable = Paths.get("/proc/net/arp");
+        if (!Files.isReadable(arpTable)) {
+            return Collections.emptySet();
+        }
+        try (Stream<String> lines = Files.lines(arpTable)) {
+            return parseArpTable(lines);
+        } catch (IOException | UncheckedIOException e) {
+            logger.trace("Failed to read the ARP table", e);
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Parses the lines of /proc/net/arp, the first line is a header.
+     */
+    static Set<String> parseArpTable(Stream<String> lines) {
+        // IP address, HW type, Flags, HW address, Mask, Device; flags 0x0 is an incomplete entry
+        return lines.skip(1).map(line -> line.trim().split("\\s+"))
+                .filter(columns -> columns.length >= 4 && !"0x0".equals(columns[2])).map(columns -> columns[0])
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
     /**
      * Try to establish a tcp connection to the given port. Returns false if a timeout occurred
      * or the connection was denied.
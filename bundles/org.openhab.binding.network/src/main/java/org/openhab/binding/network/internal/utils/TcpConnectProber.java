@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performs TCP connection attempts ("service pings") for all presence detections with non-blocking sockets
+ * on a single thread.
+ *
+ * The thread is started with the first probe and ends as soon as no probe is pending anymore. A probe completes
+ * with true if the connection was established, and with false if it was refused, the host is not reachable or the
+ * timeout expired.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class TcpConnectProber {
+    private static final TcpConnectProber INSTANCE = new TcpConnectProber();
+
+    private final Logger logger = LoggerFactory.getLogger(TcpConnectProber.class);
+
+    private final Queue<Probe> newProbes = new ConcurrentLinkedQueue<>();
+    private @Nullable Selector selector;
+
+    private static class Probe {
+        final InetSocketAddress address;
+        final long deadline;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        @Nullable
+        SocketChannel channel;
+
+        Probe(InetSocketAddress address, long deadline) {
+            this.address = address;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Return the prober shared by all presence detections.
+     */
+    public static TcpConnectProber getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Try to connect to the given address.
+     *
+     * @param address The address and port to connect to.
+     * @param timeoutInMS Time after which the attempt is given up.
+     * @return A future completing with true if a connection could be established and false otherwise. The future
+     *         completes exceptionally on unexpected I/O errors.
+     */
+    public CompletableFuture<Boolean> probe(InetSocketAddress address, int timeoutInMS) {
+        Probe probe = new Probe(address, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMS));
+        newProbes.add(probe);
+        synchronized (this) {
+            Selector selector = this.selector;
+            if (selector != null) {
+                selector.wakeup();
+            } else {
+                try {
+                    selector = Selector.open();
+                } catch (IOException e) {
+                    newProbes.remove(probe);
+                    probe.result.completeExceptionally(e);
+                    return probe.result;
+                }
+                this.selector = selector;
+                Thread thread = new Thread(this::run, "OH-binding-network-tcpprobe");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        return probe.result;
+    }
+
+    private void run() {
+        Selector selector = this.selector;
+        if (selector == null) {
+            return;
+        }
+        List<Probe> pending = new ArrayList<>();
+        try {
+            while (true) {
+                Probe probe;
+                while ((probe = newProbes.poll()) != null) {
+                    connect(selector, probe, pending);
+                }
+                if (pending.isEmpty()) {
+                    synchronized (this) {
+                        if (newProbes.isEmpty()) {
+                            this.selector = null;
+                            break;
+                        }
+                    }
+                    continue;
+                }
+
+                long now = System.nanoTime();
+                long nextDeadline = pending.stream().mapToLong(p -> p.deadline).min().orElse(now);
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDeadline - now)));
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    finishConnect((Probe) key.attachment(), pending);
+                }
+
+                now = System.nanoTime();
+                for (Iterator<Probe> it = pending.iterator(); it.hasNext();) {
+                    Probe p = it.next();
+                    if (p.deadline - now <= 0) {
+                        it.remove();
+                        complete(p, false);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("TCP presence detection failed", e);
+            synchronized (this) {
+                this.selector = null;
+            }
+            pending.forEach(p -> complete(p, false));
+            Probe probe;
+            while ((probe = newProbes.poll()) != null) {
+                probe.result.complete(false);
+            }
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void connect(Selector selector, Probe probe, List<Probe> pending) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            probe.channel = channel;
+            channel.configureBlocking(false);
+            if (channel.connect(probe.address)) {
+                complete(probe, true);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                pending.add(probe);
+            }
+        } catch (ConnectException | NoRouteToHostException e) {
+            complete(probe, false);
+        } catch (IOException | RuntimeException e) {
+            close(probe);
+            probe.result.completeExceptionally(e);
+        }
+    }
+
+    private void finishConnect(Probe probe, List<Probe> pending) {
+        pending.remove(probe);
+        SocketChannel channel = probe.channel;
+        try {
+            complete(probe, channel != null && channel.finishConnect());
+        } catch (ConnectException | NoRouteToHostException e) {
+            complete(probe, false);
+        } catch (IOException e) {
+            close(probe);
+            probe.result.completeExceptionally(e);
+        }
+    }
+
+    private void complete(Probe probe, boolean reachable) {
+        close(probe);
+        probe.result.complete(reachable);
+    }
+
+    private void close(Probe probe) {
+        SocketChannel channel = probe.channel;
+        if (channel != null) {
+            try {
+                // also cancels the selection key
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
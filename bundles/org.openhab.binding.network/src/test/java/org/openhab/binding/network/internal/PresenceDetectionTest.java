@@ -20,7 +20,11 @@ import static org.mockito.Mockito.*;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -35,6 +39,7 @@ import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheHelpe
 import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.TcpConnectProber;
 
 /**
  * Tests cases for {@see PresenceDetectionValue}
@@ -46,12 +51,21 @@ public class PresenceDetectionTest {
     @Mock
     NetworkUtils networkUtils;
 
+    @Mock
+    TcpConnectProber tcpProber;
+
     @Mock
     PresenceDetectionListener listener;
 
     @Mock
     ExecutorService executorService;
 
+    @Mock
+    ScheduledExecutorService scheduler;
+
+    @Mock
+    ScheduledFuture<?> timeoutFuture;
+
     @Mock
     Consumer<PresenceDetectionValue> callback;
 
@@ -68,9 +82,12 @@ public class PresenceDetectionTest {
 
         subject = spy(new PresenceDetection(listener, (int) CACHETIME));
         subject.networkUtils = networkUtils;
+        subject.tcpProber = tcpProber;
         subject.cache = spy(new ExpiringCacheAsync<PresenceDetectionValue>(CACHETIME, () -> {
             subject.performPresenceDetection(false);
         }));
+        doReturn(scheduler).when(subject).getScheduler();
+        doReturn(timeoutFuture).when(scheduler).schedule(any(Runnable.class), anyLong(), any());
 
         // Set a useful configuration. The default presenceDetection is a no-op.
         subject.setHostname("127.0.0.1");
@@ -89,26 +106,113 @@ public class PresenceDetectionTest {
         subject.waitForPresenceDetection();
     }
 
-    // Depending on the amount of test methods an according amount of threads is spawned.
-    // We will check if they spawn and return in time.
+    // ARP and ICMP pings are run by the executor, TCP connection attempts by the prober.
+    // We will check if they are started and the detection finishes after all of them.
     @Test
     public void threadCountTest() {
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
 
         doNothing().when(subject).performARPping(any());
         doNothing().when(subject).performJavaPing();
         doNothing().when(subject).performSystemPing();
-        doNothing().when(subject).performServicePing(anyInt());
+        doReturn(CompletableFuture.completedFuture(null)).when(subject).performServicePing(anyInt());
+        doReturn(executorService).when(subject).getExecutor();
 
         subject.performPresenceDetection(false);
 
-        // Thread count: ARP + ICMP + 1*TCP
+        // Check count: ARP + ICMP + 1*TCP
         assertThat(subject.detectionChecks, is(3));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
+
+        // Only ARP and ICMP need a thread
+        ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
+        verify(executorService, times(2)).execute(capture.capture());
+        verify(subject).performServicePing(1010);
+        for (Runnable r : capture.getAllValues()) {
+            r.run();
+        }
 
-        subject.waitForPresenceDetection();
         assertThat(subject.detectionChecks, is(0));
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
+    }
+
+    @Test
+    public void hangingCheckDoesNotBlockLaterDetections() {
+        doReturn(CompletableFuture.completedFuture(null)).when(subject).performServicePing(anyInt());
+        doReturn(executorService).when(subject).getExecutor();
+
+        assertTrue(subject.performPresenceDetection(false));
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(timeout.capture(), eq(2 * 300L + 100), eq(TimeUnit.MILLISECONDS));
+        ArgumentCaptor<Runnable> hangingChecks = ArgumentCaptor.forClass(Runnable.class);
+        verify(executorService, times(2)).execute(hangingChecks.capture());
+
+        // The ARP and ICMP pings never run, the timeout finishes the detection
+        timeout.getValue().run();
+        assertNull(subject.detection);
+        verify(listener).finalDetectionResult(any());
+
+        // A new detection can be started, and is not finished by the checks of the first one
+        subject.cache.invalidateValue();
+        assertTrue(subject.performPresenceDetection(false));
+        doNothing().when(subject).performARPping(any());
+        doNothing().when(subject).performSystemPing();
+        for (Runnable r : hangingChecks.getAllValues()) {
+            r.run();
+        }
+        assertNotNull(subject.detection);
+        // Nor by the timeout of the first one
+        timeout.getValue().run();
+        assertNotNull(subject.detection);
+        verify(listener).finalDetectionResult(any());
+    }
+
+    @Test
+    public void rejectedCheckKeepsPreviousValue() {
+        doReturn(CompletableFuture.completedFuture(null)).when(subject).performServicePing(anyInt());
+        doReturn(executorService).when(subject).getExecutor();
+        doThrow(new RejectedExecutionException()).when(executorService).execute(any());
+        PresenceDetectionValue previous = new PresenceDetectionValue("127.0.0.1", 10);
+        subject.cache.setValue(previous);
+        subject.cache.invalidateValue();
+
+        // The pings could not be run, the device is not reported as unreachable
+        assertTrue(subject.performPresenceDetection(false));
+        assertNull(subject.detection);
+        verify(listener).finalDetectionResult(previous);
+        assertTrue(previous.isReachable());
+    }
+
+    @Test
+    public void unansweredChecksReportNotReachable() {
+        doReturn(CompletableFuture.completedFuture(null)).when(subject).performServicePing(anyInt());
+        doReturn(executorService).when(subject).getExecutor();
+        doAnswer(invocation -> {
+            invocation.<Runnable> getArgument(0).run();
+            return null;
+        }).when(executorService).execute(any());
+        doNothing().when(subject).performARPping(any());
+        doNothing().when(subject).performSystemPing();
+        subject.cache.setValue(new PresenceDetectionValue("127.0.0.1", 10));
+        subject.cache.invalidateValue();
+
+        assertTrue(subject.performPresenceDetection(false));
+        ArgumentCaptor<PresenceDetectionValue> capture = ArgumentCaptor.forClass(PresenceDetectionValue.class);
+        verify(listener).finalDetectionResult(capture.capture());
+        assertFalse(capture.getValue().isReachable());
+    }
+
+    @Test
+    public void automaticRefreshDetectsRightAway() {
+        subject.setRefreshInterval(60000);
+
+        subject.startAutomaticRefresh(scheduler);
+
+        verify(scheduler).execute(any());
+        ArgumentCaptor<Long> initialDelay = ArgumentCaptor.forClass(Long.class);
+        verify(scheduler).scheduleWithFixedDelay(any(), initialDelay.capture(), eq(60000L),
+                eq(TimeUnit.MILLISECONDS));
+        assertTrue(initialDelay.getValue() >= 30000 && initialDelay.getValue() < 90000);
     }
 
     @Test
@@ -116,7 +220,7 @@ public class PresenceDetectionTest {
         doReturn(true).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
         doReturn(true).when(networkUtils).nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(),
                 any(), anyInt());
-        doReturn(true).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
+        doReturn(CompletableFuture.completedFuture(true)).when(tcpProber).probe(any(), anyInt());
 
         assertTrue(subject.performPresenceDetection(false));
         subject.waitForPresenceDetection();
@@ -138,25 +242,28 @@ public class PresenceDetectionTest {
         doReturn(true).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
         doReturn(true).when(networkUtils).nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(),
                 any(), anyInt());
-        doReturn(true).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
+        // The first TCP connection attempt succeeds when the test completes it, later ones never finish
+        CompletableFuture<Boolean> tcpResult = new CompletableFuture<>();
+        when(tcpProber.probe(any(), anyInt())).thenReturn(tcpResult, new CompletableFuture<>());
 
-        doReturn(executorService).when(subject).getThreadsFor(anyInt());
+        doReturn(executorService).when(subject).getExecutor();
 
         // We expect no valid value
         assertTrue(subject.cache.isExpired());
         // Get value will issue a PresenceDetection internally.
         subject.getValue(callback);
         verify(subject).performPresenceDetection(eq(false));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
         // There should be no straight callback yet
         verify(callback, times(0)).accept(any());
 
-        // Perform the different presence detection threads now
+        // Perform the different presence detection checks now
         ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
-        verify(executorService, times(3)).execute(capture.capture());
+        verify(executorService, times(2)).execute(capture.capture());
         for (Runnable r : capture.getAllValues()) {
             r.run();
         }
+        tcpResult.complete(true);
         // "Wait" for the presence detection to finish
         subject.waitForPresenceDetection();
 
@@ -17,7 +17,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import org.eclipse.smarthome.config.discovery.DiscoveryListener;
 import org.eclipse.smarthome.config.discovery.DiscoveryResult;
@@ -87,4 +90,12 @@ public class DiscoveryTest {
         Assert.assertThat(dresult.getProperties().get(NetworkBindingConstants.PARAMETER_HOSTNAME), is(ip));
         Assert.assertThat(dresult.getProperties().get(NetworkBindingConstants.PARAMETER_PORT), is(1010));
     }
+
+    @Test
+    public void knownIPsAreScannedFirst() {
+        List<String> ips = NetworkDiscoveryService.prioritize(
+                new LinkedHashSet<>(Arrays.asList("192.168.0.1", "192.168.0.2", "192.168.0.3", "192.168.0.4")),
+                new LinkedHashSet<>(Arrays.asList("192.168.0.3", "10.0.0.1", "192.168.0.2")));
+        Assert.assertThat(ips, is(Arrays.asList("192.168.0.3", "192.168.0.2", "192.168.0.1", "192.168.0.4")));
+    }
 }
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@see NetworkUtils}
+ *
+ * @author agent - Initial contribution
+ */
+public class NetworkUtilsTest {
+    @Test
+    public void arpTableParsed() {
+        Stream<String> lines = Stream.of(
+                "IP address       HW type     Flags       HW address            Mask     Device",
+                "192.168.0.1      0x1         0x2         00:11:22:33:44:55     *        eth0",
+                "192.168.0.7      0x1         0x0         00:00:00:00:00:00     *        eth0",
+                "192.168.0.12     0x1         0x6         66:77:88:99:aa:bb     *        wlan0");
+        assertThat(NetworkUtils.parseArpTable(lines),
+                is(new LinkedHashSet<>(Arrays.asList("192.168.0.1", "192.168.0.12"))));
+    }
+}
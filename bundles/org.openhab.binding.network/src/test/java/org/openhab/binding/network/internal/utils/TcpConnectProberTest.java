@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@see TcpConnectProber}
+ *
+ * @author agent - Initial contribution
+ */
+public class TcpConnectProberTest {
+    private final TcpConnectProber prober = new TcpConnectProber();
+
+    @Test
+    public void openPortIsReachable() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            assertTrue(prober.probe(address, 1000).get(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void closedPortIsNotReachable() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+        }
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        assertFalse(prober.probe(address, 1000).get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void manyProbesAtOnce() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 100, InetAddress.getLoopbackAddress())) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(prober.probe(address, 1000));
+            }
+            for (CompletableFuture<Boolean> result : results) {
+                assertTrue(result.get(2, TimeUnit.SECONDS));
+            }
+        }
+    }
+}
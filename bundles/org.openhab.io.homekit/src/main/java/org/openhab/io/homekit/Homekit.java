@@ -13,6 +13,7 @@
 package org.openhab.io.homekit;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * HomeKit integration API
@@ -37,4 +38,12 @@ public interface Homekit {
      * @param allow boolean indicating whether or not to allow unauthenticated requests
      */
     void allowUnauthenticatedRequests(boolean allow);
+
+    /**
+     * Returns the counters of the characteristic update notifications by name: The number of currently queued
+     * notifications and the number of delivered, coalesced and dropped notifications.
+     *
+     * @return the counter values by name
+     */
+    Map<String, Long> getUpdateStatistics();
 }
@@ -30,11 +30,37 @@ import io.github.hapjava.HomekitCharacteristicChangeCallback;
  * Homekit library takes care of insuring only a single subscription exists for
  * each accessory.
  *
+ * The notifications are passed through the {@link HomekitUpdateQueue}, which coalesces and rate limits them. Use
+ * {@link #forAccessory(String)} to obtain the updater for the subscriptions of an accessory.
+ *
  * @author Andy Lintner - Initial contribution
  */
 public class HomekitAccessoryUpdater {
     private Logger logger = LoggerFactory.getLogger(HomekitAccessoryUpdater.class);
-    private final ConcurrentMap<ItemKey, Subscription> subscriptionsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ItemKey, Subscription> subscriptionsByName;
+    private final HomekitUpdateQueue updateQueue;
+    private final String accessoryName;
+
+    HomekitAccessoryUpdater(HomekitUpdateQueue updateQueue) {
+        this(new ConcurrentHashMap<>(), updateQueue, "");
+    }
+
+    private HomekitAccessoryUpdater(ConcurrentMap<ItemKey, Subscription> subscriptionsByName,
+            HomekitUpdateQueue updateQueue, String accessoryName) {
+        this.subscriptionsByName = subscriptionsByName;
+        this.updateQueue = updateQueue;
+        this.accessoryName = accessoryName;
+    }
+
+    /**
+     * Returns an updater sharing the subscriptions with this one, whose notifications are rate limited as
+     * belonging to the given accessory.
+     *
+     * @param accessoryName The name of the root item of the accessory
+     */
+    public HomekitAccessoryUpdater forAccessory(String accessoryName) {
+        return new HomekitAccessoryUpdater(subscriptionsByName, updateQueue, accessoryName);
+    }
 
     public void subscribe(GenericItem item, HomekitCharacteristicChangeCallback callback) {
         subscribe(item, null, callback);
@@ -53,10 +79,11 @@ public class HomekitAccessoryUpdater {
         subscriptionsByName.compute(itemKey, (k, v) -> {
             if (v != null) {
                 logger.debug("Received duplicate subscription for {} / {}", item, key);
-                unsubscribe(item, key);
+                item.removeStateChangeListener(v);
+                v.update.cancel();
             }
             logger.debug("Adding subscription for {} / {}", item, key);
-            Subscription subscription = (changedItem, oldState, newState) -> callback.changed();
+            Subscription subscription = new Subscription(updateQueue.createUpdate(accessoryName, callback));
             item.addStateChangeListener(subscription);
             return subscription;
         });
@@ -73,18 +100,25 @@ public class HomekitAccessoryUpdater {
         subscriptionsByName.computeIfPresent(new ItemKey(item, key), (k, v) -> {
             logger.debug("Removing existing subscription for {} / {}", item, key);
             item.removeStateChangeListener(v);
+            v.update.cancel();
             return null;
         });
     }
 
-    @FunctionalInterface
-    private static interface Subscription extends StateChangeListener {
+    private static class Subscription implements StateChangeListener {
+        private final HomekitUpdateQueue.Update update;
+
+        Subscription(HomekitUpdateQueue.Update update) {
+            this.update = update;
+        }
 
         @Override
-        void stateChanged(Item item, State oldState, State newState);
+        public void stateChanged(Item item, State oldState, State newState) {
+            update.changed();
+        }
 
         @Override
-        default void stateUpdated(Item item, State state) {
+        public void stateUpdated(Item item, State state) {
             // Do nothing on non-change update
         }
     }
@@ -17,6 +17,7 @@ import java.time.Duration;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
@@ -43,7 +44,8 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     private final Logger logger = LoggerFactory.getLogger(HomekitChangeListener.class);
     private final ItemRegistry itemRegistry;
     private final HomekitAccessoryRegistry accessoryRegistry = new HomekitAccessoryRegistry();
-    private HomekitAccessoryUpdater updater = new HomekitAccessoryUpdater();
+    private final HomekitUpdateQueue updateQueue;
+    private final HomekitAccessoryUpdater updater;
     private HomekitSettings settings;
 
     private Set<String> pendingUpdates = new HashSet<String>();
@@ -64,6 +66,8 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     HomekitChangeListener(ItemRegistry itemRegistry, HomekitSettings settings) {
         this.itemRegistry = itemRegistry;
         this.settings = settings;
+        this.updateQueue = new HomekitUpdateQueue(scheduler, settings);
+        this.updater = new HomekitAccessoryUpdater(updateQueue);
         this.applyUpdatesDebouncer = new Debouncer("update-homekit-devices", scheduler, Duration.ofMillis(1000),
                 Clock.systemUTC(), this::applyUpdates);
 
@@ -147,12 +151,13 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
         accessoryRegistry.unsetBridge();
     }
 
-    public void setUpdater(HomekitAccessoryUpdater updater) {
-        this.updater = updater;
-    }
-
     public void updateSettings(HomekitSettings settings) {
         this.settings = settings;
+        updateQueue.updateSettings(settings);
+    }
+
+    public Map<String, Long> getUpdateStatistics() {
+        return updateQueue.getStatistics();
     }
 
     public void stop() {
@@ -168,7 +173,8 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
             }
             logger.debug("Adding homekit device {}", taggedItem.getItem().getUID());
             accessoryRegistry.addRootAccessory(taggedItem.getName(),
-                    HomekitAccessoryFactory.create(taggedItem, itemRegistry, updater, settings));
+                    HomekitAccessoryFactory.create(taggedItem, itemRegistry,
+                            updater.forAccessory(taggedItem.getName()), settings));
             logger.debug("Added homekit device {}", taggedItem.getItem().getUID());
         } catch (HomekitException | IncompleteAccessoryException e) {
             logger.warn("Could not add device {}: {}", taggedItem.getItem().getUID(), e.getMessage());
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
     private static final String SUBCMD_CLEAR_PAIRINGS = "clearPairings";
     private static final String SUBCMD_ALLOW_UNAUTHENTICATED = "allowUnauthenticated";
+    private static final String SUBCMD_UPDATE_STATISTICS = "updateStatistics";
 
     private final Logger logger = LoggerFactory.getLogger(HomekitCommandExtension.class);
     private StorageService storageService;
@@ -61,6 +62,10 @@ public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
                     }
                     break;
 
+                case SUBCMD_UPDATE_STATISTICS:
+                    printUpdateStatistics(console);
+                    break;
+
                 default:
                     console.println("Unknown command '" + subCommand + "'");
                     printUsage(console);
@@ -74,7 +79,9 @@ public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
         return Arrays.asList(
                 new String[] { buildCommandUsage(SUBCMD_CLEAR_PAIRINGS, "removes all pairings with Homekit clients"),
                         buildCommandUsage(SUBCMD_ALLOW_UNAUTHENTICATED + " <boolean>",
-                                "enables or disables unauthenticated access to facilitate debugging") });
+                                "enables or disables unauthenticated access to facilitate debugging"),
+                        buildCommandUsage(SUBCMD_UPDATE_STATISTICS,
+                                "shows the number of queued, delivered, coalesced and dropped change notifications") });
     }
 
     @Reference
@@ -110,4 +117,8 @@ public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
         console.println((allow ? "Enabled " : "Disabled ") + "unauthenticated homekit access");
     }
 
+    private void printUpdateStatistics(Console console) {
+        homekit.getUpdateStatistics().forEach((name, value) -> console.println(name + ": " + value));
+    }
+
 }
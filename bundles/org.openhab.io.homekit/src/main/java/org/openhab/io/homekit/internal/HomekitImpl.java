@@ -166,4 +166,9 @@ public class HomekitImpl implements Homekit {
             bridge.allowUnauthenticatedRequests(allow);
         }
     }
+
+    @Override
+    public Map<String, Long> getUpdateStatistics() {
+        return changeListener.getUpdateStatistics();
+    }
 }
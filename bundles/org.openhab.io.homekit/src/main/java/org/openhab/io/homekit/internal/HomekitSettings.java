@@ -35,6 +35,8 @@ public class HomekitSettings {
     public String thermostatCurrentModeCooling = "Cooling";
     public String thermostatCurrentModeOff = "Off";
     public String networkInterface;
+    public int updateCoalescingWindow = 100;
+    public int maxUpdatesPerAccessory = 10;
 
     @Deprecated
     public String thermostatHeatMode;
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.hapjava.HomekitCharacteristicChangeCallback;
+
+/**
+ * Delivers characteristic changes to the HomeKit clients.
+ *
+ * A client reads the current value of a characteristic when notified, so all changes of one characteristic within the
+ * coalescing window are merged into one notification. The notifications of one accessory are additionally spread out,
+ * so that the configured rate per accessory is not exceeded. At most one notification per characteristic is queued.
+ * The time slot of a cancelled notification is free for the next notification of the accessory. An accessory is
+ * forgotten once none of its slots limits further notifications.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+class HomekitUpdateQueue {
+    private final Logger logger = LoggerFactory.getLogger(HomekitUpdateQueue.class);
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile long windowNanos;
+    // minimum time between two notifications of an accessory, 0 if not limited
+    private volatile long intervalNanos;
+
+    private static class RateLimit {
+        // notification times reserved in the last interval and in the future, in System.nanoTime()
+        final TreeSet<Long> slots = new TreeSet<>();
+    }
+
+    /**
+     * The pending notification of one subscribed characteristic.
+     */
+    class Update {
+        private final String accessory;
+        private final HomekitCharacteristicChangeCallback callback;
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+        private volatile @Nullable ScheduledFuture<?> future;
+        private volatile long slot;
+        private volatile boolean cancelled;
+
+        private Update(String accessory, HomekitCharacteristicChangeCallback callback) {
+            this.accessory = accessory;
+            this.callback = callback;
+        }
+
+        /**
+         * Register a change of the characteristic. The clients are notified after the coalescing window, or later if
+         * the accessory exceeds its rate.
+         */
+        void changed() {
+            if (cancelled) {
+                return;
+            }
+            if (!pending.compareAndSet(false, true)) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            queued.incrementAndGet();
+            long now = nanoTime();
+            slot = reserveSlot(accessory, now);
+            long delay = slot - now;
+            if (delay <= 0) {
+                deliver();
+            } else {
+                future = scheduler.schedule(this::deliver, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Drop a pending notification and ignore further changes.
+         */
+        void cancel() {
+            cancelled = true;
+            if (pending.compareAndSet(true, false)) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                releaseSlot(accessory, slot);
+                queued.decrementAndGet();
+                dropped.incrementAndGet();
+            } else {
+                releaseSlot(accessory, null);
+            }
+        }
+
+        private void deliver() {
+            // Changes from now on need another notification
+            if (!pending.compareAndSet(true, false)) {
+                return;
+            }
+            queued.decrementAndGet();
+            delivered.incrementAndGet();
+            try {
+                callback.changed();
+            } catch (RuntimeException e) {
+                logger.warn("Notifying HomeKit clients about a change of {} failed", accessory, e);
+            }
+        }
+    }
+
+    HomekitUpdateQueue(ScheduledExecutorService scheduler, HomekitSettings settings) {
+        this.scheduler = scheduler;
+        updateSettings(settings);
+    }
+
+    void updateSettings(HomekitSettings settings) {
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, settings.updateCoalescingWindow));
+        intervalNanos = settings.maxUpdatesPerAccessory > 0
+                ? TimeUnit.SECONDS.toNanos(1) / settings.maxUpdatesPerAccessory
+                : 0;
+    }
+
+    /**
+     * Create the notification queue entry for one characteristic subscription.
+     *
+     * @param accessory The name of the accessory the characteristic belongs to, the unit of rate limiting
+     * @param callback The callback notifying the HomeKit clients
+     */
+    Update createUpdate(String accessory, HomekitCharacteristicChangeCallback callback) {
+        return new Update(accessory, callback);
+    }
+
+    /**
+     * Returns the number of currently queued notifications and the number of delivered, coalesced and dropped
+     * notifications since the start.
+     */
+    Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("queued", (long) queued.get());
+        statistics.put("delivered", delivered.get());
+        statistics.put("coalesced", coalesced.get());
+        statistics.put("dropped", dropped.get());
+        return statistics;
+    }
+
+    /**
+     * Reserve the earliest free notification slot of the accessory after the coalescing window. A slot is free if
+     * no other notification of the accessory is reserved less than the rate limiting interval before or after it.
+     *
+     * @return The time of the notification in nanoseconds, in terms of {@link #nanoTime()}
+     */
+    private long reserveSlot(String accessory, long now) {
+        long slot = now + windowNanos;
+        long interval = intervalNanos;
+        if (interval == 0) {
+            return slot;
+        }
+        while (true) {
+            RateLimit rateLimit = rateLimits.computeIfAbsent(accessory, k -> new RateLimit());
+            synchronized (rateLimit) {
+                if (rateLimits.get(accessory) != rateLimit) {
+                    // released concurrently after its last slot was removed, reserve in the current entry
+                    continue;
+                }
+                // slots that passed more than an interval ago don't limit anything anymore
+                rateLimit.slots.headSet(now - interval).clear();
+                for (long reserved : rateLimit.slots.tailSet(slot - interval, false)) {
+                    if (reserved - slot >= interval) {
+                        break;
+                    }
+                    slot = reserved + interval;
+                }
+                rateLimit.slots.add(slot);
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Release the slot of a cancelled notification and the slots that passed more than an interval ago. The
+     * accessory is forgotten when no slots are left.
+     *
+     * @param slot The slot to release, or null to only release the passed slots
+     */
+    private void releaseSlot(String accessory, @Nullable Long slot) {
+        RateLimit rateLimit = rateLimits.get(accessory);
+        if (rateLimit != null) {
+            synchronized (rateLimit) {
+                if (slot != null) {
+                    rateLimit.slots.remove(slot);
+                }
+                rateLimit.slots.headSet(nanoTime() - intervalNanos).clear();
+                if (rateLimit.slots.isEmpty()) {
+                    rateLimits.remove(accessory, rateLimit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of accessories with reserved notification slots.
+     */
+    int getRateLimitedAccessories() {
+        return rateLimits.size();
+    }
+
+    /**
+     * Returns the current time in nanoseconds, like {@link System#nanoTime()}. Can be overridden by tests.
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+}
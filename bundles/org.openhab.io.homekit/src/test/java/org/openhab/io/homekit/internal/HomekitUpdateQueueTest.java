@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import io.github.hapjava.HomekitCharacteristicChangeCallback;
+
+/**
+ * Tests the coalescing and rate limiting of the {@link HomekitUpdateQueue}, with a mocked scheduler and clock.
+ *
+ * @author agent - Initial contribution
+ */
+public class HomekitUpdateQueueTest {
+    private static final long WINDOW_MILLIS = 100;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    @Mock
+    private ScheduledFuture<?> future;
+
+    @Mock
+    private HomekitCharacteristicChangeCallback callback;
+
+    private final HomekitSettings settings = new HomekitSettings();
+    private long now = 1_000_000_000L;
+    private HomekitUpdateQueue queue;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doReturn(future).when(scheduler).schedule(any(Runnable.class), anyLong(), any());
+
+        settings.updateCoalescingWindow = (int) WINDOW_MILLIS;
+        settings.maxUpdatesPerAccessory = 10;
+        queue = new HomekitUpdateQueue(scheduler, settings) {
+            @Override
+            long nanoTime() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void changesWithinWindowAreCoalesced() {
+        HomekitUpdateQueue.Update update = queue.createUpdate("lamp", callback);
+
+        update.changed();
+        update.changed();
+        update.changed();
+
+        ArgumentCaptor<Runnable> delivery = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(delivery.capture(), eq(millis(WINDOW_MILLIS)), eq(TimeUnit.NANOSECONDS));
+        assertEquals(Long.valueOf(2), queue.getStatistics().get("coalesced"));
+        assertEquals(Long.valueOf(1), queue.getStatistics().get("queued"));
+
+        delivery.getValue().run();
+        verify(callback).changed();
+        assertEquals(Long.valueOf(0), queue.getStatistics().get("queued"));
+        assertEquals(Long.valueOf(1), queue.getStatistics().get("delivered"));
+
+        // A change after the delivery needs a new notification
+        update.changed();
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    @Test
+    public void changeIsDeliveredRightAwayWithoutWindowAndLimit() {
+        settings.updateCoalescingWindow = 0;
+        settings.maxUpdatesPerAccessory = 0;
+        queue.updateSettings(settings);
+
+        queue.createUpdate("lamp", callback).changed();
+
+        verify(callback).changed();
+        verifyNoMoreInteractions(scheduler);
+    }
+
+    @Test
+    public void notificationsOfAnAccessoryAreSpreadOut() {
+        queue.createUpdate("lamp", callback).changed();
+        queue.createUpdate("lamp", callback).changed();
+        queue.createUpdate("lamp", callback).changed();
+        queue.createUpdate("heater", callback).changed();
+
+        // 10 updates per second, i.e. at most one per 100 ms for each accessory
+        assertEquals(Arrays.asList(millis(100), millis(200), millis(300), millis(100)), scheduledDelays(4));
+    }
+
+    @Test
+    public void passedSlotsDoNotDelayLaterNotifications() {
+        queue.createUpdate("lamp", callback).changed();
+        queue.createUpdate("lamp", callback).changed();
+
+        now += millis(1000);
+        queue.createUpdate("lamp", callback).changed();
+
+        assertEquals(Arrays.asList(millis(100), millis(200), millis(100)), scheduledDelays(3));
+    }
+
+    @Test
+    public void nextSlotKeepsIntervalToRecentNotification() {
+        queue.createUpdate("lamp", callback).changed();
+
+        // The first notification is due at 100 ms, a change at 50 ms would be due at 150 ms
+        now += millis(50);
+        queue.createUpdate("lamp", callback).changed();
+
+        assertEquals(Arrays.asList(millis(100), millis(150)), scheduledDelays(2));
+    }
+
+    @Test
+    public void cancelDropsPendingNotification() {
+        HomekitUpdateQueue.Update update = queue.createUpdate("lamp", callback);
+        update.changed();
+        ArgumentCaptor<Runnable> delivery = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(delivery.capture(), anyLong(), any());
+
+        update.cancel();
+        verify(future).cancel(false);
+        assertEquals(Long.valueOf(1), queue.getStatistics().get("dropped"));
+        assertEquals(Long.valueOf(0), queue.getStatistics().get("queued"));
+
+        // Neither the already scheduled delivery nor later changes notify anymore
+        delivery.getValue().run();
+        update.changed();
+        verify(callback, never()).changed();
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    @Test
+    public void cancelReleasesSlot() {
+        queue.createUpdate("lamp", callback).changed();
+        HomekitUpdateQueue.Update cancelled = queue.createUpdate("lamp", callback);
+        cancelled.changed();
+        queue.createUpdate("lamp", callback).changed();
+
+        cancelled.cancel();
+        queue.createUpdate("lamp", callback).changed();
+
+        // The next notification takes the slot of the cancelled one
+        assertEquals(Arrays.asList(millis(100), millis(200), millis(300), millis(200)), scheduledDelays(4));
+    }
+
+    @Test
+    public void accessoryWithoutSlotsIsForgotten() {
+        HomekitUpdateQueue.Update pending = queue.createUpdate("lamp", callback);
+        pending.changed();
+        assertEquals(1, queue.getRateLimitedAccessories());
+
+        // Releasing the only slot forgets the accessory
+        pending.cancel();
+        assertEquals(0, queue.getRateLimitedAccessories());
+
+        // A delivered slot limits the next notifications for an interval
+        HomekitUpdateQueue.Update delivered = queue.createUpdate("heater", callback);
+        delivered.changed();
+        ArgumentCaptor<Runnable> delivery = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(2)).schedule(delivery.capture(), anyLong(), any());
+        now += millis(WINDOW_MILLIS);
+        delivery.getValue().run();
+        delivered.cancel();
+        assertEquals(1, queue.getRateLimitedAccessories());
+
+        // Later the passed slot is released as well
+        HomekitUpdateQueue.Update late = queue.createUpdate("heater", callback);
+        now += millis(200);
+        late.cancel();
+        assertEquals(0, queue.getRateLimitedAccessories());
+    }
+
+    private List<Long> scheduledDelays(int count) {
+        ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+        verify(scheduler, times(count)).schedule(any(Runnable.class), delays.capture(), eq(TimeUnit.NANOSECONDS));
+        return delays.getAllValues();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
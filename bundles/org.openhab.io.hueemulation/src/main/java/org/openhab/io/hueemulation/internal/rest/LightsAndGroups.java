@@ -13,8 +13,13 @@
 package org.openhab.io.hueemulation.internal.rest;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -26,8 +31,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -41,10 +49,12 @@ import org.eclipse.smarthome.core.items.ItemRegistry;
 import org.eclipse.smarthome.core.items.events.ItemEventFactory;
 import org.eclipse.smarthome.core.library.CoreItemFactory;
 import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.State;
 import org.openhab.io.hueemulation.internal.ConfigStore;
 import org.openhab.io.hueemulation.internal.DeviceType;
 import org.openhab.io.hueemulation.internal.NetworkUtils;
 import org.openhab.io.hueemulation.internal.StateUtils;
+import org.openhab.io.hueemulation.internal.dto.AbstractHueState;
 import org.openhab.io.hueemulation.internal.dto.HueGroupEntry;
 import org.openhab.io.hueemulation.internal.dto.HueLightEntry;
 import org.openhab.io.hueemulation.internal.dto.HueNewLights;
@@ -60,6 +70,7 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.JsonPrimitive;
 import com.google.gson.reflect.TypeToken;
 
 import io.swagger.annotations.ApiOperation;
@@ -88,6 +99,10 @@ import io.swagger.annotations.ApiResponses;
  * </p>
  *
  * <p>
+ * Hue clients, Amazon Echos in particular, are polling the lights list very often. The JSON of each light and group
+ * is therefore kept and only serialized again, if the state or label of the backing item or the registry entry
+ * changed. List responses are assembled from those fragments and carry an ETag, so that clients sending
+ * If-None-Match get a "304 Not Modified" if nothing changed.
  * </p>
  *
  * @author David Graeff - Initial contribution
@@ -113,12 +128,92 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
     @Reference(policy = ReferencePolicy.DYNAMIC, cardinality = ReferenceCardinality.OPTIONAL)
     protected volatile @Nullable EventPublisher eventPublisher;
 
+    // ETags must not match the ones handed out before a restart
+    private final String etagPrefix = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong fragmentSequence = new AtomicLong();
+    private final Map<String, LightJson> lightFragments = new ConcurrentHashMap<>();
+    private final Map<String, GroupJson> groupFragments = new ConcurrentHashMap<>();
+
+    /**
+     * A serialized JSON object member <code>"id":{...}</code> and a sequence number unique for this content.
+     */
+    private abstract static class JsonFragment {
+        final String member;
+        final int valueStart;
+        final long sequence;
+
+        JsonFragment(String id, String json, long sequence) {
+            String key = new JsonPrimitive(id).toString();
+            this.member = key + ":" + json;
+            this.valueStart = key.length() + 1;
+            this.sequence = sequence;
+        }
+
+        String json() {
+            return member.substring(valueStart);
+        }
+    }
+
+    /**
+     * The light JSON only depends on the light entry and the item state and label,
+     * see {@link HueLightEntry.Serializer}.
+     */
+    private static class LightJson extends JsonFragment {
+        final HueLightEntry entry;
+        final GenericItem item;
+        final State state;
+        final @Nullable String label;
+
+        LightJson(String id, String json, long sequence, HueLightEntry entry, GenericItem item, State state,
+                @Nullable String label) {
+            super(id, json, sequence);
+            this.entry = entry;
+            this.item = item;
+            this.state = state;
+            this.label = label;
+        }
+
+        boolean isValidFor(HueLightEntry entry) {
+            return this.entry == entry && item == entry.item && state.equals(entry.item.getState())
+                    && Objects.equals(label, entry.item.getLabel());
+        }
+    }
+
+    /**
+     * The group JSON depends on the group entry, its action and the group members,
+     * see {@link HueGroupEntry.Serializer}.
+     */
+    private static class GroupJson extends JsonFragment {
+        final HueGroupEntry entry;
+        final @Nullable GroupItem item;
+        final Set<Item> members;
+        final AbstractHueState action;
+        final List<String> lights;
+
+        GroupJson(String id, String json, long sequence, HueGroupEntry entry, Set<Item> members) {
+            super(id, json, sequence);
+            this.entry = entry;
+            this.item = entry.groupItem;
+            this.members = members;
+            this.action = entry.action;
+            this.lights = entry.lights;
+        }
+
+        boolean isValidFor(HueGroupEntry entry) {
+            GroupItem groupItem = entry.groupItem;
+            return this.entry == entry && item == groupItem && action == entry.action && lights == entry.lights
+                    && (groupItem == null || members.equals(groupItem.getMembers()));
+        }
+    }
+
     /**
      * Registers to the {@link ItemRegistry} and enumerates currently existing items.
      */
     @Activate
     protected void activate() {
         cs.ds.resetGroupsAndLights();
+        lightFragments.clear();
+        groupFragments.clear();
 
         itemRegistry.removeRegistryChangeListener(this);
         itemRegistry.addRegistryChangeListener(this);
@@ -196,6 +291,8 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
         logger.debug("Remove item {}", hueID);
         cs.ds.lights.remove(hueID);
         cs.ds.groups.remove(hueID);
+        lightFragments.remove(hueID);
+        groupFragments.remove(hueID);
         updateGroup0();
     }
 
@@ -219,6 +316,7 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
                 hueGroup.updateItem((GroupItem) element);
             } else {
                 cs.ds.groups.remove(hueID);
+                groupFragments.remove(hueID);
             }
         }
 
@@ -239,16 +337,82 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
         hueDevice.updateItem(element);
     }
 
+    private LightJson lightFragment(String id, HueLightEntry entry) {
+        LightJson fragment = lightFragments.get(id);
+        if (fragment == null || !fragment.isValidFor(entry)) {
+            // Read the dependencies before serializing. A concurrent change will be noticed by the next request.
+            GenericItem item = entry.item;
+            State state = item.getState();
+            String label = item.getLabel();
+            fragment = new LightJson(id, cs.gson.toJson(entry), fragmentSequence.incrementAndGet(), entry, item,
+                    state, label);
+            lightFragments.put(id, fragment);
+        }
+        return fragment;
+    }
+
+    private GroupJson groupFragment(String id, HueGroupEntry entry) {
+        GroupJson fragment = groupFragments.get(id);
+        if (fragment == null || !fragment.isValidFor(entry)) {
+            GroupItem groupItem = entry.groupItem;
+            Set<Item> members = groupItem != null ? groupItem.getMembers() : Collections.emptySet();
+            // The serializer updates the lights list of the entry, so the fragment has to be created afterwards
+            String json = cs.gson.toJson(entry);
+            fragment = new GroupJson(id, json, fragmentSequence.incrementAndGet(), entry, members);
+            groupFragments.put(id, fragment);
+        }
+        return fragment;
+    }
+
+    /**
+     * Assembles a JSON object out of the given fragments. The ETag is made of the highest sequence number and the
+     * amount of fragments: Every changed or added fragment gets a new highest sequence number, removed fragments lower
+     * the amount.
+     */
+    private Response fragmentsResponse(Request request, List<? extends JsonFragment> fragments) {
+        long sequence = fragments.stream().mapToLong(f -> f.sequence).max().orElse(0);
+        EntityTag etag = new EntityTag(etagPrefix + "-" + Long.toHexString(sequence) + "-" + fragments.size());
+        ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        StringBuilder json = new StringBuilder(fragments.stream().mapToInt(f -> f.member.length() + 1).sum() + 2);
+        json.append('{');
+        for (JsonFragment fragment : fragments) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(fragment.member);
+        }
+        json.append('}');
+        return Response.ok(json.toString()).tag(etag).build();
+    }
+
+    private Response fragmentResponse(Request request, @Nullable JsonFragment fragment) {
+        if (fragment == null) {
+            return Response.ok(cs.gson.toJson(null)).build();
+        }
+        EntityTag etag = new EntityTag(etagPrefix + "-" + Long.toHexString(fragment.sequence));
+        ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(fragment.json()).tag(etag).build();
+    }
+
     @GET
     @Path("{username}/lights")
     @ApiOperation(value = "Return all lights")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getAllLightsApi(@Context UriInfo uri,
+    public Response getAllLightsApi(@Context UriInfo uri, @Context Request request,
             @PathParam("username") @ApiParam(value = "username") String username) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds.lights)).build();
+        List<LightJson> fragments = new ArrayList<>(cs.ds.lights.size());
+        cs.ds.lights.forEach((id, entry) -> fragments.add(lightFragment(id, entry)));
+        return fragmentsResponse(request, fragments);
     }
 
     @GET
@@ -279,13 +443,14 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
     @Path("{username}/lights/{id}")
     @ApiOperation(value = "Return a light")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getLightApi(@Context UriInfo uri, //
+    public Response getLightApi(@Context UriInfo uri, @Context Request request, //
             @PathParam("username") @ApiParam(value = "username") String username,
             @PathParam("id") @ApiParam(value = "light id") String id) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds.lights.get(id))).build();
+        HueLightEntry entry = cs.ds.lights.get(id);
+        return fragmentResponse(request, entry != null ? lightFragment(id, entry) : null);
     }
 
     @SuppressWarnings({ "null", "unused" })
@@ -415,6 +580,8 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
         List<HueResponse> responses = new ArrayList<>();
         Command command = StateUtils.computeCommandByState(responses, "/groups/" + id + "/state/", hueDevice.action,
                 state);
+        // The action has been altered in place
+        groupFragments.remove(id);
 
         // If a command could be created, post it to the framework now
         if (command != null) {
@@ -436,25 +603,28 @@ public class LightsAndGroups implements RegistryChangeListener<Item> {
     @Path("{username}/groups")
     @ApiOperation(value = "Return all groups")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getAllGroupsApi(@Context UriInfo uri,
+    public Response getAllGroupsApi(@Context UriInfo uri, @Context Request request,
             @PathParam("username") @ApiParam(value = "username") String username) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds.groups)).build();
+        List<GroupJson> fragments = new ArrayList<>(cs.ds.groups.size());
+        cs.ds.groups.forEach((id, entry) -> fragments.add(groupFragment(id, entry)));
+        return fragmentsResponse(request, fragments);
     }
 
     @GET
     @Path("{username}/groups/{id}")
     @ApiOperation(value = "Return a group")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getGroupApi(@Context UriInfo uri, //
+    public Response getGroupApi(@Context UriInfo uri, @Context Request request, //
             @PathParam("username") @ApiParam(value = "username") String username,
             @PathParam("id") @ApiParam(value = "group id") String id) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds.groups.get(id))).build();
+        HueGroupEntry entry = cs.ds.groups.get(id);
+        return fragmentResponse(request, entry != null ? groupFragment(id, entry) : null);
     }
 
     @SuppressWarnings({ "null", "unused" })
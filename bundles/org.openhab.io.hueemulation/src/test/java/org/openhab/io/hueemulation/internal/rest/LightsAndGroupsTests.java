@@ -20,6 +20,8 @@ import static org.mockito.Mockito.verify;
 import java.io.IOException;
 
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -339,6 +341,49 @@ public class LightsAndGroupsTests {
         assertThat(body, containsString("color"));
     }
 
+    @Test
+    public void allLightsNotModified() {
+        Response response = commonSetup.client.target(commonSetup.basePath + "/testuser/lights").request().get();
+        assertEquals(200, response.getStatus());
+        EntityTag etag = response.getEntityTag();
+        assertThat(etag, notNullValue());
+        String body = response.readEntity(String.class);
+
+        // Nothing changed: Served from the cached fragments
+        response = commonSetup.client.target(commonSetup.basePath + "/testuser/lights").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(304, response.getStatus());
+
+        // An item state change alters the light and the ETag
+        cs.ds.lights.get("1").item.setState(OnOffType.ON);
+        response = commonSetup.client.target(commonSetup.basePath + "/testuser/lights").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(200, response.getStatus());
+        assertThat(response.getEntityTag(), not(etag));
+        String newBody = response.readEntity(String.class);
+        assertThat(newBody, not(body));
+        assertThat(newBody, is(cs.gson.toJson(cs.ds.lights)));
+    }
+
+    @Test
+    public void allGroupsNotModified() {
+        Response response = commonSetup.client.target(commonSetup.basePath + "/testuser/groups").request().get();
+        assertEquals(200, response.getStatus());
+        EntityTag etag = response.getEntityTag();
+        assertThat(response.readEntity(String.class), is(cs.gson.toJson(cs.ds.groups)));
+
+        response = commonSetup.client.target(commonSetup.basePath + "/testuser/groups").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(304, response.getStatus());
+
+        // A new group member alters the group
+        cs.ds.groups.get("10").groupItem.addMember(new SwitchItem("switch2"));
+        response = commonSetup.client.target(commonSetup.basePath + "/testuser/groups").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(200, response.getStatus());
+        assertThat(response.readEntity(String.class), is(cs.gson.toJson(cs.ds.groups)));
+    }
+
     private boolean assertHueValue(ItemCommandEvent ce, int hueValue) {
         assertThat(((HSBType) ce.getItemCommand()).getHue().intValue(), is(hueValue * 360 / HueStateColorBulb.MAX_HUE));
         return true;
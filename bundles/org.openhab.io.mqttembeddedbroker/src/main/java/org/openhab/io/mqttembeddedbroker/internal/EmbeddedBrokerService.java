@@ -23,6 +23,8 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
@@ -55,14 +57,6 @@ import io.moquette.broker.Server;
 import io.moquette.broker.config.MemoryConfig;
 import io.moquette.broker.security.IAuthenticator;
 import io.moquette.broker.security.IAuthorizatorPolicy;
-import io.moquette.interception.InterceptHandler;
-import io.moquette.interception.messages.InterceptAcknowledgedMessage;
-import io.moquette.interception.messages.InterceptConnectMessage;
-import io.moquette.interception.messages.InterceptConnectionLostMessage;
-import io.moquette.interception.messages.InterceptDisconnectMessage;
-import io.moquette.interception.messages.InterceptPublishMessage;
-import io.moquette.interception.messages.InterceptSubscribeMessage;
-import io.moquette.interception.messages.InterceptUnsubscribeMessage;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 
@@ -85,61 +79,13 @@ public class EmbeddedBrokerService
         implements ConfigurableService, MqttConnectionObserver, MqttServiceObserver, MqttEmbeddedBrokerStartedListener {
     private final MqttService service;
     private String persistenceFilename = "";
+    private int persistenceFlushInterval = 30;
     // private NetworkServerTls networkServerTls; //TODO wait for NetworkServerTls implementation
 
-    @NonNullByDefault({})
-    class BrokerMetricsListenerEx implements InterceptHandler {
-
-        @Override
-        public String getID() {
-            return "logger";
-        }
-
-        @Override
-        public Class<?>[] getInterceptedMessageTypes() {
-            return new Class<?>[] { InterceptConnectMessage.class, InterceptDisconnectMessage.class };
-        }
-
-        @Override
-        public void onConnect(InterceptConnectMessage arg0) {
-            logger.debug("MQTT Client connected: {}", arg0.getClientID());
-        }
-
-        @Override
-        public void onConnectionLost(InterceptConnectionLostMessage arg0) {
-
-        }
-
-        @Override
-        public void onDisconnect(InterceptDisconnectMessage arg0) {
-            logger.debug("MQTT Client disconnected: {}", arg0.getClientID());
-        }
-
-        @Override
-        public void onMessageAcknowledged(InterceptAcknowledgedMessage arg0) {
-
-        }
-
-        @Override
-        public void onPublish(InterceptPublishMessage arg0) {
-
-        }
-
-        @Override
-        public void onSubscribe(InterceptSubscribeMessage arg0) {
-
-        }
-
-        @Override
-        public void onUnsubscribe(InterceptUnsubscribeMessage arg0) {
-
-        }
-    }
-
     protected @Nullable Server server;
     private final Logger logger = LoggerFactory.getLogger(EmbeddedBrokerService.class);
     protected MqttEmbeddedBrokerDetectStart detectStart = new MqttEmbeddedBrokerDetectStart(this);
-    protected BrokerMetricsListenerEx metrics = new BrokerMetricsListenerEx();
+    protected MqttEmbeddedBrokerMetrics metrics = new MqttEmbeddedBrokerMetrics();
 
     private @Nullable MqttBrokerConnection connection;
 
@@ -181,7 +127,9 @@ public class EmbeddedBrokerService
                 this.persistenceFilename = path.resolve(persistenceFilename).toString();
             }
 
-            logger.info("Broker persistence file: {}", persistenceFilename);
+            persistenceFlushInterval = Math.max(1, config.persistenceFlushInterval);
+            logger.info("Broker persistence file: {}, flushed every {} seconds", persistenceFilename,
+                    persistenceFlushInterval);
         } else {
             logger.info("Using in-memory persistence. No persistence file has been set!");
         }
@@ -293,7 +241,8 @@ public class EmbeddedBrokerService
 
         if (!persistenceFilename.isEmpty()) { // Persistence: If not set, an in-memory database is used.
             properties.put(BrokerConstants.PERSISTENT_STORE_PROPERTY_NAME, persistenceFilename);
-            properties.put(BrokerConstants.AUTOSAVE_INTERVAL_PROPERTY_NAME, "30"); // in seconds
+            properties.put(BrokerConstants.AUTOSAVE_INTERVAL_PROPERTY_NAME,
+                    Integer.toString(persistenceFlushInterval)); // in seconds
         }
 
         // We may provide ACL functionality at some point as well
@@ -314,6 +263,7 @@ public class EmbeddedBrokerService
             }
         }
         this.server = server;
+        metrics = new MqttEmbeddedBrokerMetrics();
         server.addInterceptHandler(metrics);
         ScheduledExecutorService s = new ScheduledThreadPoolExecutor(1);
         detectStart.startBrokerStartedDetection(port, s);
@@ -329,6 +279,22 @@ public class EmbeddedBrokerService
         }
     }
 
+    /**
+     * Returns the message throughput statistics of the running broker, or an empty map if it is not running.
+     *
+     * @param topTopics The number of topics with the most deliveries to include
+     */
+    public Map<String, Object> getStatistics(int topTopics) {
+        Server server = this.server;
+        if (server == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("connectedClients", server.listConnectedClients().size());
+        statistics.putAll(metrics.getStatistics(topTopics));
+        return statistics;
+    }
+
     /**
      * For testing: Returns true if the embedded server confirms that the MqttBrokerConnection is connected.
      */
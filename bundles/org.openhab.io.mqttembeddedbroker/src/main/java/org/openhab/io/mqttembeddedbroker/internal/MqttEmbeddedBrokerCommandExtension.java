@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.mqttembeddedbroker.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands reporting the message throughput of the embedded broker
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+public class MqttEmbeddedBrokerCommandExtension extends AbstractConsoleCommandExtension {
+    private static final String SUBCMD_STATS = "stats";
+    private static final int TOP_TOPICS = 10;
+
+    private EmbeddedBrokerService brokerService;
+
+    public MqttEmbeddedBrokerCommandExtension() {
+        super("mqttbroker", "Show statistics of the embedded MQTT broker.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        if (args.length > 0) {
+            String subCommand = args[0];
+            switch (subCommand) {
+                case SUBCMD_STATS:
+                    printStatistics(console);
+                    break;
+
+                default:
+                    console.println("Unknown command '" + subCommand + "'");
+                    printUsage(console);
+                    break;
+            }
+        } else {
+            printUsage(console);
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(new String[] { buildCommandUsage(SUBCMD_STATS,
+                "shows publish rate, deliveries, retained messages and the topics with the most deliveries") });
+    }
+
+    @Reference
+    public void setBrokerService(EmbeddedBrokerService brokerService) {
+        this.brokerService = brokerService;
+    }
+
+    public void unsetBrokerService(EmbeddedBrokerService brokerService) {
+        this.brokerService = null;
+    }
+
+    private void printStatistics(Console console) {
+        Map<String, Object> statistics = brokerService.getStatistics(TOP_TOPICS);
+        if (statistics.isEmpty()) {
+            console.println("Embedded broker is not running");
+            return;
+        }
+        statistics.forEach((name, value) -> console.println(String.format("%-26s%s", name + ":", value)));
+    }
+}
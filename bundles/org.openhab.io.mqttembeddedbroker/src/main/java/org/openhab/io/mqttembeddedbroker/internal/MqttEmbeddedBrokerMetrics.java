@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.mqttembeddedbroker.internal;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.moquette.broker.subscriptions.Topic;
+import io.moquette.interception.InterceptHandler;
+import io.moquette.interception.messages.InterceptAcknowledgedMessage;
+import io.moquette.interception.messages.InterceptConnectMessage;
+import io.moquette.interception.messages.InterceptConnectionLostMessage;
+import io.moquette.interception.messages.InterceptDisconnectMessage;
+import io.moquette.interception.messages.InterceptPublishMessage;
+import io.moquette.interception.messages.InterceptSubscribeMessage;
+import io.moquette.interception.messages.InterceptUnsubscribeMessage;
+
+/**
+ * Collects message throughput statistics of the embedded broker.
+ * <p>
+ * Moquette does not expose its internal queues, so all numbers are derived from the intercepted messages: The publish
+ * rate, the fan-out of a topic (the number of subscriptions matching it), and the number and payload size of retained
+ * messages published since the broker has been started. Retained messages restored from the persistence file are not
+ * included until they are published again.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault({})
+public class MqttEmbeddedBrokerMetrics implements InterceptHandler {
+    /** The publish rate is measured over windows of this length */
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /** Statistics are only kept for this many topics, to bound the memory used for topics with ever changing names */
+    private static final int MAX_TOPICS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(MqttEmbeddedBrokerMetrics.class);
+
+    private final AtomicLong publishes = new AtomicLong();
+    private final AtomicLong publishedBytes = new AtomicLong();
+    private final AtomicLong deliveries = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong untrackedTopicPublishes = new AtomicLong();
+
+    private final Object rateLock = new Object();
+    private long windowStart = System.nanoTime();
+    private long windowPublishes;
+    private double publishRate;
+
+    // Subscriptions by client id. Clients with a persistent session keep their subscriptions while disconnected.
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<String> cleanSessionClients = ConcurrentHashMap.newKeySet();
+    // Incremented on each subscription change, invalidates the cached fan-out of all topics
+    private final AtomicInteger subscriptionVersion = new AtomicInteger();
+
+    private final Map<String, TopicStatistics> topics = new ConcurrentHashMap<>();
+    private final Map<String, Integer> retainedSizes = new ConcurrentHashMap<>();
+
+    private static class TopicStatistics {
+        final AtomicLong publishes = new AtomicLong();
+        volatile int fanOut;
+        volatile int version = -1;
+    }
+
+    @Override
+    public String getID() {
+        return "metrics";
+    }
+
+    @Override
+    public Class<?>[] getInterceptedMessageTypes() {
+        return new Class<?>[] { InterceptConnectMessage.class, InterceptDisconnectMessage.class,
+                InterceptConnectionLostMessage.class, InterceptPublishMessage.class, InterceptSubscribeMessage.class,
+                InterceptUnsubscribeMessage.class, InterceptAcknowledgedMessage.class };
+    }
+
+    @Override
+    public void onConnect(InterceptConnectMessage msg) {
+        logger.debug("MQTT Client connected: {}", msg.getClientID());
+        if (msg.isCleanSession()) {
+            cleanSessionClients.add(msg.getClientID());
+            // A clean session starts without subscriptions
+            removeSubscriptions(msg.getClientID());
+        } else {
+            cleanSessionClients.remove(msg.getClientID());
+        }
+    }
+
+    @Override
+    public void onConnectionLost(InterceptConnectionLostMessage msg) {
+        logger.debug("MQTT Client connection lost: {}", msg.getClientID());
+        sessionEnded(msg.getClientID());
+    }
+
+    @Override
+    public void onDisconnect(InterceptDisconnectMessage msg) {
+        logger.debug("MQTT Client disconnected: {}", msg.getClientID());
+        sessionEnded(msg.getClientID());
+    }
+
+    @Override
+    public void onMessageAcknowledged(InterceptAcknowledgedMessage msg) {
+        acknowledged.incrementAndGet();
+    }
+
+    @Override
+    public void onPublish(InterceptPublishMessage msg) {
+        String topicName = msg.getTopicName();
+        int size = msg.getPayload().readableBytes();
+        publishes.incrementAndGet();
+        publishedBytes.addAndGet(size);
+        countForRate();
+
+        if (msg.isRetainFlag()) {
+            if (size == 0) {
+                retainedSizes.remove(topicName);
+            } else {
+                retainedSizes.put(topicName, size);
+            }
+        }
+
+        TopicStatistics statistics = topics.get(topicName);
+        if (statistics == null) {
+            if (topics.size() >= MAX_TOPICS) {
+                untrackedTopicPublishes.incrementAndGet();
+                deliveries.addAndGet(computeFanOut(topicName));
+                return;
+            }
+            statistics = topics.computeIfAbsent(topicName, k -> new TopicStatistics());
+        }
+        statistics.publishes.incrementAndGet();
+        int version = subscriptionVersion.get();
+        if (statistics.version != version) {
+            statistics.fanOut = computeFanOut(topicName);
+            statistics.version = version;
+        }
+        deliveries.addAndGet(statistics.fanOut);
+    }
+
+    @Override
+    public void onSubscribe(InterceptSubscribeMessage msg) {
+        subscriptions.computeIfAbsent(msg.getClientID(), k -> ConcurrentHashMap.newKeySet()).add(msg.getTopicFilter());
+        subscriptionVersion.incrementAndGet();
+    }
+
+    @Override
+    public void onUnsubscribe(InterceptUnsubscribeMessage msg) {
+        Set<String> filters = subscriptions.get(msg.getClientID());
+        if (filters != null && filters.remove(msg.getTopicFilter())) {
+            subscriptionVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the current statistics, in a stable order for display.
+     *
+     * @param topTopics The number of topics with the most deliveries to include
+     */
+    public Map<String, Object> getStatistics(int topTopics) {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("publishes", publishes.get());
+        statistics.put("publishedBytes", publishedBytes.get());
+        statistics.put("publishRate", String.format("%.1f/s", getPublishRate()));
+        statistics.put("deliveries", deliveries.get());
+        statistics.put("acknowledgedQos1And2", acknowledged.get());
+        statistics.put("subscriptions", subscriptions.values().stream().mapToInt(Set::size).sum());
+        statistics.put("retainedMessages", retainedSizes.size());
+        statistics.put("retainedBytes", retainedSizes.values().stream().mapToLong(Integer::longValue).sum());
+        statistics.put("trackedTopics", topics.size());
+        statistics.put("untrackedTopicPublishes", untrackedTopicPublishes.get());
+        topics.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, TopicStatistics> e) -> e.getValue().publishes.get() * e.getValue().fanOut)
+                        .reversed())
+                .limit(topTopics).forEach(e -> statistics.put("topic " + e.getKey(),
+                        e.getValue().publishes.get() + " publishes, fan-out " + e.getValue().fanOut));
+        return statistics;
+    }
+
+    /**
+     * Returns the publish rate in messages per second of the last completed measuring window.
+     */
+    public double getPublishRate() {
+        synchronized (rateLock) {
+            rollWindow(System.nanoTime());
+            return publishRate;
+        }
+    }
+
+    private void countForRate() {
+        synchronized (rateLock) {
+            rollWindow(System.nanoTime());
+            windowPublishes++;
+        }
+    }
+
+    private void rollWindow(long now) {
+        long elapsed = now - windowStart;
+        if (elapsed < RATE_WINDOW_NANOS) {
+            return;
+        }
+        // A window without any publish in between reports the average over the whole time
+        publishRate = windowPublishes * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        windowPublishes = 0;
+        windowStart = now;
+    }
+
+    private int computeFanOut(String topicName) {
+        Topic topic = new Topic(topicName);
+        int fanOut = 0;
+        for (Set<String> filters : subscriptions.values()) {
+            for (String filter : filters) {
+                if (topic.match(new Topic(filter))) {
+                    fanOut++;
+                }
+            }
+        }
+        return fanOut;
+    }
+
+    private void sessionEnded(String clientID) {
+        // Subscriptions of persistent sessions survive a disconnect
+        if (cleanSessionClients.remove(clientID)) {
+            removeSubscriptions(clientID);
+        }
+    }
+
+    private void removeSubscriptions(String clientID) {
+        if (subscriptions.remove(clientID) != null) {
+            subscriptionVersion.incrementAndGet();
+        }
+    }
+}
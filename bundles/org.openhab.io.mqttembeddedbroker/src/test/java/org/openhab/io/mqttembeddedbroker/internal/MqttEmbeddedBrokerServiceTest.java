@@ -153,6 +153,27 @@ public class MqttEmbeddedBrokerServiceTest extends JavaTest {
         verify(service).addBrokerConnection(anyString(), eq(c));
     }
 
+    @Test
+    public void statistics() throws InterruptedException, ExecutionException {
+        MqttBrokerConnection c = subject.getConnection();
+        assertNotNull(c);
+        waitForConnectionChange(c, MqttConnectionState.CONNECTED);
+
+        c.subscribe("demo/#", (topic, payload) -> {
+        }).get();
+        c.publish("demo/topic", "testtest".getBytes(), 1, true).get();
+
+        waitForAssert(() -> {
+            Map<String, Object> statistics = subject.getStatistics(10);
+            assertThat(statistics.get("connectedClients"), is(1));
+            assertThat(statistics.get("publishes"), is(1L));
+            assertThat(statistics.get("deliveries"), is(1L));
+            assertThat(statistics.get("retainedMessages"), is(1));
+            assertThat(statistics.get("retainedBytes"), is(8L));
+            assertThat(statistics.get("topic demo/topic"), is("1 publishes, fan-out 1"));
+        });
+    }
+
     @Test
     public void testPersistence() throws InterruptedException, IOException, ExecutionException {
         config.put("persistenceFile", "persist.mqtt");
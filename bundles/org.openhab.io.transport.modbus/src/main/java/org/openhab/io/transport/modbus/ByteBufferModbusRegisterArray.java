@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Immutable {@link ModbusRegisterArray} implementation backed by a {@link ByteBuffer}
+ *
+ * Register data is kept as raw bytes, high byte of each register first. Register values can be read as primitives
+ * without creating {@link ModbusRegister} objects, and sub-ranges of the registers can be viewed without copying
+ * data. {@link ModbusBitUtilities} uses the primitive accessors when decoding values from this class.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ByteBufferModbusRegisterArray implements ModbusRegisterArray {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Construct register array backed by the given bytes. The array is not copied.
+     *
+     * @param bytes register data, two bytes per register, high byte first
+     * @throws IllegalArgumentException if the number of bytes is odd
+     */
+    public ByteBufferModbusRegisterArray(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Construct register array backed by the remaining bytes of the given buffer. The data is not copied, and the
+     * position and limit of the given buffer are not modified.
+     *
+     * @param buffer register data, two bytes per register, high byte first
+     * @throws IllegalArgumentException if the number of bytes is odd
+     */
+    public ByteBufferModbusRegisterArray(ByteBuffer buffer) {
+        if (buffer.remaining() % 2 != 0) {
+            throw new IllegalArgumentException(
+                    String.format("Register data should have even number of bytes, got %d", buffer.remaining()));
+        }
+        this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Copy the data of any register array to a new <code>ByteBufferModbusRegisterArray</code>
+     *
+     * @param registers registers to copy
+     * @return register array with the same data
+     */
+    public static ByteBufferModbusRegisterArray copyOf(ModbusRegisterArray registers) {
+        if (registers instanceof ByteBufferModbusRegisterArray) {
+            return (ByteBufferModbusRegisterArray) registers;
+        }
+        byte[] bytes = new byte[registers.size() * 2];
+        for (int i = 0; i < registers.size(); i++) {
+            byte[] registerBytes = registers.getRegister(i).getBytes();
+            bytes[2 * i] = registerBytes[0];
+            bytes[2 * i + 1] = registerBytes[1];
+        }
+        return new ByteBufferModbusRegisterArray(bytes);
+    }
+
+    @Override
+    public ModbusRegister getRegister(int index) {
+        checkIndex(index, 1);
+        return new BasicModbusRegister(buffer.get(2 * index), buffer.get(2 * index + 1));
+    }
+
+    @Override
+    public int size() {
+        return buffer.capacity() / 2;
+    }
+
+    /**
+     * Get value of the register as 16 bit signed integer
+     *
+     * @param index register index
+     * @return register value
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     */
+    public short getInt16(int index) {
+        checkIndex(index, 1);
+        return buffer.getShort(2 * index);
+    }
+
+    /**
+     * Get value of the register as 16 bit unsigned integer
+     *
+     * @param index register index
+     * @return register value
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     */
+    public int getUInt16(int index) {
+        return getInt16(index) & 0xffff;
+    }
+
+    /**
+     * Get registers (index) and (index + 1) as 32 bit signed integer, first register containing the most significant
+     * bits
+     *
+     * @param index register index
+     * @return value of the registers
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     */
+    public int getInt32(int index) {
+        checkIndex(index, 2);
+        return buffer.getInt(2 * index);
+    }
+
+    /**
+     * Get registers (index) and (index + 1) as 32 bit floating point number, first register containing the most
+     * significant bits
+     *
+     * @param index register index
+     * @return value of the registers
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     */
+    public float getFloat32(int index) {
+        checkIndex(index, 2);
+        return buffer.getFloat(2 * index);
+    }
+
+    /**
+     * Get registers (index) ... (index + 3) as 64 bit signed integer, first register containing the most significant
+     * bits
+     *
+     * @param index register index
+     * @return value of the registers
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     */
+    public long getInt64(int index) {
+        checkIndex(index, 4);
+        return buffer.getLong(2 * index);
+    }
+
+    /**
+     * Get a view of a range of the registers. The data is not copied.
+     *
+     * @param index index of the first register
+     * @param length number of registers
+     * @return register array containing the registers (index) ... (index + length - 1)
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public ByteBufferModbusRegisterArray slice(int index, int length) {
+        if (length == 0 && index >= 0 && index <= size()) {
+            return new ByteBufferModbusRegisterArray(new byte[0]);
+        }
+        checkIndex(index, length);
+        ByteBuffer view = buffer.duplicate();
+        view.position(2 * index);
+        view.limit(2 * (index + length));
+        return new ByteBufferModbusRegisterArray(view);
+    }
+
+    private void checkIndex(int index, int registers) {
+        if (index < 0 || registers < 1 || index + registers > size()) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Registers %d...%d out of bounds given registers of size %d", index,
+                            index + registers - 1, size()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (size() == 0) {
+            return "ByteBufferModbusRegisterArray(<empty>)";
+        }
+        StringBuffer buffer = new StringBuffer(size() * 2).append("ByteBufferModbusRegisterArray(");
+        return appendHexString(buffer).append(')').toString();
+    }
+
+}
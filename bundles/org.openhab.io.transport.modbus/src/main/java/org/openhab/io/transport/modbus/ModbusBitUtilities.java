@@ -13,9 +13,6 @@
 package org.openhab.io.transport.modbus;
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Optional;
 
@@ -101,117 +98,144 @@ public class ModbusBitUtilities {
      */
     public static Optional<DecimalType> extractStateFromRegisters(ModbusRegisterArray registers, int index,
             ModbusConstants.ValueType type) {
-        int endBitIndex = (type.getBits() >= 16 ? 16 * index : type.getBits() * index) + type.getBits() - 1;
-        // each register has 16 bits
-        int lastValidIndex = registers.size() * 16 - 1;
-        if (endBitIndex > lastValidIndex || index < 0) {
-            throw new IllegalArgumentException(
-                    String.format("Index=%d with type=%s is out-of-bounds given registers of size %d", index, type,
-                            registers.size()));
-        }
+        checkBounds(registers, index, type);
         switch (type) {
-            case BIT:
-                return Optional
-                        .of(new DecimalType((registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1));
-            case INT8:
-                return Optional.of(new DecimalType(registers.getRegister(index / 2).getBytes()[1 - (index % 2)]));
-            case UINT8:
-                return Optional.of(new DecimalType(
-                        (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff));
-            case INT16: {
-                ByteBuffer buff = ByteBuffer.allocate(2);
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getShort(0)));
-            }
-            case UINT16:
-                return Optional.of(new DecimalType(registers.getRegister(index).toUnsignedShort()));
-            case INT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0)));
-            }
-            case UINT32: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case FLOAT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
+            case FLOAT32:
+            case FLOAT32_SWAP:
                 try {
-                    return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0)));
+                    return Optional.of(new DecimalType(extractFloatFromRegisters(registers, index, type)));
                 } catch (NumberFormatException e) {
                     // floating point NaN or infinity encountered
                     return Optional.empty();
                 }
-            }
-            case INT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case UINT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return Optional.of(
-                        new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array()))));
-            }
-            case INT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0)));
-            }
-            case UINT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case FLOAT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                try {
-                    return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0)));
-                } catch (NumberFormatException e) {
-                    // floating point NaN or infinity encountered
-                    return Optional.empty();
-                }
-            }
-            case INT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
+            case UINT64:
             case UINT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(
-                        new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array()))));
+                long value = extractLongFromRegisters(registers, index, type);
+                return Optional.of(value >= 0 ? new DecimalType(value)
+                        : new DecimalType(new BigDecimal(Long.toUnsignedString(value))));
             }
+            default:
+                return Optional.of(new DecimalType(extractLongFromRegisters(registers, index, type)));
+        }
+    }
+
+    /**
+     * Read integer data from registers without creating intermediate objects
+     *
+     * Interpretation of <tt>index</tt> and <tt>type</tt> is the same as with
+     * {@link #extractStateFromRegisters(ModbusRegisterArray, int, ModbusConstants.ValueType)}.
+     *
+     * Note that <tt>UINT64</tt> and <tt>UINT64_SWAP</tt> values above {@link Long#MAX_VALUE} are returned as negative
+     * numbers, use e.g. {@link Long#toUnsignedString(long)} to interpret them.
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based item index
+     * @param type integer item type
+     * @return value of the item
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers, or type is not an integer
+     *             type
+     */
+    public static long extractLongFromRegisters(ModbusRegisterArray registers, int index,
+            ModbusConstants.ValueType type) {
+        checkBounds(registers, index, type);
+        switch (type) {
+            case BIT:
+                return (uint16(registers, index / 16) >> (index % 16)) & 1;
+            case INT8:
+                return (byte) (uint16(registers, index / 2) >> (8 * (index % 2)));
+            case UINT8:
+                return (uint16(registers, index / 2) >> (8 * (index % 2))) & 0xff;
+            case INT16:
+                return (short) uint16(registers, index);
+            case UINT16:
+                return uint16(registers, index);
+            case INT32:
+                return int32(registers, index, false);
+            case UINT32:
+                return int32(registers, index, false) & 0xffffffffL;
+            case INT32_SWAP:
+                return int32(registers, index, true);
+            case UINT32_SWAP:
+                return int32(registers, index, true) & 0xffffffffL;
+            case INT64:
+            case UINT64:
+                return int64(registers, index, false);
+            case INT64_SWAP:
+            case UINT64_SWAP:
+                return int64(registers, index, true);
             default:
                 throw new IllegalArgumentException(type.getConfigValue());
         }
     }
 
+    /**
+     * Read floating point data from registers without creating intermediate objects
+     *
+     * Interpretation of <tt>index</tt> and <tt>type</tt> is the same as with
+     * {@link #extractStateFromRegisters(ModbusRegisterArray, int, ModbusConstants.ValueType)}. NaN and infinity are
+     * returned as is.
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based register index
+     * @param type <tt>FLOAT32</tt> or <tt>FLOAT32_SWAP</tt>
+     * @return value of the item
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers, or type is not a floating
+     *             point type
+     */
+    public static float extractFloatFromRegisters(ModbusRegisterArray registers, int index,
+            ModbusConstants.ValueType type) {
+        checkBounds(registers, index, type);
+        switch (type) {
+            case FLOAT32:
+                if (registers instanceof ByteBufferModbusRegisterArray) {
+                    return ((ByteBufferModbusRegisterArray) registers).getFloat32(index);
+                }
+                return Float.intBitsToFloat(int32(registers, index, false));
+            case FLOAT32_SWAP:
+                return Float.intBitsToFloat(int32(registers, index, true));
+            default:
+                throw new IllegalArgumentException(type.getConfigValue());
+        }
+    }
+
+    private static void checkBounds(ModbusRegisterArray registers, int index, ModbusConstants.ValueType type) {
+        int endBitIndex = (type.getBits() >= 16 ? 16 * index : type.getBits() * index) + type.getBits() - 1;
+        // each register has 16 bits
+        int lastValidIndex = registers.size() * 16 - 1;
+        if (endBitIndex > lastValidIndex || index < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Index=%d with type=%s is out-of-bounds given registers of size %d", index, type,
+                            registers.size()));
+        }
+    }
+
+    private static int uint16(ModbusRegisterArray registers, int index) {
+        if (registers instanceof ByteBufferModbusRegisterArray) {
+            return ((ByteBufferModbusRegisterArray) registers).getUInt16(index);
+        }
+        return registers.getRegister(index).toUnsignedShort();
+    }
+
+    private static int int32(ModbusRegisterArray registers, int index, boolean swap) {
+        if (!swap && registers instanceof ByteBufferModbusRegisterArray) {
+            return ((ByteBufferModbusRegisterArray) registers).getInt32(index);
+        }
+        int hi = uint16(registers, swap ? index + 1 : index);
+        int lo = uint16(registers, swap ? index : index + 1);
+        return (hi << 16) | lo;
+    }
+
+    private static long int64(ModbusRegisterArray registers, int index, boolean swap) {
+        if (!swap && registers instanceof ByteBufferModbusRegisterArray) {
+            return ((ByteBufferModbusRegisterArray) registers).getInt64(index);
+        }
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 16) | uint16(registers, swap ? index + 3 - i : index + i);
+        }
+        return value;
+    }
+
     /**
      * Read data from registers and convert the result to StringType
      * Strings should start the the first byte of a register, but could
@@ -249,9 +273,9 @@ public class ModbusBitUtilities {
 
             byte chr;
             if (dest % 2 == 0) {
-                chr = (byte) ((registers.getRegister(src).getValue() >> 8));
+                chr = (byte) (uint16(registers, src) >> 8);
             } else {
-                chr = (byte) (registers.getRegister(src).getValue() & 0xff);
+                chr = (byte) (uint16(registers, src) & 0xff);
                 src++;
             }
             if (chr == 0) {
@@ -29,6 +29,11 @@ import org.eclipse.jdt.annotation.Nullable;
 @NonNullByDefault
 public class EndpointPoolConfiguration {
 
+    /**
+     * Default response timeout, equal to the default of the modbus library
+     */
+    public static final int DEFAULT_RESPONSE_TIMEOUT_MILLIS = 3000;
+
     /**
      * How long should be the minimum duration between previous transaction end and the next transaction with the same
      * endpoint.
@@ -61,6 +66,29 @@ public class EndpointPoolConfiguration {
      */
     private int connectTimeoutMillis;
 
+    /**
+     * Whether regular polls of this endpoint that are due at the same time may be merged into fewer, larger read
+     * requests. Only polls with the same unit id and function code are merged.
+     */
+    private boolean coalesceReads;
+
+    /**
+     * How many unrequested registers (or bits) may lie between two polls that are merged into one read request. Zero
+     * means that only adjacent or overlapping polls are merged.
+     */
+    private int coalesceGapTolerance;
+
+    /**
+     * How many transactions may wait for response at the same time. Values above one enable pipelined transactions
+     * with TCP slaves, one means that a new transaction is started only after the previous one has completed.
+     */
+    private int maxInFlightTransactions = 1;
+
+    /**
+     * How long to wait for the response of a transaction with a TCP slave. In milliseconds.
+     */
+    private int responseTimeoutMillis = DEFAULT_RESPONSE_TIMEOUT_MILLIS;
+
     private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
 
     static {
@@ -107,10 +135,44 @@ public class EndpointPoolConfiguration {
         this.connectTimeoutMillis = connectTimeoutMillis;
     }
 
+    public boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    public void setCoalesceReads(boolean coalesceReads) {
+        this.coalesceReads = coalesceReads;
+    }
+
+    public int getCoalesceGapTolerance() {
+        return coalesceGapTolerance;
+    }
+
+    public void setCoalesceGapTolerance(int coalesceGapTolerance) {
+        this.coalesceGapTolerance = coalesceGapTolerance;
+    }
+
+    public int getMaxInFlightTransactions() {
+        return maxInFlightTransactions;
+    }
+
+    public void setMaxInFlightTransactions(int maxInFlightTransactions) {
+        this.maxInFlightTransactions = maxInFlightTransactions;
+    }
+
+    public int getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    public void setResponseTimeoutMillis(int responseTimeoutMillis) {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder(2149, 3117).append(interTransactionDelayMillis).append(interConnectDelayMillis)
-                .append(connectMaxTries).append(reconnectAfterMillis).append(connectTimeoutMillis).toHashCode();
+                .append(connectMaxTries).append(reconnectAfterMillis).append(connectTimeoutMillis).append(coalesceReads)
+                .append(coalesceGapTolerance).append(maxInFlightTransactions).append(responseTimeoutMillis)
+                .toHashCode();
     }
 
     @Override
@@ -119,7 +181,10 @@ public class EndpointPoolConfiguration {
                 .append("interTransactionDelayMillis", interTransactionDelayMillis)
                 .append("interConnectDelayMillis", interConnectDelayMillis).append("connectMaxTries", connectMaxTries)
                 .append("reconnectAfterMillis", reconnectAfterMillis)
-                .append("connectTimeoutMillis", connectTimeoutMillis).toString();
+                .append("connectTimeoutMillis", connectTimeoutMillis).append("coalesceReads", coalesceReads)
+                .append("coalesceGapTolerance", coalesceGapTolerance)
+                .append("maxInFlightTransactions", maxInFlightTransactions)
+                .append("responseTimeoutMillis", responseTimeoutMillis).toString();
     }
 
     @Override
@@ -137,7 +202,10 @@ public class EndpointPoolConfiguration {
         return new EqualsBuilder().append(interTransactionDelayMillis, rhs.interTransactionDelayMillis)
                 .append(interConnectDelayMillis, rhs.interConnectDelayMillis)
                 .append(connectMaxTries, rhs.connectMaxTries).append(reconnectAfterMillis, rhs.reconnectAfterMillis)
-                .append(connectTimeoutMillis, rhs.connectTimeoutMillis).isEquals();
+                .append(connectTimeoutMillis, rhs.connectTimeoutMillis).append(coalesceReads, rhs.coalesceReads)
+                .append(coalesceGapTolerance, rhs.coalesceGapTolerance)
+                .append(maxInFlightTransactions, rhs.maxInFlightTransactions)
+                .append(responseTimeoutMillis, rhs.responseTimeoutMillis).isEquals();
     }
 
 }
@@ -12,9 +12,14 @@
  */
 package org.openhab.io.transport.modbus.internal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.internal.SimpleStopWatch.RunnableWithModbusException;
+
+import net.wimpi.modbus.ModbusException;
 
 /**
  * Utility for timing operations
@@ -49,10 +54,30 @@ public class AggregateStopWatch {
      */
     final SimpleStopWatch callback = new SimpleStopWatch();
 
+    /**
+     * Duration of each transaction try, in milliseconds
+     */
+    final List<Long> transactionTries = new ArrayList<>(1);
+
     public AggregateStopWatch() {
         this.operationId = UUID.randomUUID().toString();
     }
 
+    /**
+     * Time single transaction try with the transaction stop watch, recording the duration of the try
+     *
+     * @param action transaction to time
+     * @throws ModbusException when the transaction throws the exception
+     */
+    public void timeTransaction(RunnableWithModbusException action) throws ModbusException {
+        long start = System.currentTimeMillis();
+        try {
+            transaction.timeRunnableWithModbusException(action);
+        } finally {
+            transactionTries.add(System.currentTimeMillis() - start);
+        }
+    }
+
     /**
      * Suspend all running stopwatches of this aggregate
      */
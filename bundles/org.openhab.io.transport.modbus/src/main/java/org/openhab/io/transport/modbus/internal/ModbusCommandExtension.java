@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.openhab.io.transport.modbus.ModbusManager;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusMetrics.Histogram;
+import org.openhab.io.transport.modbus.internal.ModbusMetrics.OperationMetrics;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands reporting latency, retries and connection pool state of the Modbus transport
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+@NonNullByDefault
+public class ModbusCommandExtension extends AbstractConsoleCommandExtension {
+    private static final String SUBCMD_ENDPOINTS = "endpoints";
+    private static final String SUBCMD_POLLS = "polls";
+    private static final String SUBCMD_RESET = "reset";
+
+    private @Nullable ModbusManager manager;
+
+    public ModbusCommandExtension() {
+        super("modbus", "Show statistics of the Modbus transport.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        ModbusManager manager = this.manager;
+        if (!(manager instanceof ModbusManagerImpl)) {
+            console.println("Modbus manager is not available");
+            return;
+        }
+        ModbusManagerImpl managerImpl = (ModbusManagerImpl) manager;
+        if (args.length > 0) {
+            String subCommand = args[0];
+            switch (subCommand) {
+                case SUBCMD_ENDPOINTS:
+                    printEndpoints(console, managerImpl);
+                    break;
+                case SUBCMD_POLLS:
+                    printPolls(console, managerImpl);
+                    break;
+                case SUBCMD_RESET:
+                    managerImpl.getMetrics().reset();
+                    console.println("Statistics reset");
+                    break;
+                default:
+                    console.println("Unknown command '" + subCommand + "'");
+                    printUsage(console);
+                    break;
+            }
+        } else {
+            printUsage(console);
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(new String[] {
+                buildCommandUsage(SUBCMD_ENDPOINTS,
+                        "shows latency, retries, connection pool, merged reads and pipelining per endpoint"),
+                buildCommandUsage(SUBCMD_POLLS, "shows latency and retries per regular poll"),
+                buildCommandUsage(SUBCMD_RESET, "resets the statistics") });
+    }
+
+    @Reference
+    public void setModbusManager(ModbusManager manager) {
+        this.manager = manager;
+    }
+
+    public void unsetModbusManager(ModbusManager manager) {
+        this.manager = null;
+    }
+
+    private void printEndpoints(Console console, ModbusManagerImpl manager) {
+        Map<ModbusSlaveEndpoint, OperationMetrics> endpoints = manager.getMetrics().getEndpoints();
+        if (endpoints.isEmpty()) {
+            console.println("No operations executed");
+        }
+        endpoints.forEach((endpoint, metrics) -> {
+            console.println(String.valueOf(endpoint));
+            printMetrics(console, metrics);
+            console.println(String.format("  Pool connections:     %d idle, %d active",
+                    manager.getIdleConnections(endpoint), manager.getActiveConnections(endpoint)));
+            ModbusReadPlanner planner = manager.getReadPlanners().get(endpoint);
+            if (planner != null) {
+                console.println(String.format("  Merged reads:         %d requested, %d executed, %d saved",
+                        planner.getRequestedReads(), planner.getExecutedReads(), planner.getSavedTransactions()));
+            }
+            ModbusTcpPipeline pipeline = manager.getPipelines().get(endpoint);
+            if (pipeline != null) {
+                console.println(String.format("  Pipeline:             %d in flight, %d transactions%s",
+                        pipeline.getInFlight(), pipeline.getTransactions(), pipeline.isFailed() ? ", failed" : ""));
+            }
+        });
+    }
+
+    private void printPolls(Console console, ModbusManagerImpl manager) {
+        Map<PollTask, OperationMetrics> polls = manager.getMetrics().getPolls();
+        if (polls.isEmpty()) {
+            console.println("No regular polls registered");
+        }
+        polls.forEach((task, metrics) -> {
+            console.println(String.format("%s %s", task.getEndpoint(), task.getRequest()));
+            printMetrics(console, metrics);
+        });
+    }
+
+    private void printMetrics(Console console, OperationMetrics metrics) {
+        console.println(String.format("  Operations:           %d (%d failed, %d retries)", metrics.getOperations(),
+                metrics.getFailures(), metrics.getRetries()));
+        console.println(String.format("  Thread pool wait:     %s", metrics.getQueue()));
+        console.println(String.format("  Connection borrow:    %s", metrics.getConnection()));
+        console.println(String.format("  Round-trip:           %s", metrics.getRoundTrip()));
+        console.println(String.format("  Round-trip histogram: %s", formatHistogram(metrics.getRoundTrip())));
+        console.println(String.format("  Callback:             %s", metrics.getCallback()));
+        console.println(String.format("  Total:                %s", metrics.getTotal()));
+    }
+
+    private String formatHistogram(Histogram histogram) {
+        long[] counts = histogram.getBucketCounts();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (i < ModbusMetrics.ROUND_TRIP_BUCKETS_MILLIS.length) {
+                builder.append("<=").append(ModbusMetrics.ROUND_TRIP_BUCKETS_MILLIS[i]);
+            } else {
+                builder.append('>').append(ModbusMetrics.ROUND_TRIP_BUCKETS_MILLIS[i - 1]);
+            }
+            builder.append(" ms: ").append(counts[i]);
+        }
+        return builder.toString();
+    }
+}
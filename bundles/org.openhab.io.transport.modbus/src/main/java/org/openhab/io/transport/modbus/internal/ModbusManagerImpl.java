@@ -13,7 +13,9 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -24,6 +26,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.IIOException;
@@ -66,9 +69,11 @@ import net.wimpi.modbus.ModbusException;
 import net.wimpi.modbus.ModbusIOException;
 import net.wimpi.modbus.ModbusSlaveException;
 import net.wimpi.modbus.io.ModbusTransaction;
+import net.wimpi.modbus.io.ModbusTransport;
 import net.wimpi.modbus.msg.ModbusRequest;
 import net.wimpi.modbus.msg.ModbusResponse;
 import net.wimpi.modbus.net.ModbusSlaveConnection;
+import net.wimpi.modbus.net.TCPMasterConnection;
 
 /**
  * Main implementation of ModbusManager
@@ -91,7 +96,6 @@ public class ModbusManagerImpl implements ModbusManager {
         private static final long serialVersionUID = 6939730579178506885L;
     }
 
-    @FunctionalInterface
     private interface ModbusOperation<T> {
 
         /**
@@ -108,6 +112,28 @@ public class ModbusManagerImpl implements ModbusManager {
         public void accept(AggregateStopWatch timer, T task, ModbusSlaveConnection connection)
                 throws ModbusException, IIOException, ModbusUnexpectedTransactionIdException;
 
+        /**
+         * Execute the operation as one of the pipelined transactions of the endpoint.
+         *
+         * All errors should be raised. Transaction IDs are matched by the pipeline.
+         *
+         * @param timer aggregate stop watch for performance profiling
+         * @param task task to execute
+         * @param pipeline pipeline to use
+         * @throws ModbusException on IO errors, slave exception responses, and when the pipeline has failed
+         */
+        public void accept(AggregateStopWatch timer, T task, ModbusTcpPipeline pipeline) throws ModbusException;
+
+    }
+
+    /**
+     * Execute request over the pipeline, timing the transaction
+     */
+    private static ModbusResponse executePipelined(AggregateStopWatch timer, ModbusTcpPipeline pipeline,
+            ModbusRequest libRequest) throws ModbusException {
+        AtomicReference<@Nullable ModbusResponse> response = new AtomicReference<>();
+        timer.timeTransaction(() -> response.set(pipeline.execute(libRequest)));
+        return Objects.requireNonNull(response.get());
     }
 
     /**
@@ -157,7 +183,7 @@ public class ModbusManagerImpl implements ModbusManager {
                     request.getFunctionCode(), libRequest.getHexMessage(), operationId);
             // Might throw ModbusIOException (I/O error) or ModbusSlaveException (explicit exception response from
             // slave)
-            timer.transaction.timeRunnableWithModbusException(() -> transaction.execute());
+            timer.timeTransaction(() -> transaction.execute());
             ModbusResponse response = transaction.getResponse();
             logger.trace("Response for read request (FC={}, transaction ID={}): {} [operation ID {}]",
                     response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(), operationId);
@@ -167,6 +193,25 @@ public class ModbusManagerImpl implements ModbusManager {
                         () -> ModbusLibraryWrapper.invokeCallbackWithResponse(request, callback, response));
             }
         }
+
+        @Override
+        public void accept(AggregateStopWatch timer, PollTask task, ModbusTcpPipeline pipeline)
+                throws ModbusException {
+            ModbusReadRequestBlueprint request = task.getRequest();
+            ModbusReadCallback callback = task.getCallback();
+
+            ModbusRequest libRequest = ModbusLibraryWrapper.createRequest(request);
+            logger.trace("Going execute pipelined transaction with read request (FC={}): {} [operation ID {}]",
+                    request.getFunctionCode(), libRequest.getHexMessage(), timer.operationId);
+            ModbusResponse response = executePipelined(timer, pipeline, libRequest);
+            logger.trace("Response for pipelined read request (FC={}, transaction ID={}): {} [operation ID {}]",
+                    response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(),
+                    timer.operationId);
+            if (callback != null) {
+                timer.callback.timeRunnable(
+                        () -> ModbusLibraryWrapper.invokeCallbackWithResponse(request, callback, response));
+            }
+        }
     }
 
     /**
@@ -193,7 +238,7 @@ public class ModbusManagerImpl implements ModbusManager {
 
             // Might throw ModbusIOException (I/O error) or ModbusSlaveException (explicit exception response from
             // slave)
-            timer.transaction.timeRunnableWithModbusException(() -> transaction.execute());
+            timer.timeTransaction(() -> transaction.execute());
             ModbusResponse response = transaction.getResponse();
             logger.trace("Response for write request (FC={}, transaction ID={}): {} [operation ID {}]",
                     response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(), operationId);
@@ -204,6 +249,25 @@ public class ModbusManagerImpl implements ModbusManager {
                         () -> invokeCallbackWithResponse(request, callback, new ModbusResponseImpl(response)));
             }
         }
+
+        @Override
+        public void accept(AggregateStopWatch timer, WriteTask task, ModbusTcpPipeline pipeline)
+                throws ModbusException {
+            ModbusWriteRequestBlueprint request = task.getRequest();
+            ModbusWriteCallback callback = task.getCallback();
+
+            ModbusRequest libRequest = ModbusLibraryWrapper.createRequest(request);
+            logger.trace("Going execute pipelined transaction with write request (FC={}): {} [operation ID {}]",
+                    request.getFunctionCode(), libRequest.getHexMessage(), timer.operationId);
+            ModbusResponse response = executePipelined(timer, pipeline, libRequest);
+            logger.trace("Response for pipelined write request (FC={}, transaction ID={}): {} [operation ID {}]",
+                    response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(),
+                    timer.operationId);
+            if (callback != null) {
+                timer.callback.timeRunnable(
+                        () -> invokeCallbackWithResponse(request, callback, new ModbusResponseImpl(response)));
+            }
+        }
     }
 
     private final Logger logger = LoggerFactory.getLogger(ModbusManagerImpl.class);
@@ -249,6 +313,26 @@ public class ModbusManagerImpl implements ModbusManager {
     private static final long WARN_QUEUE_SIZE = 500;
     private static final long MONITOR_QUEUE_INTERVAL_MILLIS = 10000;
 
+    /**
+     * How long to use one transaction at a time after pipelining with an endpoint has failed for the first time.
+     * Doubled with every subsequent failure, up to {@link #PIPELINE_RETRY_MAX_MILLIS}.
+     */
+    private static final long PIPELINE_RETRY_MIN_MILLIS = 30_000;
+    private static final long PIPELINE_RETRY_MAX_MILLIS = 3_600_000;
+
+    /**
+     * Time until pipelining is tried again with an endpoint
+     */
+    private static class PipelineBackoff {
+        final long delayMillis;
+        final long retryAtMillis;
+
+        PipelineBackoff(long delayMillis) {
+            this.delayMillis = delayMillis;
+            this.retryAtMillis = System.currentTimeMillis() + delayMillis;
+        }
+    }
+
     private final PollOperation pollOperation = new PollOperation();
     private final WriteOperation writeOperation = new WriteOperation();
 
@@ -273,6 +357,23 @@ public class ModbusManagerImpl implements ModbusManager {
      */
     @Nullable
     private volatile ScheduledExecutorService scheduledThreadPoolExecutor;
+    /**
+     * Request planners of endpoints with read coalescing enabled
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusReadPlanner> readPlanners = new ConcurrentHashMap<>();
+    /**
+     * Pipelines of TCP endpoints configured with more than one transaction in flight
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusTcpPipeline> pipelines = new ConcurrentHashMap<>();
+    /**
+     * Endpoints where pipelining has failed. These use one transaction at a time until pipelining is tried again.
+     */
+    private final Map<ModbusSlaveEndpoint, PipelineBackoff> pipelineBackoffs = new ConcurrentHashMap<>();
+    /**
+     * Endpoints whose pipeline is being connected. Operations use one transaction at a time in the meantime.
+     */
+    private final Set<ModbusSlaveEndpoint> pipelinesConnecting = ConcurrentHashMap.newKeySet();
+    private final ModbusMetrics metrics = new ModbusMetrics();
     private volatile Collection<ModbusManagerListener> listeners = new CopyOnWriteArraySet<>();
     @Nullable
     private volatile ScheduledFuture<?> monitorFuture;
@@ -488,9 +589,10 @@ public class ModbusManagerImpl implements ModbusManager {
      * @param task
      * @param oneOffTask
      * @param operation
+     * @param queueMillis time the operation waited in the thread pool, for metrics
      */
     private <R extends ModbusRequestBlueprint, C extends ModbusCallback, T extends TaskWithEndpoint<R, C>> void executeOperation(
-            @NonNull T task, boolean oneOffTask, ModbusOperation<T> operation) {
+            @NonNull T task, boolean oneOffTask, ModbusOperation<T> operation, long queueMillis) {
         AggregateStopWatch timer = new AggregateStopWatch();
         timer.total.resume();
         String operationId = timer.operationId;
@@ -517,7 +619,14 @@ public class ModbusManagerImpl implements ModbusManager {
         }
 
         Optional<ModbusSlaveConnection> connection = Optional.empty();
+        boolean executed = true;
         try {
+            ModbusTcpPipeline pipeline = getPipeline(endpoint);
+            if (pipeline != null
+                    && executePipelinedOperation(timer, task, oneOffTask, operation, pipeline, lastError)) {
+                return;
+            }
+
             logger.trace("Starting new operation with task {}. Trying to get connection [operation ID {}]", task,
                     operationId);
             connection = getConnection(timer, oneOffTask, task);
@@ -527,6 +636,7 @@ public class ModbusManagerImpl implements ModbusManager {
                 // Could not acquire connection, time to abort
                 // Error logged already, error callback called as well
                 logger.trace("Initial connection was not successful, aborting. [operation ID {}]", operationId);
+                lastError.set(new ModbusConnectionException(endpoint));
                 return;
             }
 
@@ -675,6 +785,7 @@ public class ModbusManagerImpl implements ModbusManager {
         } catch (PollTaskUnregistered e) {
             logger.warn("Poll task was unregistered -- not executing/proceeding with the poll: {} [operation ID {}]",
                     e.getMessage(), operationId);
+            executed = false;
             return;
         } catch (InterruptedException e) {
             logger.warn("Poll task was canceled -- not executing/proceeding with the poll: {} [operation ID {}]",
@@ -687,7 +798,180 @@ public class ModbusManagerImpl implements ModbusManager {
             logger.trace("Connection was returned to the pool, ending operation [operation ID {}]", operationId);
             timer.suspendAllRunning();
             logger.debug("Modbus operation ended, timing info: {} [operation ID {}]", timer, operationId);
+            if (executed) {
+                metrics.record(endpoint, oneOffTask || !(task instanceof PollTask) ? null : (PollTask) task, timer,
+                        queueMillis, lastError.get() != null);
+            }
+        }
+    }
+
+    /**
+     * Get pipeline of the endpoint, connecting it if necessary
+     *
+     * @param endpoint endpoint
+     * @return pipeline, or null when the endpoint is not configured for pipelined transactions, pipelining has failed
+     *         recently with the endpoint, or connection cannot be established
+     */
+    private @Nullable ModbusTcpPipeline getPipeline(ModbusSlaveEndpoint endpoint) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        if (connectionFactory == null || !(endpoint instanceof ModbusTCPSlaveEndpoint)) {
+            return null;
+        }
+        EndpointPoolConfiguration configuration = connectionFactory.getEndpointPoolConfiguration(endpoint);
+        if (configuration == null || configuration.getMaxInFlightTransactions() <= 1) {
+            return null;
+        }
+        ModbusTcpPipeline pipeline = pipelines.get(endpoint);
+        if (pipeline != null) {
+            if (!pipeline.isClosed()) {
+                return pipeline;
+            }
+            if (pipelines.remove(endpoint, pipeline) && pipeline.isFailed()) {
+                pipelineFailed(endpoint);
+            }
+        }
+        PipelineBackoff backoff = pipelineBackoffs.get(endpoint);
+        if (backoff != null && System.currentTimeMillis() < backoff.retryAtMillis) {
+            return null;
         }
+        // Connecting blocks up to the connect timeout. Only one thread connects, the others execute their operations
+        // one transaction at a time meanwhile.
+        if (!pipelinesConnecting.add(endpoint)) {
+            return null;
+        }
+        try {
+            ModbusTcpPipeline created = createPipeline((ModbusTCPSlaveEndpoint) endpoint, configuration);
+            if (created == null) {
+                pipelineFailed(endpoint);
+                return null;
+            }
+            if (!configuration.equals(connectionFactory.getEndpointPoolConfiguration(endpoint))
+                    || this.connectionFactory != connectionFactory) {
+                // reconfigured or deactivated while connecting
+                created.close();
+                return null;
+            }
+            ModbusTcpPipeline existing = pipelines.putIfAbsent(endpoint, created);
+            if (existing != null) {
+                created.close();
+                return existing;
+            }
+            return created;
+        } finally {
+            pipelinesConnecting.remove(endpoint);
+        }
+    }
+
+    /**
+     * Make the endpoint use one transaction at a time for a while, doubling the time with every subsequent failure
+     */
+    private void pipelineFailed(ModbusSlaveEndpoint endpoint) {
+        PipelineBackoff backoff = pipelineBackoffs.compute(endpoint, (key, previous) -> new PipelineBackoff(
+                previous == null ? PIPELINE_RETRY_MIN_MILLIS
+                        : Math.min(previous.delayMillis * 2, PIPELINE_RETRY_MAX_MILLIS)));
+        logger.warn("Pipelined transactions with endpoint {} failed, using one transaction at a time for {} s",
+                endpoint, TimeUnit.MILLISECONDS.toSeconds(backoff.delayMillis));
+    }
+
+    private @Nullable ModbusTcpPipeline createPipeline(ModbusTCPSlaveEndpoint endpoint,
+            EndpointPoolConfiguration configuration) {
+        try {
+            TCPMasterConnection connection = new TCPMasterConnection(InetAddress.getByName(endpoint.getAddress()),
+                    endpoint.getPort(), configuration.getConnectTimeoutMillis());
+            connection.connect();
+            // Reader of the pipeline blocks until the next response, or until the connection is closed. Response
+            // timeouts are handled by the pipeline.
+            connection.setTimeout(0);
+            ModbusTransport transport = connection.getModbusTransport();
+            ModbusTcpPipeline pipeline = new ModbusTcpPipeline(endpoint, new ModbusTcpPipeline.Transport() {
+
+                @Override
+                public void write(ModbusRequest request) throws ModbusIOException {
+                    transport.writeMessage(request);
+                }
+
+                @Override
+                public ModbusResponse read() throws ModbusIOException {
+                    return transport.readResponse();
+                }
+
+                @Override
+                public void close() {
+                    connection.close();
+                }
+            }, configuration.getMaxInFlightTransactions(), configuration.getResponseTimeoutMillis());
+            pipeline.start();
+            logger.debug("Connected pipeline {}", pipeline);
+            return pipeline;
+        } catch (Exception e) {
+            logger.warn("Could not connect to endpoint {} for pipelined transactions: {} {}", endpoint,
+                    e.getClass().getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Execute operation over the pipeline of the endpoint, using a retry mechanism.
+     *
+     * Errors are handled like in {@link #executeOperation(TaskWithEndpoint, boolean, ModbusOperation, long)}, except
+     * when the pipeline fails. The operation is then left for the caller to execute one transaction at a time.
+     *
+     * @param lastError error of the last try, set when the operation fails
+     * @return whether the operation was handled, false when the pipeline failed
+     * @throws PollTaskUnregistered
+     */
+    private <R extends ModbusRequestBlueprint, C extends ModbusCallback, T extends TaskWithEndpoint<R, C>> boolean executePipelinedOperation(
+            AggregateStopWatch timer, T task, boolean oneOffTask, ModbusOperation<T> operation,
+            ModbusTcpPipeline pipeline, AtomicReference<@Nullable Exception> lastError) throws PollTaskUnregistered {
+        String operationId = timer.operationId;
+        R request = task.getRequest();
+        @Nullable
+        C callback = task.getCallback();
+        int maxTries = task.getMaxTries();
+        for (int tryIndex = 1; tryIndex <= maxTries; tryIndex++) {
+            if (Thread.interrupted()) {
+                logger.warn("Thread interrupted. Aborting operation [operation ID {}]", operationId);
+                return true;
+            }
+            if (!oneOffTask && task instanceof PollTask) {
+                verifyTaskIsRegistered((PollTask) task);
+            }
+            Exception error;
+            try {
+                operation.accept(timer, task, pipeline);
+                lastError.set(null);
+                pipelineBackoffs.remove(task.getEndpoint());
+                return true;
+            } catch (ModbusIOException e) {
+                if (pipeline.isFailed()) {
+                    logger.debug(
+                            "Pipeline failed when executing request ({}), executing without pipelining [operation ID {}]",
+                            request, operationId);
+                    lastError.set(null);
+                    return false;
+                }
+                error = new ModbusSlaveIOExceptionImpl(e);
+            } catch (ModbusSlaveException e) {
+                error = new ModbusSlaveErrorResponseExceptionImpl(e);
+            } catch (ModbusException e) {
+                error = e;
+            }
+            lastError.set(error);
+            if (tryIndex < maxTries) {
+                logger.warn(
+                        "Try {} out of {} failed when executing pipelined request ({}). Will try again soon. Error was: {} {} [operation ID {}]",
+                        tryIndex, maxTries, request, error.getClass().getName(), error.getMessage(), operationId);
+            } else {
+                logger.error(
+                        "Last try {} failed when executing pipelined request ({}). Aborting. Error was: {} {} [operation ID {}]",
+                        tryIndex, request, error.getClass().getName(), error.getMessage(), operationId);
+            }
+        }
+        Exception exception = lastError.get();
+        if (exception != null && callback != null) {
+            timer.callback.timeRunnable(() -> invokeCallbackWithError(request, callback, exception));
+        }
+        return true;
     }
 
     @Override
@@ -700,7 +984,7 @@ public class ModbusManagerImpl implements ModbusManager {
             long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
             logger.debug("Will now execute one-off poll task {}, waited in thread pool for {}", task,
                     millisInThreadPoolWaiting);
-            executeOperation(task, true, pollOperation);
+            executeOperation(task, true, pollOperation, millisInThreadPoolWaiting);
         }, 0L, TimeUnit.MILLISECONDS);
         return future;
     }
@@ -716,23 +1000,49 @@ public class ModbusManagerImpl implements ModbusManager {
                 logger.trace("Unregistering previous poll task (possibly with different period)");
                 unregisterRegularPoll(task);
             }
+            long registered = System.currentTimeMillis();
+            AtomicLong lastFinished = new AtomicLong(-1);
             ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
                 long started = System.currentTimeMillis();
                 logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task,
                         started);
-                executeOperation(task, false, pollOperation);
+                long previous = lastFinished.get();
+                long due = previous < 0 ? registered + initialDelayMillis : previous + pollPeriodMillis;
+                executePoll(task, Math.max(0, started - due));
                 long finished = System.currentTimeMillis();
+                lastFinished.set(finished);
                 logger.debug(
                         "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
                         pollPeriodMillis, task, finished, started, finished - started);
             }, initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
 
+            metrics.pollRegistered(task);
             scheduledPollTasks.put(task, future);
             logger.trace("Registered poll task {} with period {} using initial delay {}", task, pollPeriodMillis,
                     initialDelayMillis);
         }
     }
 
+    /**
+     * Execute regular poll, merging it with other due polls of the same endpoint if enabled in the endpoint
+     * configuration
+     *
+     * @param task registered poll task
+     * @param queueMillis time the poll waited in the thread pool, for metrics
+     */
+    private void executePoll(PollTask task, long queueMillis) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        EndpointPoolConfiguration configuration = connectionFactory == null ? null
+                : connectionFactory.getEndpointPoolConfiguration(task.getEndpoint());
+        if (configuration == null || !configuration.isCoalesceReads()) {
+            executeOperation(task, false, pollOperation, queueMillis);
+            return;
+        }
+        ModbusReadPlanner planner = readPlanners.computeIfAbsent(task.getEndpoint(), ModbusReadPlanner::new);
+        planner.submit(task, configuration.getCoalesceGapTolerance(), scheduledPollTasks::containsKey,
+                (plannedTask, merged) -> executeOperation(plannedTask, merged, pollOperation, queueMillis));
+    }
+
     @SuppressWarnings({ "null", "unused" })
     @Override
     public boolean unregisterRegularPoll(PollTask task) {
@@ -751,6 +1061,7 @@ public class ModbusManagerImpl implements ModbusManager {
                 return false;
             }
             logger.info("Unregistering regular poll task {} (interrupting if necessary)", task);
+            metrics.pollUnregistered(task);
 
             // Make sure connections to this endpoint are closed when they are returned to pool (which
             // is usually pretty soon as transactions should be relatively short-lived)
@@ -785,7 +1096,7 @@ public class ModbusManagerImpl implements ModbusManager {
             long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
             logger.debug("Will now execute one-off write task {}, waited in thread pool for {}", task,
                     millisInThreadPoolWaiting);
-            executeOperation(task, true, writeOperation);
+            executeOperation(task, true, writeOperation, millisInThreadPoolWaiting);
         }, 0L, TimeUnit.MILLISECONDS);
         return future;
     }
@@ -795,6 +1106,12 @@ public class ModbusManagerImpl implements ModbusManager {
             @Nullable EndpointPoolConfiguration configuration) {
         Objects.requireNonNull(connectionFactory, "Not activated!");
         connectionFactory.setEndpointPoolConfiguration(endpoint, configuration);
+        // Pipeline is re-created with the new configuration, and pipelining is tried again right away after failures
+        ModbusTcpPipeline pipeline = pipelines.remove(endpoint);
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        pipelineBackoffs.remove(endpoint);
         for (ModbusManagerListener listener : listeners) {
             listener.onEndpointPoolConfigurationSet(endpoint, configuration);
         }
@@ -821,6 +1138,56 @@ public class ModbusManagerImpl implements ModbusManager {
         return this.scheduledPollTasks.keySet();
     }
 
+    /**
+     * Get request planners of the endpoints which have read coalescing enabled, with statistics of the saved
+     * transactions
+     *
+     * @return planners by endpoint
+     */
+    public Map<ModbusSlaveEndpoint, ModbusReadPlanner> getReadPlanners() {
+        return Collections.unmodifiableMap(readPlanners);
+    }
+
+    /**
+     * Get pipelines of the endpoints which have pipelined transactions enabled
+     *
+     * @return pipelines by endpoint
+     */
+    public Map<ModbusSlaveEndpoint, ModbusTcpPipeline> getPipelines() {
+        return Collections.unmodifiableMap(pipelines);
+    }
+
+    /**
+     * Get latency and outcome statistics of the executed operations
+     *
+     * @return statistics by endpoint and by registered regular poll
+     */
+    public ModbusMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get number of idle connections to the endpoint in the connection pool
+     *
+     * @param endpoint endpoint
+     * @return number of idle connections, or zero when the manager is not active
+     */
+    public int getIdleConnections(ModbusSlaveEndpoint endpoint) {
+        KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> connectionPool = this.connectionPool;
+        return connectionPool == null ? 0 : connectionPool.getNumIdle(endpoint);
+    }
+
+    /**
+     * Get number of connections to the endpoint currently borrowed from the connection pool
+     *
+     * @param endpoint endpoint
+     * @return number of active connections, or zero when the manager is not active
+     */
+    public int getActiveConnections(ModbusSlaveEndpoint endpoint) {
+        KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> connectionPool = this.connectionPool;
+        return connectionPool == null ? 0 : connectionPool.getNumActive(endpoint);
+    }
+
     @Activate
     protected void activate(Map<String, Object> configProperties) {
         synchronized (this) {
@@ -864,6 +1231,10 @@ public class ModbusManagerImpl implements ModbusManager {
             // when pool is received from ThreadPoolManager is called
             scheduledThreadPoolExecutor = null;
             connectionFactory = null;
+            readPlanners.clear();
+            pipelines.values().forEach(ModbusTcpPipeline::close);
+            pipelines.clear();
+            pipelineBackoffs.clear();
             logger.debug("Modbus manager deactivated");
         }
     }
@@ -887,6 +1258,12 @@ public class ModbusManagerImpl implements ModbusManager {
                         task.getRequest().getDataLength(), future.isDone(), future.isCancelled(),
                         future.getDelay(TimeUnit.MILLISECONDS), task);
             });
+            this.readPlanners.forEach((endpoint, planner) -> {
+                pollMonitorLogger.trace("POLL MONITOR: read planner {}", planner);
+            });
+            this.pipelines.forEach((endpoint, pipeline) -> {
+                pollMonitorLogger.trace("POLL MONITOR: pipeline {}", pipeline);
+            });
             if (scheduledThreadPoolExecutor instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor executor = ((ThreadPoolExecutor) scheduledThreadPoolExecutor);
                 pollMonitorLogger.trace(
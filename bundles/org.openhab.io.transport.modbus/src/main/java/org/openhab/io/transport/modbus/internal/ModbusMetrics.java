@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+/**
+ * Latency and outcome statistics of the operations executed by {@link ModbusManagerImpl}
+ *
+ * Statistics are collected per endpoint, and per registered regular poll. Recording is lock-free, so that it can be
+ * kept enabled in production.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusMetrics {
+
+    /**
+     * Upper bounds of the round-trip histogram buckets, in milliseconds. The last bucket of the histogram counts the
+     * round-trips longer than any of these.
+     */
+    public static final long[] ROUND_TRIP_BUCKETS_MILLIS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+
+    /**
+     * Count, average and maximum of durations
+     */
+    public static class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0);
+
+        void record(long millis) {
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulate(millis);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getAverageMillis() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) totalMillis.sum() / count;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("avg %.1f ms, max %d ms", getAverageMillis(), getMaxMillis());
+        }
+    }
+
+    /**
+     * Histogram of durations, with buckets as in {@link ModbusMetrics#ROUND_TRIP_BUCKETS_MILLIS}
+     */
+    public static class Histogram extends Timing {
+        private final AtomicLongArray buckets = new AtomicLongArray(ROUND_TRIP_BUCKETS_MILLIS.length + 1);
+
+        @Override
+        void record(long millis) {
+            super.record(millis);
+            int bucket = 0;
+            while (bucket < ROUND_TRIP_BUCKETS_MILLIS.length && millis > ROUND_TRIP_BUCKETS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+
+        /**
+         * Get number of durations in each bucket
+         *
+         * @return counts, one more than there are {@link ModbusMetrics#ROUND_TRIP_BUCKETS_MILLIS}
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        /**
+         * Estimate a percentile as the upper bound of the bucket containing it
+         *
+         * @param percentile percentile, between 0 and 100
+         * @return upper bound of the bucket in milliseconds, or maximum duration for the last bucket
+         */
+        public long getPercentileMillis(double percentile) {
+            long[] counts = getBucketCounts();
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(total * percentile / 100);
+            long cumulative = 0;
+            for (int i = 0; i < ROUND_TRIP_BUCKETS_MILLIS.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= threshold) {
+                    return ROUND_TRIP_BUCKETS_MILLIS[i];
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, p50 <= %d ms, p95 <= %d ms", super.toString(), getPercentileMillis(50),
+                    getPercentileMillis(95));
+        }
+    }
+
+    /**
+     * Statistics of operations of a single endpoint or poll
+     */
+    public static class OperationMetrics {
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final Timing queue = new Timing();
+        private final Timing connection = new Timing();
+        private final Histogram roundTrip = new Histogram();
+        private final Timing callback = new Timing();
+        private final Timing total = new Timing();
+
+        void record(AggregateStopWatch timer, long queueMillis, boolean failed) {
+            operations.increment();
+            if (failed) {
+                failures.increment();
+            }
+            if (timer.transactionTries.size() > 1) {
+                retries.add(timer.transactionTries.size() - 1);
+            }
+            queue.record(queueMillis);
+            connection.record(timer.connection.getTotalTimeMillis());
+            timer.transactionTries.forEach(roundTrip::record);
+            callback.record(timer.callback.getTotalTimeMillis());
+            total.record(timer.total.getTotalTimeMillis());
+        }
+
+        /**
+         * Get number of executed operations
+         */
+        public long getOperations() {
+            return operations.sum();
+        }
+
+        /**
+         * Get number of operations that failed after all tries
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * Get number of retried transactions
+         */
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        /**
+         * Get time the operations waited in the thread pool before execution
+         */
+        public Timing getQueue() {
+            return queue;
+        }
+
+        /**
+         * Get time spent borrowing, invalidating and returning connections
+         */
+        public Timing getConnection() {
+            return connection;
+        }
+
+        /**
+         * Get round-trip times of the individual transactions
+         */
+        public Histogram getRoundTrip() {
+            return roundTrip;
+        }
+
+        /**
+         * Get time spent executing the callbacks
+         */
+        public Timing getCallback() {
+            return callback;
+        }
+
+        /**
+         * Get total execution time of the operations, excluding the time waited in the thread pool
+         */
+        public Timing getTotal() {
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "OperationMetrics(operations=%d, failures=%d, retries=%d, queue=[%s], connection=[%s], roundTrip=[%s], callback=[%s], total=[%s])",
+                    getOperations(), getFailures(), getRetries(), queue, connection, roundTrip, callback, total);
+        }
+    }
+
+    private final Map<ModbusSlaveEndpoint, OperationMetrics> endpoints = new ConcurrentHashMap<>();
+    private final Map<PollTask, OperationMetrics> polls = new ConcurrentHashMap<>();
+
+    /**
+     * Start collecting statistics of a regular poll
+     */
+    void pollRegistered(PollTask task) {
+        polls.put(task, new OperationMetrics());
+    }
+
+    /**
+     * Stop collecting statistics of a regular poll
+     */
+    void pollUnregistered(PollTask task) {
+        polls.remove(task);
+    }
+
+    /**
+     * Record statistics of a completed operation
+     *
+     * @param endpoint endpoint of the operation
+     * @param poll registered regular poll of the operation, or null with one-off operations
+     * @param timer timing of the operation
+     * @param queueMillis time the operation waited in the thread pool
+     * @param failed whether the operation failed after all tries
+     */
+    void record(ModbusSlaveEndpoint endpoint, @Nullable PollTask poll, AggregateStopWatch timer, long queueMillis,
+            boolean failed) {
+        endpoints.computeIfAbsent(endpoint, key -> new OperationMetrics()).record(timer, queueMillis, failed);
+        OperationMetrics pollMetrics = poll == null ? null : polls.get(poll);
+        if (pollMetrics != null) {
+            pollMetrics.record(timer, queueMillis, failed);
+        }
+    }
+
+    /**
+     * Get statistics by endpoint
+     */
+    public Map<ModbusSlaveEndpoint, OperationMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    /**
+     * Get statistics by registered regular poll
+     */
+    public Map<PollTask, OperationMetrics> getPolls() {
+        return Collections.unmodifiableMap(polls);
+    }
+
+    /**
+     * Reset all statistics
+     */
+    public void reset() {
+        endpoints.clear();
+        polls.replaceAll((task, metrics) -> new OperationMetrics());
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request planner of a single endpoint, merging regular polls into fewer read requests
+ *
+ * Polls that become due while a previous batch of polls is still executing are queued. When the batch is done, all the
+ * queued polls are planned at once: polls with the same unit id and function code that overlap or are at most
+ * <code>gapTolerance</code> registers (or bits) apart are merged into a single read request, as long as the merged
+ * request stays within the maximum length allowed by the protocol. The response of the merged request is split and
+ * passed to the callbacks of the original polls.
+ *
+ * This is most useful with slow serial lines, where every saved transaction means saved round-trip time.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusReadPlanner {
+
+    /**
+     * Maximum number of registers in a single read request (function codes 3 and 4)
+     */
+    public static final int MAX_REGISTERS_PER_READ = 125;
+
+    /**
+     * Maximum number of bits in a single read request (function codes 1 and 2)
+     */
+    public static final int MAX_BITS_PER_READ = 2000;
+
+    /**
+     * Executes the planned poll tasks
+     */
+    @FunctionalInterface
+    public interface PollExecutor {
+
+        /**
+         * Execute the poll task
+         *
+         * @param task task to execute
+         * @param merged true if the task is a merged task which is not registered with the manager
+         */
+        void execute(PollTask task, boolean merged);
+    }
+
+    /**
+     * Single read request of the plan, covering one or more original poll tasks
+     */
+    public static class PlannedRead {
+        private final ModbusReadRequestBlueprint request;
+        private final List<PollTask> tasks;
+
+        private PlannedRead(ModbusReadRequestBlueprint request, List<PollTask> tasks) {
+            this.request = request;
+            this.tasks = Collections.unmodifiableList(tasks);
+        }
+
+        public ModbusReadRequestBlueprint getRequest() {
+            return request;
+        }
+
+        public List<PollTask> getTasks() {
+            return tasks;
+        }
+
+        public boolean isMerged() {
+            return tasks.size() > 1;
+        }
+
+        /**
+         * Get task executing the planned read.
+         *
+         * @return the original task if nothing was merged, otherwise a new task fanning out the response
+         */
+        public PollTask toPollTask() {
+            if (!isMerged()) {
+                return tasks.get(0);
+            }
+            ModbusSlaveEndpoint endpoint = tasks.get(0).getEndpoint();
+            return new BasicPollTaskImpl(endpoint, (BasicModbusReadRequestBlueprint) request,
+                    new FanOutReadCallback(request, tasks));
+        }
+    }
+
+    /**
+     * Callback splitting the response of a merged read to the callbacks of the original poll tasks
+     */
+    static class FanOutReadCallback implements ModbusReadCallback {
+        private final Logger logger = LoggerFactory.getLogger(FanOutReadCallback.class);
+
+        private final ModbusReadRequestBlueprint merged;
+        private final List<PollTask> tasks;
+
+        FanOutReadCallback(ModbusReadRequestBlueprint merged, List<PollTask> tasks) {
+            this.merged = merged;
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            // slices of the response are views to the same data
+            ByteBufferModbusRegisterArray data = ByteBufferModbusRegisterArray.copyOf(registers);
+            for (PollTask task : tasks) {
+                ModbusReadRequestBlueprint original = task.getRequest();
+                int offset = original.getReference() - merged.getReference();
+                int length = original.getDataLength();
+                if (offset + length > registers.size()) {
+                    invokeError(task, new IllegalStateException(String.format(
+                            "Response of merged request %s contains only %d registers", merged, registers.size())));
+                    continue;
+                }
+                ModbusRegisterArray slice = data.slice(offset, length);
+                ModbusReadCallback callback = task.getCallback();
+                if (callback != null) {
+                    invoke(task, () -> callback.onRegisters(original, slice));
+                }
+            }
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            for (PollTask task : tasks) {
+                ModbusReadRequestBlueprint original = task.getRequest();
+                int offset = original.getReference() - merged.getReference();
+                BasicBitArray slice = new BasicBitArray(original.getDataLength());
+                if (offset + slice.size() > bits.size()) {
+                    invokeError(task, new IllegalStateException(
+                            String.format("Response of merged request %s contains only %d bits", merged, bits.size())));
+                    continue;
+                }
+                for (int i = 0; i < slice.size(); i++) {
+                    slice.setBit(i, bits.getBit(offset + i));
+                }
+                ModbusReadCallback callback = task.getCallback();
+                if (callback != null) {
+                    invoke(task, () -> callback.onBits(original, slice));
+                }
+            }
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            for (PollTask task : tasks) {
+                invokeError(task, error);
+            }
+        }
+
+        private void invokeError(PollTask task, Exception error) {
+            ModbusReadCallback callback = task.getCallback();
+            if (callback != null) {
+                invoke(task, () -> callback.onError(task.getRequest(), error));
+            }
+        }
+
+        /**
+         * Invoke callback of one task such that a failing callback does not prevent calling the others
+         */
+        private void invoke(PollTask task, Runnable invocation) {
+            try {
+                invocation.run();
+            } catch (RuntimeException e) {
+                logger.error("Callback of poll task {} failed when handling the response of merged request {}", task,
+                        merged, e);
+            }
+        }
+    }
+
+    private static class GroupKey {
+        private final int unitId;
+        private final ModbusReadFunctionCode functionCode;
+
+        private GroupKey(ModbusReadRequestBlueprint request) {
+            this.unitId = request.getUnitID();
+            this.functionCode = request.getFunctionCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(unitId, functionCode);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof GroupKey)) {
+                return false;
+            }
+            GroupKey other = (GroupKey) obj;
+            return unitId == other.unitId && functionCode == other.functionCode;
+        }
+    }
+
+    private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
+
+    static {
+        toStringStyle.setUseShortClassName(true);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusReadPlanner.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final Set<PollTask> pending = new LinkedHashSet<>();
+    private boolean draining;
+
+    private final AtomicLong requestedReads = new AtomicLong();
+    private final AtomicLong executedReads = new AtomicLong();
+    private final AtomicLong mergedReads = new AtomicLong();
+
+    public ModbusReadPlanner(ModbusSlaveEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Submit a poll task which is due.
+     *
+     * If no other thread is executing polls of this endpoint, the calling thread executes all the queued tasks
+     * (including this one) until the queue is empty. Otherwise the task is only queued, and executed by the other
+     * thread together with other queued polls.
+     *
+     * @param task poll task to execute
+     * @param gapTolerance maximum number of unrequested registers or bits between merged polls
+     * @param isRegistered tells whether a queued task is still registered. Unregistered tasks are dropped.
+     * @param executor executor for the planned reads
+     */
+    public void submit(PollTask task, int gapTolerance, Predicate<PollTask> isRegistered, PollExecutor executor) {
+        synchronized (this) {
+            pending.add(task);
+            if (draining) {
+                logger.trace("Queued poll task {}, polls of endpoint {} are being executed", task, endpoint);
+                return;
+            }
+            draining = true;
+        }
+        try {
+            while (true) {
+                List<PollTask> batch;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending);
+                    pending.clear();
+                }
+                batch.removeIf(isRegistered.negate());
+                List<PlannedRead> plan = plan(batch, gapTolerance);
+                requestedReads.addAndGet(batch.size());
+                executedReads.addAndGet(plan.size());
+                for (PlannedRead read : plan) {
+                    if (read.isMerged()) {
+                        mergedReads.incrementAndGet();
+                        logger.debug("Merged {} poll tasks of endpoint {} into a single request {}",
+                                read.getTasks().size(), endpoint, read.getRequest());
+                    }
+                    executor.execute(read.toPollTask(), read.isMerged());
+                }
+            }
+        } finally {
+            synchronized (this) {
+                // in case the executor failed unexpectedly
+                draining = false;
+            }
+        }
+    }
+
+    /**
+     * Plan read requests for the given poll tasks
+     *
+     * @param tasks poll tasks to plan
+     * @param gapTolerance maximum number of unrequested registers or bits between merged polls
+     * @return planned reads, covering each of the tasks exactly once
+     */
+    public static List<PlannedRead> plan(Collection<PollTask> tasks, int gapTolerance) {
+        Map<GroupKey, List<PollTask>> groups = new LinkedHashMap<>();
+        for (PollTask task : tasks) {
+            groups.computeIfAbsent(new GroupKey(task.getRequest()), key -> new ArrayList<>()).add(task);
+        }
+
+        List<PlannedRead> plan = new ArrayList<>(tasks.size());
+        for (List<PollTask> group : groups.values()) {
+            group.sort(Comparator.comparingInt(task -> task.getRequest().getReference()));
+            List<PollTask> merged = new ArrayList<>();
+            int start = 0;
+            int end = 0;
+            for (PollTask task : group) {
+                ModbusReadRequestBlueprint request = task.getRequest();
+                int taskStart = request.getReference();
+                int taskEnd = taskStart + request.getDataLength();
+                if (!merged.isEmpty() && taskStart <= end + Math.max(gapTolerance, 0)
+                        && Math.max(end, taskEnd) - start <= maxLength(request.getFunctionCode())) {
+                    end = Math.max(end, taskEnd);
+                    merged.add(task);
+                    continue;
+                }
+                if (!merged.isEmpty()) {
+                    plan.add(toPlannedRead(merged, start, end));
+                }
+                merged = new ArrayList<>();
+                merged.add(task);
+                start = taskStart;
+                end = taskEnd;
+            }
+            if (!merged.isEmpty()) {
+                plan.add(toPlannedRead(merged, start, end));
+            }
+        }
+        return plan;
+    }
+
+    private static PlannedRead toPlannedRead(List<PollTask> tasks, int start, int end) {
+        if (tasks.size() == 1) {
+            return new PlannedRead(tasks.get(0).getRequest(), tasks);
+        }
+        ModbusReadRequestBlueprint first = tasks.get(0).getRequest();
+        int maxTries = tasks.stream().mapToInt(task -> task.getRequest().getMaxTries()).max().orElse(1);
+        return new PlannedRead(new BasicModbusReadRequestBlueprint(first.getUnitID(), first.getFunctionCode(), start,
+                end - start, maxTries), tasks);
+    }
+
+    private static int maxLength(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return MAX_BITS_PER_READ;
+            default:
+                return MAX_REGISTERS_PER_READ;
+        }
+    }
+
+    /**
+     * Get number of poll tasks submitted for execution
+     */
+    public long getRequestedReads() {
+        return requestedReads.get();
+    }
+
+    /**
+     * Get number of read transactions executed for the submitted poll tasks
+     */
+    public long getExecutedReads() {
+        return executedReads.get();
+    }
+
+    /**
+     * Get number of executed reads that were merged from several poll tasks
+     */
+    public long getMergedReads() {
+        return mergedReads.get();
+    }
+
+    /**
+     * Get number of transactions saved by merging poll tasks
+     */
+    public long getSavedTransactions() {
+        return requestedReads.get() - executedReads.get();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, toStringStyle).append("endpoint", endpoint)
+                .append("requestedReads", getRequestedReads()).append("executedReads", getExecutedReads())
+                .append("mergedReads", getMergedReads()).append("savedTransactions", getSavedTransactions())
+                .toString();
+    }
+}
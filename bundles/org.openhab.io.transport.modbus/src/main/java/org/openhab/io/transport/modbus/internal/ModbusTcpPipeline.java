@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.wimpi.modbus.Modbus;
+import net.wimpi.modbus.ModbusException;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.ModbusSlaveException;
+import net.wimpi.modbus.msg.ExceptionResponse;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+
+/**
+ * Pipelined transactions over a single Modbus TCP connection
+ *
+ * Several threads can execute transactions concurrently: each request is written immediately with a unique
+ * transaction id, and a reader thread passes the responses to the waiting threads by their transaction id. The number
+ * of requests waiting for response is limited to <code>maxInFlight</code>.
+ *
+ * The pipeline fails permanently when the slave misbehaves, that is, when it sends a response with an unexpected
+ * transaction id, does not respond in time, or the connection breaks. Pending and further transactions are then
+ * failed with {@link ModbusIOException}, and the caller is expected to fall back to one transaction at a time.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusTcpPipeline {
+
+    /**
+     * Connection used by the pipeline
+     */
+    public interface Transport {
+
+        /**
+         * Write request to the connection. Not called concurrently.
+         */
+        void write(ModbusRequest request) throws ModbusIOException;
+
+        /**
+         * Block until the next response has been read from the connection
+         */
+        ModbusResponse read() throws ModbusIOException;
+
+        /**
+         * Close the connection, unblocking {@link #read()}
+         */
+        void close();
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusTcpPipeline.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final Transport transport;
+    private final int maxInFlight;
+    private final long responseTimeoutMillis;
+    private final Semaphore permits;
+    private final Map<Integer, CompletableFuture<ModbusResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final Thread reader;
+    private final AtomicLong transactions = new AtomicLong();
+
+    private int lastTransactionId;
+    private volatile boolean closed;
+    private volatile @Nullable String failure;
+
+    /**
+     * Construct pipeline over a connected transport. Call {@link #start()} before executing transactions.
+     *
+     * @param endpoint endpoint of the connection, for logging
+     * @param transport connection to the endpoint
+     * @param maxInFlight maximum number of requests waiting for response
+     * @param responseTimeoutMillis how long to wait for the response of a request
+     */
+    public ModbusTcpPipeline(ModbusSlaveEndpoint endpoint, Transport transport, int maxInFlight,
+            long responseTimeoutMillis) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight should be positive");
+        }
+        this.endpoint = endpoint;
+        this.transport = transport;
+        this.maxInFlight = maxInFlight;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+        this.permits = new Semaphore(maxInFlight, true);
+        this.reader = new Thread(this::readResponses, "OH-modbus-pipeline-" + endpoint);
+        this.reader.setDaemon(true);
+    }
+
+    public void start() {
+        reader.start();
+    }
+
+    /**
+     * Execute transaction, blocking until the response has been received
+     *
+     * @param request request to send. The transaction id of the request is overwritten.
+     * @return response of the slave
+     * @throws ModbusSlaveException when slave responds with an exception response
+     * @throws ModbusIOException on I/O errors, timeouts and when the pipeline has failed. Thread interrupted flag is
+     *             set in case the thread was interrupted while waiting.
+     */
+    public ModbusResponse execute(ModbusRequest request) throws ModbusException {
+        checkUsable();
+        try {
+            if (!permits.tryAcquire(responseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ModbusIOException(
+                        String.format("Timeout waiting for a free slot in the pipeline (%d in flight)", maxInFlight));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusIOException("Interrupted while waiting for a free slot in the pipeline");
+        }
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        int transactionId = -1;
+        try {
+            synchronized (writeLock) {
+                checkUsable();
+                transactionId = nextTransactionId();
+                request.setTransactionID(transactionId);
+                inFlight.put(transactionId, future);
+                try {
+                    transport.write(request);
+                } catch (ModbusIOException e) {
+                    fail(String.format("writing request failed: %s", e.getMessage()));
+                    throw e;
+                }
+            }
+            ModbusResponse response = future.get(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+            transactions.incrementAndGet();
+            if (response instanceof ExceptionResponse) {
+                throw new ModbusSlaveException(((ExceptionResponse) response).getExceptionCode());
+            }
+            return response;
+        } catch (TimeoutException e) {
+            fail(String.format("no response to transaction %d within %d ms", transactionId, responseTimeoutMillis));
+            throw new ModbusIOException(String.format("No response to transaction %d within %d ms", transactionId,
+                    responseTimeoutMillis));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ModbusException) {
+                throw (ModbusException) cause;
+            }
+            throw new ModbusIOException(String.valueOf(cause));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusIOException("Interrupted while waiting for response");
+        } finally {
+            if (transactionId >= 0) {
+                inFlight.remove(transactionId);
+            }
+            permits.release();
+        }
+    }
+
+    private void checkUsable() throws ModbusIOException {
+        if (closed) {
+            throw new ModbusIOException(String.format("Pipeline to %s is closed (%s)", endpoint,
+                    failure == null ? "not failed" : failure));
+        }
+    }
+
+    private int nextTransactionId() {
+        // transaction id 0 is left for non-pipelined transactions
+        lastTransactionId = lastTransactionId >= Modbus.MAX_TRANSACTION_ID ? 1 : lastTransactionId + 1;
+        return lastTransactionId;
+    }
+
+    private void readResponses() {
+        while (!closed) {
+            try {
+                ModbusResponse response = transport.read();
+                CompletableFuture<ModbusResponse> future = inFlight.get(response.getTransactionID());
+                if (future == null) {
+                    fail(String.format("response with unexpected transaction id %d", response.getTransactionID()));
+                    return;
+                }
+                future.complete(response);
+            } catch (ModbusIOException | RuntimeException e) {
+                if (!closed) {
+                    fail(String.format("reading response failed: %s", e.getMessage()));
+                }
+                return;
+            }
+        }
+    }
+
+    private void fail(String reason) {
+        synchronized (this) {
+            if (failure == null && !closed) {
+                failure = reason;
+                logger.warn("Pipelined transactions with endpoint {} failed: {}. Falling back to one transaction at "
+                        + "a time.", endpoint, reason);
+            }
+        }
+        close();
+    }
+
+    /**
+     * Close the connection, failing all pending transactions
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        transport.close();
+        ModbusIOException error = new ModbusIOException(String.format("Pipeline to %s closed", endpoint));
+        inFlight.values().forEach(future -> future.completeExceptionally(error));
+    }
+
+    /**
+     * Whether the pipeline has failed due to misbehaving slave or broken connection
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Get number of requests currently waiting for response
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Get number of transactions completed with a response
+     */
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ModbusTcpPipeline(endpoint=%s, maxInFlight=%d, inFlight=%d, transactions=%d%s)",
+                endpoint, maxInFlight, getInFlight(), getTransactions(),
+                failure == null ? "" : ", failure=" + failure);
+    }
+}
@@ -113,10 +113,13 @@ public class ModbusSlaveConnectionFactoryImpl
                 }
                 EndpointPoolConfiguration config = getEndpointPoolConfiguration(key);
                 int connectTimeoutMillis = 0;
+                int responseTimeoutMillis = EndpointPoolConfiguration.DEFAULT_RESPONSE_TIMEOUT_MILLIS;
                 if (config != null) {
                     connectTimeoutMillis = config.getConnectTimeoutMillis();
+                    responseTimeoutMillis = config.getResponseTimeoutMillis();
                 }
                 TCPMasterConnection connection = new TCPMasterConnection(address, key.getPort(), connectTimeoutMillis);
+                connection.setTimeout(responseTimeoutMillis);
                 logger.trace("Created connection {} for endpoint {}", connection, key);
                 return connection;
             }
@@ -33,6 +33,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.openhab.io.transport.modbus.BasicModbusRegister;
 import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
 import org.openhab.io.transport.modbus.ModbusBitUtilities;
 import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
 import org.openhab.io.transport.modbus.ModbusRegister;
@@ -385,14 +386,23 @@ public class BitUtilitiesExtractStateFromRegistersTest {
 
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
     public void testCommandToRegisters() {
+        testExtractState(this.registers);
+    }
+
+    @Test
+    public void testExtractStateFromByteBufferRegisters() {
+        testExtractState(ByteBufferModbusRegisterArray.copyOf(this.registers));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void testExtractState(ModbusRegisterArray registers) {
         if (expectedResult instanceof Class && Exception.class.isAssignableFrom((Class) expectedResult)) {
             shouldThrow.expect((Class) expectedResult);
         }
 
-        Optional<@NonNull DecimalType> actualState = ModbusBitUtilities.extractStateFromRegisters(this.registers,
+        Optional<@NonNull DecimalType> actualState = ModbusBitUtilities.extractStateFromRegisters(registers,
                 this.index, this.type);
         // Wrap given expectedResult to Optional, if necessary
         Optional<@NonNull DecimalType> expectedStateWrapped = expectedResult instanceof DecimalType
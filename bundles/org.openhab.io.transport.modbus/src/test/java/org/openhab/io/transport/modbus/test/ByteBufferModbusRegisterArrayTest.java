@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ByteBufferModbusRegisterArrayTest {
+
+    private final ByteBufferModbusRegisterArray registers = ByteBufferModbusRegisterArray
+            .copyOf(new BasicModbusRegisterArray(0x1234, 0xfedc, 0x4049, 0x0fdb, 0x0001));
+
+    @Test
+    public void testRegisters() {
+        assertThat(registers.size(), is(equalTo(5)));
+        assertThat(registers.getRegister(1).toUnsignedShort(), is(equalTo(0xfedc)));
+        assertThat(registers.toHexString(), is(equalTo("12 34 fe dc 40 49 0f db 00 01")));
+    }
+
+    @Test
+    public void testPrimitives() {
+        assertThat(registers.getInt16(1), is(equalTo((short) 0xfedc)));
+        assertThat(registers.getUInt16(1), is(equalTo(0xfedc)));
+        assertThat(registers.getInt32(0), is(equalTo(0x1234fedc)));
+        assertThat(registers.getFloat32(2), is(equalTo(3.1415927f)));
+        assertThat(registers.getInt64(1), is(equalTo(0xfedc40490fdb0001L)));
+    }
+
+    @Test
+    public void testSliceSharesData() {
+        ByteBufferModbusRegisterArray slice = registers.slice(2, 2);
+        assertThat(slice.size(), is(equalTo(2)));
+        assertThat(slice.getFloat32(0), is(equalTo(3.1415927f)));
+        assertThat(ModbusBitUtilities.extractFloatFromRegisters(slice, 0, ValueType.FLOAT32),
+                is(equalTo(3.1415927f)));
+        assertThat(registers.slice(5, 0).size(), is(equalTo(0)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() {
+        registers.slice(2, 4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceIsBounded() {
+        registers.slice(0, 2).getUInt16(2);
+    }
+
+    @Test
+    public void testExtractLong() {
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 0, ValueType.INT32_SWAP),
+                is(equalTo((long) 0xfedc1234)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 0, ValueType.UINT32_SWAP),
+                is(equalTo(0xfedc1234L)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 1, ValueType.INT64_SWAP),
+                is(equalTo(0x00010fdb4049fedcL)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddNumberOfBytes() {
+        new ByteBufferModbusRegisterArray(new byte[3]);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of decoding values from registers with {@link ModbusBitUtilities}, for every
+ * {@link ValueType}.
+ *
+ * Decoding to {@link DecimalType} is measured with both {@link BasicModbusRegisterArray} and
+ * {@link ByteBufferModbusRegisterArray}, and decoding to primitives with the latter.
+ *
+ * Not run by the build, start it with the {@link #main(String[])} method from the IDE.
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModbusBitUtilitiesBenchmark {
+
+    @Param({ "bit", "int8", "uint8", "int16", "uint16", "int32", "uint32", "float32", "int64", "uint64",
+            "int32_swap", "uint32_swap", "float32_swap", "int64_swap", "uint64_swap" })
+    public String valueType;
+
+    private ValueType type = ValueType.INT16;
+    private int index;
+    private ModbusRegisterArray basicRegisters = new BasicModbusRegisterArray();
+    private ByteBufferModbusRegisterArray byteBufferRegisters = new ByteBufferModbusRegisterArray(new byte[0]);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        type = ValueType.fromConfigValue(valueType);
+        // typical poll of 16 registers, reading a value in the middle
+        basicRegisters = new BasicModbusRegisterArray(0x1234, 0xfedc, 0x4049, 0x0fdb, 0x0001, 0x7fff, 0x8000, 0xffff,
+                0x1234, 0xfedc, 0x4049, 0x0fdb, 0x0001, 0x7fff, 0x8000, 0xffff);
+        byteBufferRegisters = ByteBufferModbusRegisterArray.copyOf(basicRegisters);
+        index = type.getBits() >= 16 ? 8 : 8 * 16 / type.getBits();
+    }
+
+    @Benchmark
+    public Optional<DecimalType> extractStateFromBasicRegisters() {
+        return ModbusBitUtilities.extractStateFromRegisters(basicRegisters, index, type);
+    }
+
+    @Benchmark
+    public Optional<DecimalType> extractStateFromByteBufferRegisters() {
+        return ModbusBitUtilities.extractStateFromRegisters(byteBufferRegisters, index, type);
+    }
+
+    @Benchmark
+    public double extractPrimitiveFromByteBufferRegisters() {
+        switch (type) {
+            case FLOAT32:
+            case FLOAT32_SWAP:
+                return ModbusBitUtilities.extractFloatFromRegisters(byteBufferRegisters, index, type);
+            default:
+                return ModbusBitUtilities.extractLongFromRegisters(byteBufferRegisters, index, type);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ModbusBitUtilitiesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
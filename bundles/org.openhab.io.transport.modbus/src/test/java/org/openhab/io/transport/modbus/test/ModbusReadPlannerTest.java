@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusReadPlanner;
+import org.openhab.io.transport.modbus.internal.ModbusReadPlanner.PlannedRead;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ModbusReadPlannerTest {
+
+    private final ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("localhost", 502);
+
+    @NonNullByDefault
+    private static class RecordingCallback implements ModbusReadCallback {
+        private final List<Object> received = new ArrayList<>();
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            received.add(registers.toHexString());
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            received.add(bits.toBinaryString());
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            received.add(error);
+        }
+    }
+
+    private PollTask task(int unitId, ModbusReadFunctionCode functionCode, int start, int length) {
+        return new BasicPollTaskImpl(endpoint,
+                new BasicModbusReadRequestBlueprint(unitId, functionCode, start, length, 3), new RecordingCallback());
+    }
+
+    private PollTask holdingRegisters(int start, int length) {
+        return task(1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length);
+    }
+
+    @Test
+    public void testAdjacentAndOverlappingRequestsAreMerged() {
+        List<PlannedRead> plan = ModbusReadPlanner
+                .plan(Arrays.asList(holdingRegisters(10, 2), holdingRegisters(0, 5), holdingRegisters(5, 5)), 0);
+
+        assertThat(plan.size(), is(equalTo(1)));
+        assertThat(plan.get(0).getRequest().getReference(), is(equalTo(0)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(12)));
+        assertThat(plan.get(0).getTasks().size(), is(equalTo(3)));
+
+        plan = ModbusReadPlanner.plan(Arrays.asList(holdingRegisters(0, 5), holdingRegisters(2, 2)), 0);
+        assertThat(plan.size(), is(equalTo(1)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(5)));
+    }
+
+    @Test
+    public void testGapTolerance() {
+        List<PollTask> tasks = Arrays.asList(holdingRegisters(0, 2), holdingRegisters(5, 2));
+
+        assertThat(ModbusReadPlanner.plan(tasks, 2).size(), is(equalTo(2)));
+        List<PlannedRead> plan = ModbusReadPlanner.plan(tasks, 3);
+        assertThat(plan.size(), is(equalTo(1)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(7)));
+    }
+
+    @Test
+    public void testDifferentUnitIdsAndFunctionCodesAreNotMerged() {
+        List<PlannedRead> plan = ModbusReadPlanner.plan(Arrays.asList(holdingRegisters(0, 2),
+                task(2, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 2, 2),
+                task(1, ModbusReadFunctionCode.READ_INPUT_REGISTERS, 2, 2)), 10);
+
+        assertThat(plan.size(), is(equalTo(3)));
+        for (PlannedRead read : plan) {
+            assertThat(read.isMerged(), is(equalTo(false)));
+            assertThat(read.toPollTask(), is(sameInstance(read.getTasks().get(0))));
+        }
+    }
+
+    @Test
+    public void testMaximumLengthIsRespected() {
+        List<PlannedRead> plan = ModbusReadPlanner.plan(Arrays.asList(holdingRegisters(0, 100),
+                holdingRegisters(100, 25), holdingRegisters(125, 1)), 0);
+        assertThat(plan.size(), is(equalTo(2)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(ModbusReadPlanner.MAX_REGISTERS_PER_READ)));
+
+        plan = ModbusReadPlanner.plan(Arrays.asList(task(1, ModbusReadFunctionCode.READ_COILS, 0, 1000),
+                task(1, ModbusReadFunctionCode.READ_COILS, 1000, 1000)), 0);
+        assertThat(plan.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testRegistersAreFannedOut() {
+        PollTask first = holdingRegisters(0, 2);
+        PollTask second = holdingRegisters(3, 1);
+        PlannedRead read = ModbusReadPlanner.plan(Arrays.asList(first, second), 1).get(0);
+        PollTask merged = read.toPollTask();
+
+        merged.getCallback().onRegisters(merged.getRequest(), new BasicModbusRegisterArray(1, 2, 3, 4));
+
+        assertThat(((RecordingCallback) first.getCallback()).received, is(equalTo(Arrays.asList("00 01 00 02"))));
+        assertThat(((RecordingCallback) second.getCallback()).received, is(equalTo(Arrays.asList("00 04"))));
+    }
+
+    @Test
+    public void testBitsAndErrorsAreFannedOut() {
+        PollTask first = task(1, ModbusReadFunctionCode.READ_COILS, 0, 2);
+        PollTask second = task(1, ModbusReadFunctionCode.READ_COILS, 1, 3);
+        PollTask merged = ModbusReadPlanner.plan(Arrays.asList(first, second), 0).get(0).toPollTask();
+
+        merged.getCallback().onBits(merged.getRequest(), new BasicBitArray(true, false, true, true));
+        Exception error = new Exception("test");
+        merged.getCallback().onError(merged.getRequest(), error);
+
+        assertThat(((RecordingCallback) first.getCallback()).received, is(equalTo(Arrays.asList("10", error))));
+        assertThat(((RecordingCallback) second.getCallback()).received, is(equalTo(Arrays.asList("011", error))));
+    }
+
+    @Test
+    public void testQueuedPollsAreMergedAndCounted() {
+        ModbusReadPlanner planner = new ModbusReadPlanner(endpoint);
+        PollTask unregistered = holdingRegisters(12, 1);
+        Predicate<PollTask> isRegistered = task -> task != unregistered;
+        List<PollTask> executed = new ArrayList<>();
+
+        planner.submit(holdingRegisters(0, 2), 0, isRegistered, (task, merged) -> {
+            executed.add(task);
+            if (executed.size() == 1) {
+                // polls becoming due during the execution are queued, and executed by this thread afterwards
+                planner.submit(holdingRegisters(10, 2), 0, isRegistered, (t, m) -> {
+                });
+                planner.submit(holdingRegisters(12, 2), 0, isRegistered, (t, m) -> {
+                });
+                planner.submit(unregistered, 0, isRegistered, (t, m) -> {
+                });
+            }
+        });
+
+        assertThat(executed.size(), is(equalTo(2)));
+        assertThat(executed.get(1).getRequest().getReference(), is(equalTo(10)));
+        assertThat(executed.get(1).getRequest().getDataLength(), is(equalTo(4)));
+        assertThat(planner.getRequestedReads(), is(equalTo(3L)));
+        assertThat(planner.getExecutedReads(), is(equalTo(2L)));
+        assertThat(planner.getMergedReads(), is(equalTo(1L)));
+        assertThat(planner.getSavedTransactions(), is(equalTo(1L)));
+    }
+}
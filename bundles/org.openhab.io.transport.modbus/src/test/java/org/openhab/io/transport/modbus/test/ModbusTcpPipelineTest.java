@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusTcpPipeline;
+
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.ModbusSlaveException;
+import net.wimpi.modbus.msg.ExceptionResponse;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+import net.wimpi.modbus.msg.ReadMultipleRegistersRequest;
+import net.wimpi.modbus.msg.ReadMultipleRegistersResponse;
+import net.wimpi.modbus.procimg.Register;
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ModbusTcpPipelineTest {
+
+    /**
+     * Transport recording the written requests, and returning responses given by the test
+     */
+    @NonNullByDefault
+    private static class QueueTransport implements ModbusTcpPipeline.Transport {
+        private static final ModbusResponse CLOSED = new ExceptionResponse();
+
+        private final BlockingQueue<ModbusRequest> written = new LinkedBlockingQueue<>();
+        private final BlockingQueue<ModbusResponse> responses = new LinkedBlockingQueue<>();
+
+        @Override
+        public void write(ModbusRequest request) {
+            written.add(request);
+        }
+
+        @Override
+        public ModbusResponse read() throws ModbusIOException {
+            try {
+                ModbusResponse response = responses.take();
+                if (response == CLOSED) {
+                    throw new ModbusIOException("closed");
+                }
+                return response;
+            } catch (InterruptedException e) {
+                throw new ModbusIOException("interrupted");
+            }
+        }
+
+        @Override
+        public void close() {
+            responses.add(CLOSED);
+        }
+
+        private ModbusRequest nextWritten() throws InterruptedException {
+            ModbusRequest request = written.poll(5, TimeUnit.SECONDS);
+            assertNotNull("request was not written", request);
+            return request;
+        }
+
+        private void respond(ModbusRequest request, int value) {
+            respond(request.getTransactionID(), value);
+        }
+
+        private void respond(int transactionId, int value) {
+            ModbusResponse response = new ReadMultipleRegistersResponse(new Register[] { new SimpleRegister(value) });
+            response.setTransactionID(transactionId);
+            responses.add(response);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final QueueTransport transport = new QueueTransport();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ModbusTcpPipeline pipeline(int maxInFlight, long responseTimeoutMillis) {
+        ModbusTcpPipeline pipeline = new ModbusTcpPipeline(new ModbusTCPSlaveEndpoint("localhost", 502), transport,
+                maxInFlight, responseTimeoutMillis);
+        pipeline.start();
+        return pipeline;
+    }
+
+    private Future<ModbusResponse> submit(ModbusTcpPipeline pipeline, int reference) {
+        return executor.submit(() -> pipeline.execute(new ReadMultipleRegistersRequest(reference, 1)));
+    }
+
+    private static int registerValue(Future<ModbusResponse> response) throws Exception {
+        return ((ReadMultipleRegistersResponse) response.get(5, TimeUnit.SECONDS)).getRegisterValue(0);
+    }
+
+    @Test
+    public void testResponsesAreMatchedByTransactionId() throws Exception {
+        ModbusTcpPipeline pipeline = pipeline(3, 5000);
+        Future<ModbusResponse> first = submit(pipeline, 1);
+        ModbusRequest firstRequest = transport.nextWritten();
+        Future<ModbusResponse> second = submit(pipeline, 2);
+        ModbusRequest secondRequest = transport.nextWritten();
+        assertThat(firstRequest.getTransactionID(), is(not(equalTo(secondRequest.getTransactionID()))));
+
+        // respond in reverse order
+        transport.respond(secondRequest, 222);
+        transport.respond(firstRequest, 111);
+
+        assertThat(registerValue(first), is(equalTo(111)));
+        assertThat(registerValue(second), is(equalTo(222)));
+        assertThat(pipeline.getTransactions(), is(equalTo(2L)));
+        assertFalse(pipeline.isFailed());
+        pipeline.close();
+    }
+
+    @Test
+    public void testInFlightRequestsAreLimited() throws Exception {
+        ModbusTcpPipeline pipeline = pipeline(2, 5000);
+        Future<ModbusResponse> first = submit(pipeline, 1);
+        Future<ModbusResponse> second = submit(pipeline, 2);
+        Future<ModbusResponse> third = submit(pipeline, 3);
+        ModbusRequest request1 = transport.nextWritten();
+        ModbusRequest request2 = transport.nextWritten();
+        assertNull(transport.written.poll(200, TimeUnit.MILLISECONDS));
+
+        transport.respond(request1, 1);
+        ModbusRequest request3 = transport.nextWritten();
+        transport.respond(request2, 2);
+        transport.respond(request3, 3);
+
+        assertThat(registerValue(first) + registerValue(second) + registerValue(third), is(equalTo(6)));
+        assertThat(pipeline.getInFlight(), is(equalTo(0)));
+        pipeline.close();
+    }
+
+    @Test
+    public void testExceptionResponse() throws Exception {
+        ModbusTcpPipeline pipeline = pipeline(2, 5000);
+        Future<ModbusResponse> response = submit(pipeline, 1);
+        ModbusRequest request = transport.nextWritten();
+        ExceptionResponse exceptionResponse = new ExceptionResponse(request.getFunctionCode(), 2);
+        exceptionResponse.setTransactionID(request.getTransactionID());
+        transport.responses.add(exceptionResponse);
+
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail("Should have raised exception");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ModbusSlaveException.class)));
+        }
+        assertFalse(pipeline.isFailed());
+        pipeline.close();
+    }
+
+    @Test
+    public void testUnexpectedTransactionIdFailsPipeline() throws Exception {
+        ModbusTcpPipeline pipeline = pipeline(2, 5000);
+        Future<ModbusResponse> response = submit(pipeline, 1);
+        ModbusRequest request = transport.nextWritten();
+        transport.respond(request.getTransactionID() + 100, 1);
+
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail("Should have raised exception");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ModbusIOException.class)));
+        }
+        assertTrue(pipeline.isFailed());
+        assertTrue(pipeline.isClosed());
+
+        try {
+            pipeline.execute(new ReadMultipleRegistersRequest(1, 1));
+            fail("Should have raised exception");
+        } catch (ModbusIOException e) {
+            // expected, the caller should fall back to one transaction at a time
+        }
+    }
+
+    @Test
+    public void testTimeoutFailsPipeline() throws Exception {
+        ModbusTcpPipeline pipeline = pipeline(2, 100);
+        Future<ModbusResponse> response = submit(pipeline, 1);
+        transport.nextWritten();
+
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail("Should have raised exception");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ModbusIOException.class)));
+        }
+        assertTrue(pipeline.isFailed());
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands reporting the state of the MapDB persistence service
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+public class MapDbCommandExtension extends AbstractConsoleCommandExtension {
+    private static final String SUBCMD_STATS = "stats";
+
+    private MapDbPersistenceService persistenceService;
+
+    public MapDbCommandExtension() {
+        super("mapdb", "Show statistics of the MapDB persistence service.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        if (args.length > 0) {
+            String subCommand = args[0];
+            switch (subCommand) {
+                case SUBCMD_STATS:
+                    printStatistics(console);
+                    break;
+
+                default:
+                    console.println("Unknown command '" + subCommand + "'");
+                    printUsage(console);
+                    break;
+            }
+        } else {
+            printUsage(console);
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(new String[] {
+                buildCommandUsage(SUBCMD_STATS, "shows commit latency, batch sizes and coalesced writes") });
+    }
+
+    @Reference
+    public void setPersistenceService(MapDbPersistenceService persistenceService) {
+        this.persistenceService = persistenceService;
+    }
+
+    public void unsetPersistenceService(MapDbPersistenceService persistenceService) {
+        this.persistenceService = null;
+    }
+
+    private void printStatistics(Console console) {
+        MapDbWriteBuffer writeBuffer = persistenceService.getWriteBuffer();
+        if (writeBuffer == null) {
+            console.println("MapDB persistence service is not active");
+            return;
+        }
+        console.println(String.format("Commits:              %d", writeBuffer.getCommits()));
+        console.println(String.format("Written items:        %d", writeBuffer.getWrittenItems()));
+        console.println(String.format("Coalesced writes:     %d", writeBuffer.getCoalescedWrites()));
+        console.println(String.format("Pending writes:       %d", writeBuffer.getPendingSize()));
+        console.println(String.format("Failed writes:        %d", writeBuffer.getFailedWrites()));
+        console.println(String.format("Last batch size:      %d", writeBuffer.getLastBatchSize()));
+        console.println(String.format("Average commit time:  %.2f ms", writeBuffer.getAverageCommitMillis()));
+        console.println(String.format("Maximum commit time:  %.2f ms", writeBuffer.getMaxCommitMillis()));
+    }
+}
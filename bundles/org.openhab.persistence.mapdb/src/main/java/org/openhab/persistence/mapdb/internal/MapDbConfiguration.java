@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Configuration of the {@link MapDbPersistenceService}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbConfiguration {
+    /** if set, every stored state is additionally appended to the time-series store */
+    public boolean timeSeries = false;
+    /** number of days to keep time-series records, 0 keeps them forever */
+    public int retentionDays = 0;
+    /** time span covered by a single time-series segment file */
+    public int segmentHours = 24;
+    /** number of pending item updates that triggers a commit */
+    public int commitBatchSize = 500;
+    /** maximum time an item update waits for its commit, 0 commits right away */
+    public int commitIntervalMillis = 1000;
+}
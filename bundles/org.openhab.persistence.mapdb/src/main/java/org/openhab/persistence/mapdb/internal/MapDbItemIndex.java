@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
+
+/**
+ * In-memory index of the name, value count and first and last timestamp of all stored items, so that
+ * {@link MapDbPersistenceService#getItemInfo()} does not need to read the stored items.
+ * <p>
+ * The index is updated on every store and mirrored to a map of the database as <code>{count, earliest, latest}</code>,
+ * which is loaded on activation. After a clean shutdown, only items missing in the mirrored map need to be looked at.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemIndex {
+
+    private final Map<String, MapDbItemInfo> entries = new ConcurrentHashMap<>();
+    private final Map<String, long[]> persisted;
+    private final boolean history;
+
+    /**
+     * Creates the index.
+     *
+     * @param persisted the database map mirroring the index
+     * @param history true if all stored values are kept, false if only the last value of an item is kept
+     */
+    public MapDbItemIndex(Map<String, long[]> persisted, boolean history) {
+        this.persisted = persisted;
+        this.history = history;
+        for (Map.Entry<String, long[]> entry : persisted.entrySet()) {
+            long[] value = entry.getValue();
+            entries.put(entry.getKey(),
+                    new MapDbItemInfo(entry.getKey(), (int) value[0], new Date(value[1]), new Date(value[2])));
+        }
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Records a newly stored value.
+     */
+    public void update(String name, Date timestamp) {
+        entries.compute(name, (n, info) -> {
+            if (info == null || !history) {
+                return new MapDbItemInfo(name, 1, timestamp, timestamp);
+            }
+            Date earliest = timestamp.before(info.getEarliest()) ? timestamp : info.getEarliest();
+            Date latest = timestamp.after(info.getLatest()) ? timestamp : info.getLatest();
+            return new MapDbItemInfo(name, info.getCount() + 1, earliest, latest);
+        });
+    }
+
+    /**
+     * Replaces the entry of an item, e.g. after a rebuild or compaction.
+     */
+    public void put(MapDbItemInfo info) {
+        entries.put(info.getName(), info);
+    }
+
+    public void remove(String name) {
+        entries.remove(name);
+        persisted.remove(name);
+    }
+
+    /**
+     * Writes the current entries of the given items to the database map. The caller is responsible for the commit.
+     */
+    public void persist(Collection<String> names) {
+        for (String name : names) {
+            MapDbItemInfo info = entries.get(name);
+            if (info != null) {
+                persisted.put(name,
+                        new long[] { info.getCount(), info.getEarliest().getTime(), info.getLatest().getTime() });
+            }
+        }
+    }
+
+    public Set<String> getNames() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    public Set<PersistenceItemInfo> getItemInfo() {
+        return new HashSet<>(entries.values());
+    }
+}
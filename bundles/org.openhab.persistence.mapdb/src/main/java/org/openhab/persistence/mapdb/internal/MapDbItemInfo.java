@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.Date;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
+
+/**
+ * Immutable summary of the values stored for an item, as kept by the {@link MapDbItemIndex}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemInfo implements PersistenceItemInfo {
+
+    private final String name;
+    private final int count;
+    private final Date earliest;
+    private final Date latest;
+
+    public MapDbItemInfo(String name, int count, Date earliest, Date latest) {
+        this.name = name;
+        this.count = count;
+        this.earliest = earliest;
+        this.latest = latest;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Integer getCount() {
+        return count;
+    }
+
+    @Override
+    public Date getEarliest() {
+        return earliest;
+    }
+
+    @Override
+    public Date getLatest() {
+        return latest;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + count + " values from " + earliest + " to " + latest;
+    }
+}
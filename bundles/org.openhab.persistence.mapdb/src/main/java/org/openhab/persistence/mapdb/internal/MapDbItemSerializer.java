@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Date;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.mapdb.Serializer;
+
+/**
+ * A MapDB {@link Serializer} writing {@link MapDbItem}s in a compact binary format instead of JSON.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemSerializer implements Serializer<MapDbItem>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte VERSION = 1;
+
+    @Override
+    public void serialize(DataOutput out, MapDbItem item) throws IOException {
+        out.writeByte(VERSION);
+        out.writeUTF(item.getName());
+        out.writeLong(item.getTimestamp().getTime());
+        StateCodec.write(out, item.getState());
+    }
+
+    @Override
+    public MapDbItem deserialize(DataInput in, int available) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported MapDB item version " + version);
+        }
+        MapDbItem item = new MapDbItem();
+        item.setName(in.readUTF());
+        item.setTimestamp(new Date(in.readLong()));
+        State state = StateCodec.read(in);
+        item.setState(state == null ? UnDefType.NULL : state);
+        return item;
+    }
+
+    @Override
+    public int fixedSize() {
+        return -1;
+    }
+}
@@ -13,19 +13,28 @@
 package org.openhab.persistence.mapdb.internal;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.config.core.ConfigurableService;
+import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
@@ -35,8 +44,11 @@ import org.eclipse.smarthome.core.persistence.PersistenceService;
 import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
+import org.mapdb.Atomic;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,8 +65,13 @@ import com.google.gson.GsonBuilder;
  * @author Martin Kühl - Port to Eclipse SmartHome
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
-public class MapDbPersistenceService implements QueryablePersistenceService {
+@Component(service = { PersistenceService.class, QueryablePersistenceService.class, ConfigurableService.class,
+        MapDbPersistenceService.class }, configurationPid = "org.openhab.mapdb", property = {
+                Constants.SERVICE_PID + "=org.openhab.mapdb",
+                ConfigurableService.SERVICE_PROPERTY_DESCRIPTION_URI + "=persistence:mapdb",
+                ConfigurableService.SERVICE_PROPERTY_CATEGORY + "=persistence",
+                ConfigurableService.SERVICE_PROPERTY_LABEL + "=MapDB Persistence Service" })
+public class MapDbPersistenceService implements QueryablePersistenceService, ConfigurableService {
 
     private static final String SERVICE_NAME = "mapdb";
 
@@ -62,25 +79,55 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    private static final String TIME_SERIES_FOLDER_NAME = "timeseries";
+
+    private static final String ITEM_STORE_NAME = "items";
+
+    private static final String ITEM_INFO_NAME = "itemInfo";
+
+    private static final String ITEM_HISTORY_INFO_NAME = "itemHistoryInfo";
+
+    /** suffix of the flag telling whether the item index has been saved by a clean shutdown */
+    private static final String INDEX_COMPLETE_SUFFIX = "Complete";
+
+    /** map of the previous JSON format, migrated to {@link #ITEM_STORE_NAME} on activation */
+    private static final String JSON_ITEM_STORE_NAME = "itemStore";
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
     @NonNullByDefault({})
-    private ExecutorService threadPool;
+    private ScheduledExecutorService threadPool;
 
     /** holds the local instance of the MapDB database */
     @NonNullByDefault({})
     private DB db;
     @NonNullByDefault({})
-    private Map<String, String> map;
+    private Map<String, MapDbItem> map;
 
+    /** holds the full item history if the time-series mode is enabled */
+    private @Nullable MapDbTimeSeriesStore timeSeriesStore;
+    private @Nullable ScheduledFuture<?> compactionJob;
+
+    /** holds name, count, earliest and latest timestamp of all stored items */
+    @NonNullByDefault({})
+    private MapDbItemIndex index;
+    @NonNullByDefault({})
+    private Atomic.Boolean indexComplete;
+
+    /** coalesces updates and commits them in batches */
+    @NonNullByDefault({})
+    private MapDbWriteBuffer writeBuffer;
+
+    /** only used to read the items stored as JSON by previous versions */
     private transient Gson mapper = new GsonBuilder()
             .registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
             .create();
 
-    public void activate() {
+    public void activate(Map<String, Object> configuration) {
         logger.debug("MapDB persistence service is being activated");
+        MapDbConfiguration config = new Configuration(configuration).as(MapDbConfiguration.class);
 
-        threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+        threadPool = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
 
         File folder = new File(DB_FOLDER_NAME);
         if (!folder.exists()) {
@@ -93,13 +140,64 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
         File dbFile = new File(DB_FOLDER_NAME, DB_FILE_NAME);
         db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-        map = db.createTreeMap("itemStore").makeOrGet();
+        // MapDB restores the value serializer from its catalog, so it needs to see the classes of this bundle
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(MapDbItemSerializer.class.getClassLoader());
+            map = db.createTreeMap(ITEM_STORE_NAME).valueSerializer(new MapDbItemSerializer()).makeOrGet();
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+        migrateJsonItemStore();
+
+        if (config.timeSeries) {
+            timeSeriesStore = new MapDbTimeSeriesStore(Paths.get(DB_FOLDER_NAME, TIME_SERIES_FOLDER_NAME),
+                    config.segmentHours);
+            logger.debug("MapDB time-series store enabled with a retention of {} days", config.retentionDays);
+        }
+
+        // the index of each mode is kept separately, as the counts differ
+        String indexName = config.timeSeries ? ITEM_HISTORY_INFO_NAME : ITEM_INFO_NAME;
+        Map<String, long[]> persistedIndex = db.createTreeMap(indexName).valueSerializer(Serializer.LONG_ARRAY)
+                .makeOrGet();
+        index = new MapDbItemIndex(persistedIndex, config.timeSeries);
+        indexComplete = db.getAtomicBoolean(indexName + INDEX_COMPLETE_SUFFIX);
+        rebuildIndex(indexComplete.get());
+        // cleared until the next clean shutdown
+        indexComplete.set(false);
+        db.commit();
+
+        writeBuffer = new MapDbWriteBuffer(threadPool, this::write, config.commitBatchSize,
+                config.commitIntervalMillis);
+
+        if (config.timeSeries && config.retentionDays > 0) {
+            long retention = TimeUnit.DAYS.toMillis(config.retentionDays);
+            compactionJob = threadPool.scheduleWithFixedDelay(() -> compact(retention), 0, 1, TimeUnit.HOURS);
+        }
         logger.debug("MapDB persistence service is now activated");
     }
 
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
+        ScheduledFuture<?> compactionJob = this.compactionJob;
+        if (compactionJob != null) {
+            compactionJob.cancel(false);
+            this.compactionJob = null;
+        }
+        if (writeBuffer != null) {
+            writeBuffer.flush();
+        }
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore != null) {
+            timeSeriesStore.flush();
+            this.timeSeriesStore = null;
+        }
         if (db != null) {
+            if (indexComplete != null && writeBuffer != null && writeBuffer.getPendingSize() == 0) {
+                index.persist(index.getNames());
+                indexComplete.set(true);
+                db.commit();
+            }
             db.close();
         }
         threadPool.shutdown();
@@ -117,10 +215,14 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream()
-                .map(this::deserialize)
-                .flatMap(MapDbPersistenceService::streamOptional)
-                .collect(Collectors.<PersistenceItemInfo>toSet());
+        return index.getItemInfo();
+    }
+
+    /**
+     * Returns the buffer collecting the pending writes, e.g. to report its statistics.
+     */
+    public @Nullable MapDbWriteBuffer getWriteBuffer() {
+        return writeBuffer;
     }
 
     @Override
@@ -145,27 +247,73 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         mItem.setName(alias);
         mItem.setState(state);
         mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(alias, json);
-        commit();
+        writeBuffer.add(mItem);
+        index.update(alias, mItem.getTimestamp());
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore != null) {
+            try {
+                timeSeriesStore.append(alias, state, mItem.getTimestamp());
+            } catch (IOException e) {
+                logger.warn("Failed to append '{}' to the MapDB time-series store: {}", alias, e.getMessage());
+            }
+        }
         logger.debug("Stored '{}' with state '{}' in MapDB database", alias, state.toString());
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
-            return Collections.emptyList();
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore != null) {
+            try {
+                Iterable<HistoricItem> result = timeSeriesStore.query(filter);
+                // items without history yet still restore their last value on startup
+                if (result.iterator().hasNext() || filter.getBeginDate() != null || filter.getEndDate() != null) {
+                    return result;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to query the MapDB time-series store: {}", e.getMessage());
+                return Collections.emptyList();
+            }
         }
-        Optional<MapDbItem> item = deserialize(json);
-        if (!item.isPresent()) {
+        MapDbItem pending = writeBuffer.get(filter.getItemName());
+        if (pending != null) {
+            return Collections.singletonList(pending);
+        }
+        MapDbItem item = map.get(filter.getItemName());
+        if (item == null || !isValid(item)) {
             return Collections.emptyList();
         }
-        return Collections.singletonList(item.get());
+        return Collections.singletonList(item);
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+    private boolean isValid(MapDbItem item) {
+        if (item.getState() instanceof UnDefType) {
+            logger.warn("Deserialized invalid item: {}", item);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Converts the items stored as JSON by previous versions into the binary format.
+     */
+    private void migrateJsonItemStore() {
+        if (!db.exists(JSON_ITEM_STORE_NAME)) {
+            return;
+        }
+        Map<String, String> jsonMap = db.getTreeMap(JSON_ITEM_STORE_NAME);
+        int total = jsonMap.size();
+        int migrated = 0;
+        for (Map.Entry<String, String> entry : jsonMap.entrySet()) {
+            Optional<MapDbItem> item = deserialize(entry.getValue());
+            if (item.isPresent()) {
+                map.put(entry.getKey(), item.get());
+                migrated++;
+            }
+        }
+        db.delete(JSON_ITEM_STORE_NAME);
+        db.commit();
+        logger.info("Migrated {} of {} items of the MapDB database to the binary format", migrated, total);
     }
 
     private Optional<MapDbItem> deserialize(String json) {
@@ -177,14 +325,93 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         return Optional.of(item);
     }
 
-    private void commit() {
-        threadPool.submit(() -> db.commit());
+    private void write(Collection<MapDbItem> batch) {
+        // the records appended to the time-series store are written along with each batch
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore != null) {
+            timeSeriesStore.flush();
+        }
+        List<String> names = new ArrayList<>(batch.size());
+        try {
+            for (MapDbItem item : batch) {
+                map.put(item.getName(), item);
+                names.add(item.getName());
+            }
+            index.persist(names);
+            db.commit();
+        } catch (RuntimeException e) {
+            // the write buffer retries the batch
+            db.rollback();
+            throw e;
+        }
     }
 
-    private static <T> Stream<T> streamOptional(Optional<T> opt) {
-        if (!opt.isPresent()) {
-            return Stream.empty();
+    private void compact(long retention) {
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore == null) {
+            return;
+        }
+        Set<String> compacted = timeSeriesStore.compact(new Date(System.currentTimeMillis() - retention));
+        if (!compacted.isEmpty()) {
+            compacted.forEach(this::rebuildIndexEntry);
+            index.persist(compacted);
+            db.commit();
         }
-        return Stream.of(opt.get());
     }
+
+    /**
+     * Adds the items missing in the mirrored index. After an unclean shutdown all entries are rebuilt, as the
+     * time-series store and the last commit of the items may be ahead of the last commit of the mirror.
+     */
+    private void rebuildIndex(boolean complete) {
+        Set<String> names = new HashSet<>(map.keySet());
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore != null) {
+            try {
+                names.addAll(timeSeriesStore.getItemNames());
+            } catch (IOException e) {
+                logger.warn("Failed to list the items of the MapDB time-series store: {}", e.getMessage());
+            }
+        }
+        List<String> rebuilt;
+        if (complete) {
+            rebuilt = names.stream().filter(name -> !index.contains(name)).collect(Collectors.toList());
+        } else {
+            index.getNames().stream().filter(name -> !names.contains(name)).forEach(index::remove);
+            rebuilt = new ArrayList<>(names);
+        }
+        if (!rebuilt.isEmpty()) {
+            rebuilt.forEach(this::rebuildIndexEntry);
+            index.persist(rebuilt);
+            logger.debug("Rebuilt {} entries of the MapDB item index", rebuilt.size());
+        }
+    }
+
+    /**
+     * Determines the index entry of an item from the stored values.
+     */
+    private void rebuildIndexEntry(String name) {
+        MapDbItemInfo info = null;
+        MapDbTimeSeriesStore timeSeriesStore = this.timeSeriesStore;
+        if (timeSeriesStore != null) {
+            try {
+                info = timeSeriesStore.summarize(name);
+            } catch (IOException e) {
+                logger.warn("Failed to read the history of '{}' from the MapDB time-series store: {}", name,
+                        e.getMessage());
+            }
+        }
+        if (info == null) {
+            MapDbItem item = map.get(name);
+            if (item != null && isValid(item)) {
+                info = new MapDbItemInfo(name, 1, item.getTimestamp(), item.getTimestamp());
+            }
+        }
+        if (info != null) {
+            index.put(info);
+        } else {
+            index.remove(name);
+        }
+    }
+
 }
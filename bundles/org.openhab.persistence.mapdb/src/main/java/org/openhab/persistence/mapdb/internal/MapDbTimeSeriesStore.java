@@ -0,0 +1,512 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only store keeping the full history of item states.
+ * <p>
+ * Every item gets its own directory containing segment files, each segment covering a fixed time span. A segment
+ * starts with a small header holding its base timestamp, followed by records of the form
+ * <code>[zig-zag varint timestamp delta][state]</code>, where the state is encoded by the {@link StateCodec}.
+ * <p>
+ * Appended records are collected in memory and written to their segments by {@link #flush()}, so that storing a state
+ * does not touch the file system. Queries include the records that have not been written yet. A record left incomplete
+ * by a crash is cut off when the segment is opened for appending again.
+ * <p>
+ * Retention is implemented by dropping whole segments once their time span lies completely before the cutoff.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbTimeSeriesStore {
+
+    // "MDT2", marks a segment file in the current record format
+    private static final int SEGMENT_MAGIC = 0x4d445432;
+    private static final int HEADER_SIZE = 12;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbTimeSeriesStore.class);
+
+    private final Path folder;
+    private final long segmentMillis;
+
+    /** write position of the currently active segment of every item, also used as per-item lock */
+    private final Map<String, SegmentCursor> cursors = new ConcurrentHashMap<>();
+    /** items having records that have not been written to their segment yet */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private static class SegmentCursor {
+        long segmentStart = Long.MIN_VALUE;
+        long lastTimestamp;
+        /** records (and the header of a new segment) not written to the segment file yet */
+        final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(pending);
+    }
+
+    public MapDbTimeSeriesStore(Path folder, int segmentHours) {
+        this.folder = folder;
+        this.segmentMillis = TimeUnit.HOURS.toMillis(Math.max(1, segmentHours));
+    }
+
+    /**
+     * Appends a state to the history of the given item. The record is written to disk by the next {@link #flush()}.
+     */
+    public void append(String name, State state, Date timestamp) throws IOException {
+        long time = timestamp.getTime();
+        long segmentStart = Math.floorDiv(time, segmentMillis) * segmentMillis;
+        SegmentCursor cursor = cursors.computeIfAbsent(name, n -> new SegmentCursor());
+        synchronized (cursor) {
+            if (cursor.segmentStart != segmentStart) {
+                writePending(name, cursor);
+                openSegment(name, cursor, segmentStart);
+            }
+            StateCodec.writeVarLong(cursor.out, StateCodec.zigZag(time - cursor.lastTimestamp));
+            StateCodec.write(cursor.out, state);
+            cursor.lastTimestamp = time;
+        }
+        dirty.add(name);
+    }
+
+    /**
+     * Writes all appended records to their segment files. Records that could not be written are kept and retried
+     * with the next flush.
+     */
+    public void flush() {
+        for (String name : dirty) {
+            dirty.remove(name);
+            SegmentCursor cursor = cursors.get(name);
+            if (cursor == null) {
+                continue;
+            }
+            synchronized (cursor) {
+                try {
+                    writePending(name, cursor);
+                } catch (IOException e) {
+                    dirty.add(name);
+                    logger.warn("Failed to write the history of '{}' to the MapDB time-series store: {}", name,
+                            e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the stored history of an item matching the item name, date range, ordering and paging of the given
+     * filter. Operator and state filters are not evaluated.
+     */
+    public List<HistoricItem> query(FilterCriteria filter) throws IOException {
+        String name = filter.getItemName();
+        if (name == null) {
+            return Collections.emptyList();
+        }
+        Date beginDate = filter.getBeginDate();
+        Date endDate = filter.getEndDate();
+        long begin = beginDate == null ? Long.MIN_VALUE : beginDate.getTime();
+        long end = endDate == null ? Long.MAX_VALUE : endDate.getTime();
+        boolean descending = filter.getOrdering() == Ordering.DESCENDING;
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        long limit = skip + filter.getPageSize();
+
+        List<Long> segments = listSegments(name);
+        if (descending) {
+            Collections.reverse(segments);
+        }
+
+        List<HistoricItem> result = new ArrayList<>();
+        for (int i = 0; i < segments.size() && result.size() < limit; i++) {
+            long segmentStart = segments.get(i);
+            if (segmentStart > end || segmentStart + segmentMillis <= begin) {
+                continue;
+            }
+            List<MapDbItem> records = new ArrayList<>();
+            readSegment(name, segmentStart, (time, state) -> {
+                if (state != null && time >= begin && time <= end) {
+                    records.add(record(name, time, state));
+                }
+            });
+            records.sort((a, b) -> a.getTimestamp().compareTo(b.getTimestamp()));
+            if (descending) {
+                Collections.reverse(records);
+            }
+            for (MapDbItem record : records) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(record);
+            }
+        }
+        return result.size() <= skip ? Collections.emptyList() : result.subList((int) skip, result.size());
+    }
+
+    /**
+     * Counts the stored records of an item and determines its first and last timestamp.
+     *
+     * @return the summary or null if there are no records for the item
+     */
+    public @Nullable MapDbItemInfo summarize(String name) throws IOException {
+        long[] summary = { 0, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long segmentStart : listSegments(name)) {
+            readSegment(name, segmentStart, (time, state) -> {
+                if (state != null) {
+                    summary[0]++;
+                    summary[1] = Math.min(summary[1], time);
+                    summary[2] = Math.max(summary[2], time);
+                }
+            });
+        }
+        return summary[0] == 0 ? null
+                : new MapDbItemInfo(name, (int) summary[0], new Date(summary[1]), new Date(summary[2]));
+    }
+
+    /**
+     * Returns the names of all items having records in the store.
+     */
+    public Set<String> getItemNames() throws IOException {
+        Set<String> names = new HashSet<>(dirty);
+        if (Files.isDirectory(folder)) {
+            try (DirectoryStream<Path> items = Files.newDirectoryStream(folder, Files::isDirectory)) {
+                for (Path itemFolder : items) {
+                    names.add(decode(itemFolder.getFileName().toString()));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Deletes all segments that only contain records older than the given date.
+     *
+     * @return the names of all items that lost records
+     */
+    public Set<String> compact(Date cutoff) {
+        Set<String> compacted = new HashSet<>();
+        if (!Files.isDirectory(folder)) {
+            return compacted;
+        }
+        try (DirectoryStream<Path> items = Files.newDirectoryStream(folder)) {
+            for (Path itemFolder : items) {
+                String name = decode(itemFolder.getFileName().toString());
+                SegmentCursor cursor = cursors.computeIfAbsent(name, n -> new SegmentCursor());
+                synchronized (cursor) {
+                    for (long segmentStart : listSegments(name)) {
+                        if (segmentStart + segmentMillis <= cutoff.getTime()) {
+                            logger.debug("Removing expired time-series segment {} of '{}'", segmentStart, name);
+                            Files.deleteIfExists(itemFolder.resolve(segmentStart + SEGMENT_SUFFIX));
+                            if (cursor.segmentStart == segmentStart) {
+                                cursor.segmentStart = Long.MIN_VALUE;
+                                cursor.pending.reset();
+                            }
+                            compacted.add(name);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to compact MapDB time-series store: {}", e.getMessage());
+        }
+        return compacted;
+    }
+
+    /**
+     * Makes the given segment the active segment of the cursor. An existing segment is checked and a record left
+     * incomplete by a crash is cut off, as records appended behind it could not be read.
+     */
+    private void openSegment(String name, SegmentCursor cursor, long segmentStart) throws IOException {
+        Path segment = segmentPath(name, segmentStart);
+        cursor.segmentStart = Long.MIN_VALUE;
+        cursor.lastTimestamp = segmentStart;
+        long length = 0;
+        if (Files.exists(segment)) {
+            try (SegmentInputStream in = new SegmentInputStream(
+                    new BufferedInputStream(Files.newInputStream(segment)), Long.MAX_VALUE)) {
+                length = readRecords(segment, in, segmentStart, (time, state) -> cursor.lastTimestamp = time);
+            }
+            if (length < 0) {
+                Path corrupt = segment.resolveSibling(segment.getFileName() + CORRUPT_SUFFIX);
+                logger.warn("Time-series segment {} is corrupt, moving it to {}", segment, corrupt);
+                Files.move(segment, corrupt, StandardCopyOption.REPLACE_EXISTING);
+                length = 0;
+            } else if (length < Files.size(segment)) {
+                logger.info("Removing the incomplete last record of time-series segment {}", segment);
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(length < HEADER_SIZE ? 0 : length);
+                }
+            }
+        } else {
+            Files.createDirectories(itemFolder(name));
+        }
+        if (length < HEADER_SIZE) {
+            cursor.out.writeInt(SEGMENT_MAGIC);
+            cursor.out.writeLong(segmentStart);
+        }
+        cursor.segmentStart = segmentStart;
+    }
+
+    /**
+     * Appends the pending records of a cursor to its segment file. The caller must hold the lock of the cursor.
+     */
+    private void writePending(String name, SegmentCursor cursor) throws IOException {
+        if (cursor.pending.size() == 0) {
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(segmentPath(name, cursor.segmentStart),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            cursor.pending.writeTo(out);
+        }
+        cursor.pending.reset();
+    }
+
+    private List<Long> listSegments(String name) throws IOException {
+        Path itemFolder = itemFolder(name);
+        List<Long> segments = new ArrayList<>();
+        if (Files.isDirectory(itemFolder)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(itemFolder, "*" + SEGMENT_SUFFIX)) {
+                for (Path segment : stream) {
+                    String fileName = segment.getFileName().toString();
+                    try {
+                        segments.add(
+                                Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        logger.debug("Ignoring unexpected file {} in the time-series store", segment);
+                    }
+                }
+            }
+        }
+        // a new segment may not have been written yet
+        SegmentCursor cursor = cursors.get(name);
+        if (cursor != null) {
+            synchronized (cursor) {
+                if (cursor.pending.size() > 0 && !segments.contains(cursor.segmentStart)) {
+                    segments.add(cursor.segmentStart);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        /**
+         * @param state the state or null if a generic state could not be restored
+         */
+        void accept(long time, @Nullable State state);
+    }
+
+    /**
+     * Reads all records of a segment, including the records that have not been written to the file yet.
+     */
+    private void readSegment(String name, long segmentStart, RecordConsumer consumer) throws IOException {
+        Path segment = segmentPath(name, segmentStart);
+        long length;
+        byte[] buffered = new byte[0];
+        InputStream file;
+        // the file only grows while the segment is active, so reading up to the current length and the pending records
+        // behind it sees every record exactly once
+        SegmentCursor cursor = cursors.get(name);
+        Object lock = cursor == null ? new Object() : cursor;
+        synchronized (lock) {
+            try {
+                file = Files.newInputStream(segment);
+                length = Files.size(segment);
+            } catch (NoSuchFileException e) {
+                // not written yet, or removed by a concurrent compaction
+                file = new ByteArrayInputStream(buffered);
+                length = 0;
+            }
+            if (cursor != null && cursor.segmentStart == segmentStart) {
+                buffered = cursor.pending.toByteArray();
+            }
+        }
+        if (length == 0 && buffered.length == 0) {
+            file.close();
+            return;
+        }
+        try (SegmentInputStream in = new SegmentInputStream(new SequenceInputStream(
+                new SegmentInputStream(new BufferedInputStream(file), length), new ByteArrayInputStream(buffered)),
+                Long.MAX_VALUE)) {
+            if (readRecords(segment, in, segmentStart, consumer) < 0) {
+                logger.warn("Ignoring corrupt time-series segment {}", segment);
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a segment from its start.
+     *
+     * @return the number of bytes up to the end of the last complete record or -1 if the segment header is invalid
+     */
+    private long readRecords(Path segment, SegmentInputStream stream, long segmentStart, RecordConsumer consumer)
+            throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        long complete = 0;
+        try {
+            if (in.readInt() != SEGMENT_MAGIC || in.readLong() != segmentStart) {
+                return -1;
+            }
+            complete = stream.getPosition();
+            long time = segmentStart;
+            while (stream.peek() >= 0) {
+                time += StateCodec.unZigZag(StateCodec.readVarLong(in));
+                State state = StateCodec.read(in);
+                complete = stream.getPosition();
+                consumer.accept(time, state);
+            }
+        } catch (EOFException e) {
+            // a partially written last record, e.g. after a crash
+            logger.debug("Time-series segment {} ends with a truncated record", segment);
+        }
+        return complete;
+    }
+
+    private static MapDbItem record(String name, long time, State state) {
+        MapDbItem record = new MapDbItem();
+        record.setName(name);
+        record.setState(state);
+        record.setTimestamp(new Date(time));
+        return record;
+    }
+
+    /**
+     * Stream counting the bytes read, optionally limited to a given length.
+     */
+    private static class SegmentInputStream extends FilterInputStream {
+        private final long limit;
+        private long position;
+
+        SegmentInputStream(InputStream in, long limit) {
+            super(in.markSupported() ? in : new BufferedInputStream(in));
+            this.limit = limit;
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the next byte without consuming it, or -1 at the end of the stream.
+         */
+        int peek() throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            in.mark(1);
+            int b = in.read();
+            in.reset();
+            return b;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, limit - position));
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, limit - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), limit - position);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private Path segmentPath(String name, long segmentStart) {
+        return itemFolder(name).resolve(segmentStart + SEGMENT_SUFFIX);
+    }
+
+    private Path itemFolder(String name) {
+        try {
+            return folder.resolve(URLEncoder.encode(name, StandardCharsets.UTF_8.name()));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String fileName) {
+        try {
+            return URLDecoder.decode(fileName, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
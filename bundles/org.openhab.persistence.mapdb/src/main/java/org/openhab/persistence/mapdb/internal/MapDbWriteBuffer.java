@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces item updates and writes them to the database in batches, so that a burst of updates results in a single
+ * commit instead of one commit per update.
+ * <p>
+ * Pending updates are kept per item, a newer update replaces an older one that has not been written yet. A batch is
+ * written once the configured number of items is pending or the configured interval has passed since the first pending
+ * update, whichever comes first. If writing falls behind and the buffer reaches twice the batch size, the updating
+ * thread writes the batch itself. A batch that fails to be written is queued again, unless a newer update of an item
+ * arrived in the meantime, and retried after the configured interval.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbWriteBuffer {
+
+    /**
+     * Writes a batch of items and commits them.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(Collection<MapDbItem> batch);
+    }
+
+    /** minimum delay before a failed batch is retried */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbWriteBuffer.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final BatchWriter writer;
+    private final int batchSize;
+    private final long intervalMillis;
+
+    private final Object writeLock = new Object();
+    private Map<String, MapDbItem> pending = new LinkedHashMap<>();
+    private @Nullable ScheduledFuture<?> flushJob;
+    private boolean flushRequested;
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong writtenItems = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+
+    public MapDbWriteBuffer(ScheduledExecutorService scheduler, BatchWriter writer, int batchSize,
+            long intervalMillis) {
+        this.scheduler = scheduler;
+        this.writer = writer;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalMillis = Math.max(0, intervalMillis);
+    }
+
+    /**
+     * Queues an item for writing, replacing a pending update of the same item.
+     */
+    public void add(MapDbItem item) {
+        boolean flushNow = false;
+        synchronized (this) {
+            if (pending.put(item.getName(), item) != null) {
+                coalescedWrites.incrementAndGet();
+            }
+            int size = pending.size();
+            if (size >= 2 * batchSize) {
+                flushNow = true;
+            } else if (size >= batchSize || intervalMillis == 0) {
+                if (!flushRequested) {
+                    flushRequested = true;
+                    scheduler.execute(this::flush);
+                }
+            } else if (flushJob == null) {
+                flushJob = scheduler.schedule(this::flush, intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the pending update of an item that has not been written yet.
+     */
+    public synchronized @Nullable MapDbItem get(String name) {
+        return pending.get(name);
+    }
+
+    /**
+     * Returns a snapshot of all pending updates.
+     */
+    public synchronized Collection<MapDbItem> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Writes all pending updates.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            Map<String, MapDbItem> batch;
+            synchronized (this) {
+                ScheduledFuture<?> flushJob = this.flushJob;
+                if (flushJob != null) {
+                    flushJob.cancel(false);
+                    this.flushJob = null;
+                }
+                flushRequested = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+
+            long start = System.nanoTime();
+            try {
+                writer.write(batch.values());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write {} items to the MapDB database, retrying: {}", batch.size(),
+                        e.getMessage());
+                requeue(batch);
+                return;
+            }
+            long duration = System.nanoTime() - start;
+
+            commits.incrementAndGet();
+            writtenItems.addAndGet(batch.size());
+            totalCommitNanos.addAndGet(duration);
+            maxCommitNanos.accumulateAndGet(duration, Math::max);
+            lastBatchSize = batch.size();
+            logger.trace("Committed {} items to the MapDB database in {} µs", batch.size(),
+                    TimeUnit.NANOSECONDS.toMicros(duration));
+        }
+    }
+
+    private synchronized void requeue(Map<String, MapDbItem> batch) {
+        failedWrites.incrementAndGet();
+        Map<String, MapDbItem> newer = pending;
+        pending = batch;
+        pending.putAll(newer);
+        if (flushJob == null) {
+            flushJob = scheduler.schedule(this::flush, Math.max(intervalMillis, RETRY_DELAY_MILLIS),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getWrittenItems() {
+        return writtenItems.get();
+    }
+
+    /**
+     * Returns the number of updates that were replaced by a newer update of the same item before being written.
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    /**
+     * Returns the number of batches that failed to be written and were queued again.
+     */
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public synchronized int getPendingSize() {
+        return pending.size();
+    }
+
+    public double getAverageCommitMillis() {
+        long count = commits.get();
+        return count == 0 ? 0 : totalCommitNanos.get() / (count * 1_000_000d);
+    }
+
+    public double getMaxCommitMillis() {
+        return maxCommitNanos.get() / 1_000_000d;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.measure.Unit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.TypeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary encoding of Eclipse SmartHome State values.
+ * <p>
+ * Every state starts with a type tag. Numbers are written as scale and unscaled value, units as their symbol (units
+ * are parsed only once per symbol), dates as epoch seconds, nanos and zone. States without a dedicated encoding are
+ * written as type name and full string like the {@link StateTypeAdapter} does.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public final class StateCodec {
+
+    private static final byte TAG_ON_OFF = 1;
+    private static final byte TAG_OPEN_CLOSED = 2;
+    private static final byte TAG_GENERIC = 3;
+    private static final byte TAG_DECIMAL = 4;
+    private static final byte TAG_PERCENT = 5;
+    private static final byte TAG_HSB = 6;
+    private static final byte TAG_DATE_TIME = 7;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_QUANTITY = 9;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateCodec.class);
+
+    /** units by symbol, only units that survive a round trip through their symbol are added */
+    private static final Map<String, Unit<?>> UNITS = new ConcurrentHashMap<>();
+
+    private StateCodec() {
+        // static helper
+    }
+
+    /**
+     * Writes the binary representation of a state.
+     */
+    public static void write(DataOutput out, State state) throws IOException {
+        Class<?> type = state.getClass();
+        if (type == DecimalType.class) {
+            out.writeByte(TAG_DECIMAL);
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (type == PercentType.class) {
+            out.writeByte(TAG_PERCENT);
+            writeDecimal(out, ((PercentType) state).toBigDecimal());
+        } else if (type == HSBType.class) {
+            HSBType hsb = (HSBType) state;
+            out.writeByte(TAG_HSB);
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (state instanceof OnOffType) {
+            out.writeByte(TAG_ON_OFF);
+            out.writeBoolean(state == OnOffType.ON);
+        } else if (state instanceof OpenClosedType) {
+            out.writeByte(TAG_OPEN_CLOSED);
+            out.writeBoolean(state == OpenClosedType.OPEN);
+        } else if (type == StringType.class) {
+            out.writeByte(TAG_STRING);
+            writeString(out, state.toFullString());
+        } else if (type == DateTimeType.class) {
+            ZonedDateTime dateTime = ((DateTimeType) state).getZonedDateTime();
+            out.writeByte(TAG_DATE_TIME);
+            writeVarLong(out, zigZag(dateTime.toEpochSecond()));
+            writeVarLong(out, dateTime.getNano());
+            writeString(out, dateTime.getZone().getId());
+        } else if (type == QuantityType.class && isKnownUnit((QuantityType<?>) state)) {
+            QuantityType<?> quantity = (QuantityType<?>) state;
+            out.writeByte(TAG_QUANTITY);
+            writeDecimal(out, quantity.toBigDecimal());
+            writeString(out, quantity.getUnit().toString());
+        } else {
+            out.writeByte(TAG_GENERIC);
+            writeString(out, type.getName());
+            writeString(out, state.toFullString());
+        }
+    }
+
+    /**
+     * Reads a state written by {@link #write(DataOutput, State)}.
+     *
+     * @return the state or null if a generic state could not be restored
+     */
+    public static @Nullable State read(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_ON_OFF:
+                return in.readBoolean() ? OnOffType.ON : OnOffType.OFF;
+            case TAG_OPEN_CLOSED:
+                return in.readBoolean() ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
+            case TAG_GENERIC:
+                return readGeneric(in);
+            case TAG_DECIMAL:
+                return new DecimalType(readDecimal(in));
+            case TAG_PERCENT:
+                return new PercentType(readDecimal(in));
+            case TAG_HSB:
+                return new HSBType(new DecimalType(readDecimal(in)), new PercentType(readDecimal(in)),
+                        new PercentType(readDecimal(in)));
+            case TAG_STRING:
+                return new StringType(readString(in));
+            case TAG_DATE_TIME:
+                long seconds = unZigZag(readVarLong(in));
+                long nanos = readVarLong(in);
+                ZoneId zone = ZoneId.of(readString(in));
+                return new DateTimeType(ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), zone));
+            case TAG_QUANTITY:
+                BigDecimal value = readDecimal(in);
+                String symbol = readString(in);
+                Unit<?> unit = UNITS.get(symbol);
+                if (unit == null) {
+                    unit = new QuantityType<>("1 " + symbol).getUnit();
+                    UNITS.put(symbol, unit);
+                }
+                return quantity(value, unit);
+            default:
+                throw new IOException("Unknown state tag " + tag);
+        }
+    }
+
+    private static @Nullable State readGeneric(DataInput in) throws IOException {
+        String typeName = readString(in);
+        String value = readString(in);
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends State> type = (Class<? extends State>) Class.forName(typeName);
+            return TypeParser.parseState(Collections.singletonList(type), value);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            LOGGER.warn("Couldn't deserialize state '{}' of type {}: {}", value, typeName, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isKnownUnit(QuantityType<?> quantity) {
+        Unit<?> unit = quantity.getUnit();
+        String symbol = unit.toString();
+        Unit<?> known = UNITS.get(symbol);
+        if (known == null && !symbol.isEmpty()) {
+            try {
+                Unit<?> parsed = new QuantityType<>("1 " + symbol).getUnit();
+                if (parsed.equals(unit)) {
+                    UNITS.put(symbol, parsed);
+                    known = parsed;
+                }
+            } catch (IllegalArgumentException e) {
+                // not parseable from its symbol, use the generic encoding
+            }
+        }
+        return unit.equals(known);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static State quantity(BigDecimal value, Unit<?> unit) {
+        return new QuantityType(value, unit);
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        writeVarLong(out, zigZag(value.scale()));
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 63) {
+            writeVarLong(out, zigZag(unscaled.longValue()) << 1);
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            writeVarLong(out, ((long) bytes.length << 1) | 1);
+            out.write(bytes);
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = (int) unZigZag(readVarLong(in));
+        long header = readVarLong(in);
+        if ((header & 1) == 0) {
+            return BigDecimal.valueOf(unZigZag(header >>> 1), scale);
+        }
+        byte[] bytes = new byte[(int) (header >>> 1)];
+        in.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
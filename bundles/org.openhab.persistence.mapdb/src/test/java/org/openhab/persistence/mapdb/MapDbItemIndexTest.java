@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItemIndex;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbItemIndexTest {
+    private final Map<String, long[]> persisted = new HashMap<>();
+
+    @Test
+    public void historyIndexShouldCountAllValues() {
+        MapDbItemIndex index = new MapDbItemIndex(persisted, true);
+        index.update("item", new Date(2000));
+        index.update("item", new Date(1000));
+        index.update("item", new Date(3000));
+
+        PersistenceItemInfo info = index.getItemInfo().iterator().next();
+        assertThat(info.getName(), is("item"));
+        assertThat(info.getCount(), is(3));
+        assertThat(info.getEarliest(), is(equalTo(new Date(1000))));
+        assertThat(info.getLatest(), is(equalTo(new Date(3000))));
+    }
+
+    @Test
+    public void lastValueIndexShouldOnlyKeepTheLastValue() {
+        MapDbItemIndex index = new MapDbItemIndex(persisted, false);
+        index.update("item", new Date(1000));
+        index.update("item", new Date(2000));
+
+        PersistenceItemInfo info = index.getItemInfo().iterator().next();
+        assertThat(info.getCount(), is(1));
+        assertThat(info.getEarliest(), is(equalTo(new Date(2000))));
+    }
+
+    @Test
+    public void persistedEntriesShouldBeLoaded() {
+        MapDbItemIndex index = new MapDbItemIndex(persisted, true);
+        index.update("item", new Date(1000));
+        index.update("item", new Date(2000));
+        index.persist(Collections.singleton("item"));
+
+        MapDbItemIndex loaded = new MapDbItemIndex(persisted, true);
+        assertThat(loaded.contains("item"), is(true));
+        PersistenceItemInfo info = loaded.getItemInfo().iterator().next();
+        assertThat(info.getCount(), is(2));
+        assertThat(info.getEarliest(), is(equalTo(new Date(1000))));
+        assertThat(info.getLatest(), is(equalTo(new Date(2000))));
+    }
+}
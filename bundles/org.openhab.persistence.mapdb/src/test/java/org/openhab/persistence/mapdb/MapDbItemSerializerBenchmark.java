@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemSerializer;
+import org.openhab.persistence.mapdb.internal.StateTypeAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * JMH benchmark comparing the binary {@link MapDbItemSerializer} with the previous Gson JSON format.
+ * <p>
+ * Not run by the build, start it with the {@link #main(String[])} method from the IDE. The encoded size of each state
+ * type in both formats is printed before the benchmark starts.
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapDbItemSerializerBenchmark {
+
+    @Param({ "decimal", "quantity", "onoff", "percent", "hsb", "datetime", "string" })
+    public String stateType;
+
+    private final Gson mapper = new GsonBuilder()
+            .registerTypeHierarchyAdapter(org.eclipse.smarthome.core.types.State.class, new StateTypeAdapter())
+            .create();
+    private final MapDbItemSerializer serializer = new MapDbItemSerializer();
+
+    private MapDbItem item;
+    private String json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        item = item(createState(stateType));
+        json = mapper.toJson(item);
+        binary = encodeBinary(serializer, item);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return mapper.toJson(item);
+    }
+
+    @Benchmark
+    public MapDbItem decodeJson() {
+        return mapper.fromJson(json, MapDbItem.class);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() throws IOException {
+        return encodeBinary(serializer, item);
+    }
+
+    @Benchmark
+    public MapDbItem decodeBinary() throws IOException {
+        return serializer.deserialize(new DataInputStream(new ByteArrayInputStream(binary)), binary.length);
+    }
+
+    private static byte[] encodeBinary(MapDbItemSerializer serializer, MapDbItem item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        serializer.serialize(new DataOutputStream(bytes), item);
+        return bytes.toByteArray();
+    }
+
+    private static org.eclipse.smarthome.core.types.State createState(String type) {
+        switch (type) {
+            case "decimal":
+                return new DecimalType("1234.56");
+            case "quantity":
+                return new QuantityType<>("21.5 °C");
+            case "onoff":
+                return OnOffType.ON;
+            case "percent":
+                return new PercentType(42);
+            case "hsb":
+                return HSBType.GREEN;
+            case "datetime":
+                return new DateTimeType();
+            default:
+                return StringType.valueOf("Living room window opened");
+        }
+    }
+
+    private static MapDbItem item(org.eclipse.smarthome.core.types.State state) {
+        MapDbItem item = new MapDbItem();
+        item.setName("LivingRoom_Temperature");
+        item.setState(state);
+        item.setTimestamp(new Date());
+        return item;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Gson mapper = new GsonBuilder()
+                .registerTypeHierarchyAdapter(org.eclipse.smarthome.core.types.State.class, new StateTypeAdapter())
+                .create();
+        MapDbItemSerializer serializer = new MapDbItemSerializer();
+        for (String type : MapDbItemSerializerBenchmark.class.getField("stateType").getAnnotation(Param.class)
+                .value()) {
+            MapDbItem item = item(createState(type));
+            System.out.println(String.format("%-10s JSON: %4d bytes, binary: %4d bytes", type,
+                    mapper.toJson(item).getBytes(StandardCharsets.UTF_8).length,
+                    encodeBinary(serializer, item).length));
+        }
+
+        new Runner(new OptionsBuilder().include(MapDbItemSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
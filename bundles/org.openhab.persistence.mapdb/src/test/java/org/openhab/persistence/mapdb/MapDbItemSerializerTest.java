@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemSerializer;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbItemSerializerTest {
+    private final MapDbItemSerializer serializer = new MapDbItemSerializer();
+
+    @Test
+    public void serializeDeserializeRoundtripShouldRecreateTheWrittenState() throws IOException {
+        assertThat(roundtrip(OnOffType.ON), is(equalTo(OnOffType.ON)));
+        assertThat(roundtrip(OpenClosedType.CLOSED), is(equalTo(OpenClosedType.CLOSED)));
+        assertThat(roundtrip(PercentType.HUNDRED), is(equalTo(PercentType.HUNDRED)));
+        assertThat(roundtrip(HSBType.GREEN), is(equalTo(HSBType.GREEN)));
+        assertThat(roundtrip(StringType.valueOf("test")), is(equalTo(StringType.valueOf("test"))));
+        assertThat(roundtrip(new DecimalType("-12.345")), is(equalTo(new DecimalType("-12.345"))));
+        assertThat(roundtrip(new DecimalType(new BigDecimal("123456789012345678901234567890.5"))),
+                is(equalTo(new DecimalType(new BigDecimal("123456789012345678901234567890.5")))));
+        assertThat(roundtrip(new QuantityType<>("21.5 °C")), is(equalTo(new QuantityType<>("21.5 °C"))));
+        DateTimeType dateTime = new DateTimeType(ZonedDateTime.of(2020, 1, 2, 3, 4, 5, 6, ZoneId.of("Europe/Berlin")));
+        assertThat(roundtrip(dateTime), is(equalTo(dateTime)));
+    }
+
+    @Test
+    public void serializeShouldKeepNameAndTimestamp() throws IOException {
+        MapDbItem item = item(new DecimalType(1));
+        MapDbItem result = deserialize(serialize(item));
+
+        assertThat(result.getName(), is(equalTo(item.getName())));
+        assertThat(result.getTimestamp(), is(equalTo(item.getTimestamp())));
+    }
+
+    @Test
+    public void decimalsShouldBeWrittenCompactly() throws IOException {
+        // version, name, timestamp, tag, scale and unscaled value
+        assertThat(serialize(item(new DecimalType("21.5"))).length, is(1 + 6 + 8 + 1 + 1 + 2));
+    }
+
+    private State roundtrip(State state) throws IOException {
+        return deserialize(serialize(item(state))).getState();
+    }
+
+    private byte[] serialize(MapDbItem item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        serializer.serialize(new DataOutputStream(bytes), item);
+        return bytes.toByteArray();
+    }
+
+    private MapDbItem deserialize(byte[] bytes) throws IOException {
+        return serializer.deserialize(new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+    }
+
+    private static MapDbItem item(State state) {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(state);
+        item.setTimestamp(new Date(1577934245000L));
+        return item;
+    }
+}
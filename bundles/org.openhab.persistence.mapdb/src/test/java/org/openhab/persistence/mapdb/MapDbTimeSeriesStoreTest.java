@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.persistence.mapdb.internal.MapDbTimeSeriesStore;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbTimeSeriesStoreTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MapDbTimeSeriesStore store;
+
+    @Before
+    public void setUp() {
+        store = new MapDbTimeSeriesStore(folder.getRoot().toPath(), 1);
+    }
+
+    @Test
+    public void appendedStatesShouldBeReturnedInOrder() throws IOException {
+        store.append("item", new DecimalType(1.5), new Date(1000));
+        store.append("item", OnOffType.ON, new Date(2000));
+        store.append("item", PercentType.HUNDRED, new Date(3000));
+        store.append("item", StringType.valueOf("test"), new Date(2 * HOUR));
+        store.append("item", new DecimalType("3.14159265358979323846"), new Date(2 * HOUR + 1));
+
+        List<State> states = states(new FilterCriteria().setItemName("item").setOrdering(Ordering.ASCENDING));
+        assertThat(states.size(), is(5));
+        assertThat(states.get(0), is(equalTo(new DecimalType(1.5))));
+        assertThat(states.get(1), is(equalTo(OnOffType.ON)));
+        assertThat(states.get(2), is(equalTo(PercentType.HUNDRED)));
+        assertThat(states.get(3), is(equalTo(StringType.valueOf("test"))));
+        assertThat(states.get(4), is(equalTo(new DecimalType("3.14159265358979323846"))));
+    }
+
+    @Test
+    public void queryShouldRespectRangeOrderingAndPaging() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            store.append("item", new DecimalType(i), new Date(i * HOUR / 2));
+        }
+
+        List<State> states = states(new FilterCriteria().setItemName("item").setBeginDate(new Date(HOUR))
+                .setEndDate(new Date(3 * HOUR)).setOrdering(Ordering.ASCENDING));
+        assertThat(states, is(equalTo(decimals(2, 3, 4, 5, 6))));
+
+        states = states(new FilterCriteria().setItemName("item").setOrdering(Ordering.DESCENDING).setPageSize(3)
+                .setPageNumber(1));
+        assertThat(states, is(equalTo(decimals(6, 5, 4))));
+    }
+
+    @Test
+    public void appendShouldContinueExistingSegments() throws IOException {
+        store.append("item", new DecimalType(1), new Date(1000));
+        store.flush();
+        store = new MapDbTimeSeriesStore(folder.getRoot().toPath(), 1);
+        store.append("item", new DecimalType(2), new Date(5000));
+
+        List<HistoricItem> items = new ArrayList<>();
+        store.query(new FilterCriteria().setItemName("item").setOrdering(Ordering.ASCENDING)).forEach(items::add);
+        assertThat(items.size(), is(2));
+        assertThat(items.get(1).getTimestamp(), is(equalTo(new Date(5000))));
+    }
+
+    @Test
+    public void pendingRecordsShouldBeReturnedBeforeAndAfterFlush() throws IOException {
+        store.append("item", new DecimalType(1), new Date(1000));
+        store.flush();
+        store.append("item", new DecimalType(2), new Date(2000));
+        store.append("item", new DecimalType(3), new Date(2 * HOUR));
+
+        assertThat(states(new FilterCriteria().setItemName("item").setOrdering(Ordering.ASCENDING)),
+                is(equalTo(decimals(1, 2, 3))));
+        assertThat(store.summarize("item").getCount(), is(3));
+
+        store.flush();
+        store = new MapDbTimeSeriesStore(folder.getRoot().toPath(), 1);
+        assertThat(states(new FilterCriteria().setItemName("item").setOrdering(Ordering.ASCENDING)),
+                is(equalTo(decimals(1, 2, 3))));
+    }
+
+    @Test
+    public void appendShouldCutOffTruncatedRecord() throws IOException {
+        store.append("item", new DecimalType(1), new Date(1000));
+        store.append("item", StringType.valueOf("a longer string value"), new Date(2000));
+        store.flush();
+        Path segment;
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            segment = files.filter(Files::isRegularFile).findFirst().get();
+        }
+        // simulate a crash while the last record was written
+        byte[] content = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(content, content.length - 5), StandardOpenOption.TRUNCATE_EXISTING);
+
+        store = new MapDbTimeSeriesStore(folder.getRoot().toPath(), 1);
+        store.append("item", new DecimalType(3), new Date(3000));
+        store.flush();
+
+        List<HistoricItem> items = new ArrayList<>();
+        store.query(new FilterCriteria().setItemName("item").setOrdering(Ordering.ASCENDING)).forEach(items::add);
+        assertThat(items.size(), is(2));
+        assertThat(items.get(0).getState(), is(equalTo(new DecimalType(1))));
+        assertThat(items.get(1).getState(), is(equalTo(new DecimalType(3))));
+        assertThat(items.get(1).getTimestamp(), is(equalTo(new Date(3000))));
+    }
+
+    @Test
+    public void compactShouldDropExpiredSegments() throws IOException {
+        store.append("item", new DecimalType(1), new Date(1000));
+        store.append("item", new DecimalType(2), new Date(3 * HOUR));
+
+        store.compact(new Date(2 * HOUR));
+
+        assertThat(states(new FilterCriteria().setItemName("item")), is(equalTo(decimals(2))));
+    }
+
+    private List<State> states(FilterCriteria filter) throws IOException {
+        List<State> states = new ArrayList<>();
+        store.query(filter).forEach(item -> states.add(item.getState()));
+        return states;
+    }
+
+    private static List<State> decimals(int... values) {
+        List<State> states = new ArrayList<>();
+        for (int value : values) {
+            states.add(new DecimalType(value));
+        }
+        return states;
+    }
+}
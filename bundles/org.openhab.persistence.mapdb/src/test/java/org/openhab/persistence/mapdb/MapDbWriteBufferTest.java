@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbWriteBuffer;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbWriteBufferTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<MapDbItem>> batches = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void updatesOfTheSameItemShouldBeCoalesced() {
+        MapDbWriteBuffer buffer = new MapDbWriteBuffer(scheduler, batch -> batches.add(new ArrayList<>(batch)), 100,
+                60000);
+        buffer.add(item("a", 1));
+        buffer.add(item("b", 2));
+        buffer.add(item("a", 3));
+
+        assertThat(buffer.get("a").getState(), is(equalTo(new DecimalType(3))));
+        assertThat(buffer.getCoalescedWrites(), is(1L));
+
+        buffer.flush();
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(2));
+        assertThat(buffer.get("a"), is(nullValue()));
+        assertThat(buffer.getCommits(), is(1L));
+        assertThat(buffer.getWrittenItems(), is(2L));
+    }
+
+    @Test
+    public void fullBufferShouldBeWrittenByTheUpdatingThread() {
+        MapDbWriteBuffer buffer = new MapDbWriteBuffer(scheduler, batch -> batches.add(new ArrayList<>(batch)), 1,
+                60000);
+        // keep the scheduler busy, so that the asynchronous flush cannot run
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        buffer.add(item("a", 1));
+        buffer.add(item("b", 2));
+
+        assertThat(batches.size(), is(1));
+        assertThat(buffer.getLastBatchSize(), is(2));
+        blocker.countDown();
+    }
+
+    @Test
+    public void failedBatchShouldBeQueuedAgain() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        MapDbWriteBuffer buffer = new MapDbWriteBuffer(scheduler, batch -> {
+            if (fail.get()) {
+                throw new IllegalStateException("disk full");
+            }
+            batches.add(new ArrayList<>(batch));
+        }, 100, 60000);
+        buffer.add(item("a", 1));
+        buffer.add(item("b", 2));
+
+        buffer.flush();
+        assertThat(buffer.getFailedWrites(), is(1L));
+        assertThat(buffer.getCommits(), is(0L));
+        assertThat(buffer.getPendingSize(), is(2));
+
+        // a newer update must not be replaced by the failed one
+        buffer.add(item("a", 3));
+        fail.set(false);
+        buffer.flush();
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(2));
+        assertThat(batches.get(0).get(0).getState(), is(equalTo(new DecimalType(3))));
+        assertThat(buffer.getPendingSize(), is(0));
+    }
+
+    private static MapDbItem item(String name, int value) {
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setState(new DecimalType(value));
+        item.setTimestamp(new Date());
+        return item;
+    }
+}
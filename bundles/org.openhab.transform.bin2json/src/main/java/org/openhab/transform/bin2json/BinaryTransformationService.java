@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.bin2json;
+
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.transform.TransformationException;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * Transforms binary data by Java Binary Block Parser syntax. Bindings receiving binary data can reference this
+ * service to avoid converting the data to a hexadecimal string, and to get single fields without building a JSON
+ * document.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface BinaryTransformationService {
+
+    /**
+     * Transforms binary data by Java Binary Block Parser syntax.
+     *
+     * @param syntax Java Binary Block Parser syntax.
+     * @param data the binary data to transform
+     * @return the data in JSON format
+     * @throws TransformationException if the syntax is illegal or the data cannot be parsed
+     */
+    String transform(String syntax, byte[] data) throws TransformationException;
+
+    /**
+     * Extracts single values of binary data by Java Binary Block Parser syntax, without building a JSON object.
+     *
+     * @param syntax Java Binary Block Parser syntax.
+     * @param data the binary data to transform
+     * @param fieldPaths the paths of the fields to extract, i.e. their names, prefixed by the names of the enclosing
+     *            structures and a dot for fields within structures. Example: <code>header.length</code>
+     * @return {@link DecimalType} for numeric fields, {@link OnOffType} for boolean fields and {@link StringType} for
+     *         string fields, by field path
+     * @throws TransformationException if the syntax is illegal, the data cannot be parsed, or a field does not exist
+     *             or is an array or structure
+     */
+    Map<String, State> extract(String syntax, byte[] data, List<String> fieldPaths) throws TransformationException;
+}
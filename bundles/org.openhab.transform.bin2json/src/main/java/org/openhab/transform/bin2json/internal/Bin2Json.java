@@ -16,7 +16,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.util.HexUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,12 +47,16 @@ import com.igormaznitsa.jbbp.model.JBBPFieldArrayUShort;
 import com.igormaznitsa.jbbp.model.JBBPFieldBit;
 import com.igormaznitsa.jbbp.model.JBBPFieldBoolean;
 import com.igormaznitsa.jbbp.model.JBBPFieldByte;
+import com.igormaznitsa.jbbp.model.JBBPFieldDouble;
+import com.igormaznitsa.jbbp.model.JBBPFieldFloat;
 import com.igormaznitsa.jbbp.model.JBBPFieldInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldLong;
 import com.igormaznitsa.jbbp.model.JBBPFieldShort;
+import com.igormaznitsa.jbbp.model.JBBPFieldString;
 import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
 import com.igormaznitsa.jbbp.model.JBBPFieldUByte;
 import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
 
 /**
  * This class converts binary data to JSON format.
@@ -66,6 +77,16 @@ import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
  * json.toString() = {"a":3,"b":-6,"c":255}
  * </pre>
  *
+ * <p>
+ * The parser rule is prepared once, so instances can be reused for converting any number of data blocks, also
+ * concurrently. Single values can be extracted as {@link State}s without building a JSON object:
+ *
+ * <pre>
+ * {@code
+ * Map<String, State> states = new Bin2Json("byte a; byte b; ubyte c;").extract(data, Arrays.asList("a", "c"));
+ * }
+ * </pre>
+ *
  * @author Pauli Anttila - Initial contribution
  *
  */
@@ -137,6 +158,48 @@ public class Bin2Json {
         }
     }
 
+    /**
+     * Extract single value fields from byte array.
+     *
+     * @param data Data in byte array format.
+     * @param fieldPaths Paths of the fields, i.e. their names, prefixed by the names of the enclosing structures and
+     *            a dot for fields within structures. Example: <code>header.length</code>
+     * @return {@link DecimalType} for numeric fields, {@link OnOffType} for boolean fields and {@link StringType} for
+     *         string fields, by field path
+     * @throws ConversionException if the data cannot be parsed, or a field does not exist or is an array or structure
+     */
+    public Map<String, State> extract(byte[] data, List<String> fieldPaths) throws ConversionException {
+        final JBBPFieldStruct struct;
+        try {
+            struct = parser.parse(data);
+        } catch (IOException | JBBPException e) {
+            throw new ConversionException(String.format("Unexpected error, reason: %s", e.getMessage()), e);
+        }
+        final Map<String, State> states = new LinkedHashMap<>();
+        for (String fieldPath : fieldPaths) {
+            final JBBPAbstractField field = struct.findFieldForPath(fieldPath);
+            if (field == null) {
+                throw new ConversionException(String.format("Field '%s' not found", fieldPath));
+            }
+            states.put(fieldPath, toState(field));
+        }
+        return states;
+    }
+
+    private State toState(final JBBPAbstractField field) throws ConversionException {
+        if (field instanceof JBBPFieldBoolean) {
+            return ((JBBPFieldBoolean) field).getAsBool() ? OnOffType.ON : OnOffType.OFF;
+        } else if (field instanceof JBBPFieldFloat || field instanceof JBBPFieldDouble) {
+            return new DecimalType(((JBBPNumericField) field).getAsDouble());
+        } else if (field instanceof JBBPNumericField) {
+            return new DecimalType(((JBBPNumericField) field).getAsLong());
+        } else if (field instanceof JBBPFieldString) {
+            final String value = ((JBBPFieldString) field).getAsString();
+            return new StringType(value == null ? "" : value);
+        }
+        throw new ConversionException(String.format("Field '%s' is not a single value", field.getFieldPath()));
+    }
+
     private JsonObject convert(JBBPFieldStruct data) throws ConversionException {
         try {
             LocalDateTime start = LocalDateTime.now();
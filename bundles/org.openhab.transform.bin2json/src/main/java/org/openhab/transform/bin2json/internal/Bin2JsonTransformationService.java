@@ -12,10 +12,16 @@
  */
 package org.openhab.transform.bin2json.internal;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.transform.bin2json.BinaryTransformationService;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,15 +29,34 @@ import org.slf4j.LoggerFactory;
 /**
  * The implementation of {@link TransformationService} which transforms the
  * hexa string formatted binary data by Binary Block Parser syntax to JSON format.
+ * As {@link BinaryTransformationService} it also transforms raw binary data for bindings.
+ *
+ * Prepared parsers are cached per syntax, as preparing the syntax is much more expensive than parsing small data
+ * blocks.
  *
  * @author Pauli Anttila - Initial contribution
  */
 @NonNullByDefault
-@Component(immediate = true, property = { "smarthome.transform=BIN2JSON" })
-public class Bin2JsonTransformationService implements TransformationService {
+@Component(immediate = true, service = { TransformationService.class,
+        BinaryTransformationService.class }, property = { "smarthome.transform=BIN2JSON" })
+public class Bin2JsonTransformationService implements TransformationService, BinaryTransformationService {
+
+    /**
+     * Maximum number of prepared parsers kept in the cache
+     */
+    static final int CACHE_SIZE = 64;
 
     private Logger logger = LoggerFactory.getLogger(Bin2JsonTransformationService.class);
 
+    private final Map<String, Bin2Json> cache = new LinkedHashMap<String, Bin2Json>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, Bin2Json> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     /**
      * Transforms the input <code>source</code> by Java Binary Block Parser syntax.
      *
@@ -46,7 +71,7 @@ public class Bin2JsonTransformationService implements TransformationService {
         String result = "";
 
         try {
-            result = String.valueOf(new Bin2Json(syntax).convert(source));
+            result = String.valueOf(getConverter(syntax).convert(source));
             logger.debug("transformation resulted '{}'", result);
             return result;
         } catch (ConversionException e) {
@@ -56,4 +81,37 @@ public class Bin2JsonTransformationService implements TransformationService {
                     result);
         }
     }
+
+    @Override
+    public String transform(String syntax, byte[] data) throws TransformationException {
+        try {
+            return String.valueOf(getConverter(syntax).convert(data));
+        } catch (ConversionException e) {
+            throw new TransformationException("An error occurred while executing the converter. " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, State> extract(String syntax, byte[] data, List<String> fieldPaths)
+            throws TransformationException {
+        try {
+            return getConverter(syntax).extract(data, fieldPaths);
+        } catch (ConversionException e) {
+            throw new TransformationException("An error occurred while executing the converter. " + e.getMessage(), e);
+        }
+    }
+
+    Bin2Json getConverter(String syntax) throws ConversionException {
+        synchronized (cache) {
+            Bin2Json converter = cache.get(syntax);
+            if (converter != null) {
+                return converter;
+            }
+        }
+        Bin2Json converter = new Bin2Json(syntax);
+        synchronized (cache) {
+            cache.put(syntax, converter);
+        }
+        return converter;
+    }
 }
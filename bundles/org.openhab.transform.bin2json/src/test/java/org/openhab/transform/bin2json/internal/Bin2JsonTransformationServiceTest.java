@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.bin2json.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.transform.TransformationException;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class Bin2JsonTransformationServiceTest {
+
+    private static final String SYNTAX = "byte a; byte b; ubyte c;";
+    private static final byte[] DATA = new byte[] { 0x03, (byte) 0xFA, (byte) 0xFF };
+
+    private Bin2JsonTransformationService processor;
+
+    @Before
+    public void init() {
+        processor = new Bin2JsonTransformationService();
+    }
+
+    @Test
+    public void testTransformHexString() throws TransformationException {
+        assertEquals("{\"a\":3,\"b\":-6,\"c\":255}", processor.transform(SYNTAX, "03FAFF"));
+    }
+
+    @Test
+    public void testTransformBytes() throws TransformationException {
+        assertEquals("{\"a\":3,\"b\":-6,\"c\":255}", processor.transform(SYNTAX, DATA));
+    }
+
+    @Test
+    public void testExtractNumbers() throws TransformationException {
+        Map<String, State> states = processor.extract(SYNTAX, DATA, Arrays.asList("c", "b"));
+
+        assertEquals(Arrays.asList("c", "b"), Arrays.asList(states.keySet().toArray()));
+        assertEquals(new DecimalType(255), states.get("c"));
+        assertEquals(new DecimalType(-6), states.get("b"));
+    }
+
+    @Test
+    public void testExtractFromStructure() throws TransformationException {
+        Map<String, State> states = processor.extract("header { ubyte length; bool flag; } floatj value;",
+                new byte[] { 0x02, 0x01, 0x3F, (byte) 0xC0, 0x00, 0x00 },
+                Arrays.asList("header.length", "header.flag", "value"));
+
+        assertEquals(new DecimalType(2), states.get("header.length"));
+        assertEquals(OnOffType.ON, states.get("header.flag"));
+        assertEquals(new DecimalType(1.5), states.get("value"));
+    }
+
+    @Test
+    public void testExtractString() throws TransformationException {
+        Map<String, State> states = processor.extract("stringj name;", new byte[] { 0x02, 'h', 'i' },
+                Collections.singletonList("name"));
+
+        assertEquals(new StringType("hi"), states.get("name"));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void testExtractUnknownField() throws TransformationException {
+        processor.extract(SYNTAX, DATA, Collections.singletonList("d"));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void testExtractArray() throws TransformationException {
+        processor.extract("byte[2] a;", new byte[] { 0x01, 0x02 }, Collections.singletonList("a"));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void testIllegalSyntax() throws TransformationException {
+        processor.transform("byte a", DATA);
+    }
+
+    @Test
+    public void testConvertersAreCached() throws ConversionException {
+        Bin2Json converter = processor.getConverter(SYNTAX);
+
+        assertSame(converter, processor.getConverter(SYNTAX));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedConverterIsEvicted() throws ConversionException {
+        Bin2Json first = processor.getConverter("byte a0;");
+        Bin2Json second = processor.getConverter("byte a1;");
+        for (int i = 2; i < Bin2JsonTransformationService.CACHE_SIZE; i++) {
+            processor.getConverter("byte a" + i + ";");
+        }
+        // Using the first converter again makes the second one the eldest
+        assertSame(first, processor.getConverter("byte a0;"));
+        processor.getConverter("byte overflow;");
+
+        assertSame(first, processor.getConverter("byte a0;"));
+        assertNotSame(second, processor.getConverter("byte a1;"));
+    }
+}
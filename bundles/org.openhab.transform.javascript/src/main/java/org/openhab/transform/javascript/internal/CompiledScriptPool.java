@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.javascript.internal;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.transform.TransformationException;
+
+/**
+ * Bounded pool of compiled versions of a single JavaScript file, each compiled on its own {@link ScriptEngine}.
+ *
+ * Script engines are not thread-safe, so a compiled script is used by one thread at a time. Threads borrow a compiled
+ * script from the pool, which compiles the script on a new engine as long as less than <code>maxSize</code> engines
+ * exist, and waits for a script to be released otherwise.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class CompiledScriptPool {
+
+    /**
+     * Time to wait for a released script before checking whether an engine slot became free
+     */
+    private static final long RETRY_MILLIS = 100;
+
+    private final String filename;
+    private final String script;
+    private final int maxSize;
+    private final ScriptEngineManager engineManager;
+    private final BlockingQueue<CompiledScript> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Creates a pool
+     *
+     * @param filename name of the JavaScript file, for logging
+     * @param script source of the script
+     * @param maxSize maximum number of engines
+     * @param engineManager manager creating the engines
+     */
+    public CompiledScriptPool(String filename, String script, int maxSize, ScriptEngineManager engineManager) {
+        this.filename = filename;
+        this.script = script;
+        this.maxSize = maxSize;
+        this.engineManager = engineManager;
+    }
+
+    /**
+     * Get a compiled script for exclusive use by the calling thread. It has to be given back with
+     * {@link #release(CompiledScript)}.
+     *
+     * @return a compiled script
+     * @throws TransformationException if the script does not compile, or the thread is interrupted while waiting
+     */
+    public CompiledScript borrow() throws TransformationException {
+        try {
+            while (true) {
+                CompiledScript compiledScript = idle.poll();
+                if (compiledScript != null) {
+                    return compiledScript;
+                }
+                if (size.incrementAndGet() <= maxSize) {
+                    try {
+                        return compile();
+                    } catch (TransformationException | RuntimeException e) {
+                        size.decrementAndGet();
+                        throw e;
+                    }
+                }
+                size.decrementAndGet();
+                // A failed compile frees its slot without ever releasing a script, so don't wait forever
+                compiledScript = idle.poll(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                if (compiledScript != null) {
+                    return compiledScript;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransformationException("Interrupted while waiting for JavaScript " + filename, e);
+        }
+    }
+
+    /**
+     * Give back a compiled script obtained with {@link #borrow()}
+     *
+     * @param compiledScript the compiled script
+     * @param elapsedNanos time spent evaluating the script
+     * @param failed whether the evaluation failed
+     */
+    public void release(CompiledScript compiledScript, long elapsedNanos, boolean failed) {
+        invocations.increment();
+        if (failed) {
+            failures.increment();
+        }
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        idle.offer(compiledScript);
+    }
+
+    private CompiledScript compile() throws TransformationException {
+        final ScriptEngine engine = engineManager.getEngineByName("javascript");
+        if (engine == null) {
+            throw new TransformationException("No JavaScript engine available");
+        }
+        try {
+            return ((Compilable) engine).compile(script);
+        } catch (ScriptException e) {
+            throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get name of the JavaScript file
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Get number of engines the script has been compiled on
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Get number of evaluations of the script
+     */
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    /**
+     * Get number of evaluations that failed
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Get average time of an evaluation in milliseconds
+     */
+    public double getAverageMillis() {
+        long count = getInvocations();
+        return count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()) / count / 1000;
+    }
+
+    /**
+     * Get maximum time of an evaluation in milliseconds
+     */
+    public double getMaxMillis() {
+        return (double) TimeUnit.NANOSECONDS.toMicros(maxNanos.get()) / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d engines, %d invocations (%d failed), avg %.2f ms, max %.2f ms", filename,
+                getSize(), getInvocations(), getFailures(), getAverageMillis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.javascript.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console command showing the invocation statistics of the cached JavaScript transformations
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+@NonNullByDefault
+public class JavaScriptCommandExtension extends AbstractConsoleCommandExtension {
+    private static final String SUBCMD_SCRIPTS = "scripts";
+
+    private @Nullable JavaScriptEngineManager manager;
+
+    public JavaScriptCommandExtension() {
+        super("jstransform", "Show statistics of the JavaScript transformations.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        JavaScriptEngineManager manager = this.manager;
+        if (args.length == 1 && SUBCMD_SCRIPTS.equals(args[0]) && manager != null) {
+            Collection<CompiledScriptPool> scripts = manager.getScripts();
+            if (scripts.isEmpty()) {
+                console.println("No scripts loaded");
+            }
+            scripts.forEach(script -> console.println(script.toString()));
+        } else {
+            printUsage(console);
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Collections.singletonList(buildCommandUsage(SUBCMD_SCRIPTS,
+                "shows engines, invocations and evaluation times per loaded script"));
+    }
+
+    @Reference
+    public void setJavaScriptEngineManager(JavaScriptEngineManager manager) {
+        this.manager = manager;
+    }
+
+    public void unsetJavaScriptEngineManager(JavaScriptEngineManager manager) {
+        this.manager = null;
+    }
+}
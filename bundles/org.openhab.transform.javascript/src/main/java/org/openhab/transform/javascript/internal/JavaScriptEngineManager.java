@@ -13,18 +13,17 @@
 package org.openhab.transform.javascript.internal;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.script.Compilable;
-import javax.script.CompiledScript;
-import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.smarthome.core.transform.TransformationException;
@@ -35,6 +34,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Simple cache for compiled JavaScript files.
  *
+ * Every file is compiled on up to {@link #MAX_ENGINES_PER_SCRIPT} engines, so that several threads can evaluate it at
+ * the same time. Looking up a cached script does not lock.
+ *
  * @author Thomas Kordelle - pre compiled scripts
  *
  */
@@ -42,38 +44,46 @@ import org.slf4j.LoggerFactory;
 @Component(service = JavaScriptEngineManager.class)
 public class JavaScriptEngineManager {
 
+    /**
+     * Maximum number of engines a single script is compiled on
+     */
+    public static final int MAX_ENGINES_PER_SCRIPT = Math.min(4, Runtime.getRuntime().availableProcessors());
+
     private final Logger logger = LoggerFactory.getLogger(JavaScriptEngineManager.class);
     private final ScriptEngineManager manager = new ScriptEngineManager();
-    /* keep memory foot print low. max 2 concurrent threads are estimated */
-    private final Map<String, CompiledScript> compiledScriptMap = new ConcurrentHashMap<>(4, 0.5f, 2);
+    private final Map<String, CompiledScriptPool> compiledScriptMap = new ConcurrentHashMap<>();
 
     /**
-     * Get a pre compiled script {@link CompiledScript} from cache. If it is not in the cache, then load it from
-     * storage and put a pre compiled version into the cache.
+     * Get the pool of pre compiled versions of a script from cache. If it is not in the cache, then load it from
+     * storage and put a new pool into the cache.
      *
      * @param filename name of the JavaScript file to load
-     * @return a pre compiled script {@link CompiledScript}
-     * @throws TransformationException if compile of JavaScript failed
+     * @return a pool of pre compiled versions of the script
+     * @throws TransformationException if the JavaScript file cannot be read
      */
-    protected CompiledScript getScript(final String filename) throws TransformationException {
-        synchronized (compiledScriptMap) {
-            if (compiledScriptMap.containsKey(filename)) {
-                logger.debug("Loading JavaScript {} from cache.", filename);
-                return compiledScriptMap.get(filename);
-            } else {
-                final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
-                logger.debug("Loading script {} from storage ", path);
-                try (final Reader reader = new InputStreamReader(new FileInputStream(path))) {
-                    final ScriptEngine engine = manager.getEngineByName("javascript");
-                    final CompiledScript cScript = ((Compilable) engine).compile(reader);
-                    logger.debug("Putting compiled JavaScript {} to cache.", cScript);
-                    compiledScriptMap.put(filename, cScript);
-                    return cScript;
-                } catch (IOException | ScriptException e) {
-                    throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(),
-                            e);
-                }
-            }
+    protected CompiledScriptPool getScript(final String filename) throws TransformationException {
+        CompiledScriptPool pool = compiledScriptMap.get(filename);
+        if (pool != null) {
+            logger.trace("Loading JavaScript {} from cache.", filename);
+            return pool;
+        }
+        // Load within computeIfAbsent, so that a concurrent removeFromCache() can't be undone by a stale script
+        try {
+            return compiledScriptMap.computeIfAbsent(filename, this::loadScript);
+        } catch (UncheckedIOException e) {
+            throw new TransformationException(
+                    "An error occurred while loading JavaScript. " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private CompiledScriptPool loadScript(String filename) {
+        final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
+        logger.debug("Loading script {} from storage ", path);
+        try {
+            final String script = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+            return new CompiledScriptPool(filename, script, MAX_ENGINES_PER_SCRIPT, manager);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -86,4 +96,11 @@ public class JavaScriptEngineManager {
         logger.debug("Removing JavaScript {} from cache.", fileName);
         compiledScriptMap.remove(fileName);
     }
+
+    /**
+     * Get the cached scripts with their invocation statistics
+     */
+    public Collection<CompiledScriptPool> getScripts() {
+        return Collections.unmodifiableCollection(compiledScriptMap.values());
+    }
 }
@@ -12,6 +12,8 @@
  */
 package org.openhab.transform.javascript.internal;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.script.Bindings;
 import javax.script.CompiledScript;
 import javax.script.ScriptException;
@@ -65,22 +67,26 @@ public class JavaScriptTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        final long startTime = System.currentTimeMillis();
+        final long startTime = System.nanoTime();
         logger.debug("about to transform '{}' by the JavaScript '{}'", source, filename);
 
         String result = "";
 
+        final CompiledScriptPool pool = manager.getScript(filename);
+        final CompiledScript cScript = pool.borrow();
+        boolean failed = true;
         try {
-            final CompiledScript cScript = manager.getScript(filename);
             final Bindings bindings = cScript.getEngine().createBindings();
             bindings.put("input", source);
             result = String.valueOf(cScript.eval(bindings));
+            failed = false;
             return result;
         } catch (ScriptException e) {
             throw new TransformationException("An error occurred while executing script. " + e.getMessage(), e);
         } finally {
-            logger.trace("JavaScript execution elapsed {} ms. Result: {}", System.currentTimeMillis() - startTime,
-                    result);
+            pool.release(cScript, System.nanoTime() - startTime, failed);
+            logger.trace("JavaScript execution elapsed {} ms. Result: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), result);
         }
     }
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.jsonpath;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.transform.TransformationException;
+
+/**
+ * Transforms JSON by several JSonPath expressions at once. Bindings extracting several values from one payload can
+ * reference this service, so that the payload is parsed only once.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface JSonPathMultiTransformationService {
+
+    /**
+     * Transforms the input <code>source</code> by several JSonPath expressions, parsing it only once.
+     *
+     * @param jsonPathExpressions JsonPath expressions
+     * @param source String which contains JSON
+     * @return the results, in the order of the expressions
+     * @throws TransformationException If the source is no valid JSON, or an expression is invalid or does not match
+     */
+    List<@Nullable String> transform(List<String> jsonPathExpressions, String source) throws TransformationException;
+}
@@ -12,7 +12,11 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -20,10 +24,12 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
 import org.eclipse.smarthome.core.types.UnDefType;
+import org.openhab.transform.jsonpath.JSonPathMultiTransformationService;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -32,17 +38,55 @@ import com.jayway.jsonpath.PathNotFoundException;
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by JSonPath Expressions.
+ * As {@link JSonPathMultiTransformationService} it also evaluates several expressions on one input for bindings.
+ *
+ * <p>
+ * Compiled expressions and the most recently parsed documents are kept in bounded LRU caches. Payloads feeding several
+ * channels are therefore parsed only once, as long as they are transformed shortly after each other. Parsed documents
+ * are only read, so they can be shared between threads.
  *
  * @author Gaël L'hopital
  * @author Sebastian Janzen
  *
  */
 @NonNullByDefault
-@Component(immediate = true, property = { "smarthome.transform=JSONPATH" })
-public class JSonPathTransformationService implements TransformationService {
+@Component(immediate = true, service = { TransformationService.class,
+        JSonPathMultiTransformationService.class }, property = { "smarthome.transform=JSONPATH" })
+public class JSonPathTransformationService implements TransformationService, JSonPathMultiTransformationService {
+
+    /**
+     * Maximum number of compiled expressions kept in the cache
+     */
+    static final int PATH_CACHE_SIZE = 256;
+
+    /**
+     * Maximum number of parsed documents kept in the cache
+     */
+    static final int DOCUMENT_CACHE_SIZE = 8;
 
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    private final Configuration configuration = Configuration.defaultConfiguration();
+    private final Map<String, JsonPath> pathCache = new LruCache<>(PATH_CACHE_SIZE);
+    private final Map<String, Object> documentCache = new LruCache<>(DOCUMENT_CACHE_SIZE);
+    private final AtomicLong documentCacheHits = new AtomicLong();
+    private final AtomicLong documentCacheMisses = new AtomicLong();
+
+    private static class LruCache<V> extends LinkedHashMap<String, V> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        private LruCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -59,8 +103,75 @@ public class JSonPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
+        return read(parse(source), jsonPathExpression, source);
+    }
+
+    /**
+     * Transforms the input <code>source</code> by several JSonPath expressions, parsing it only once.
+     *
+     * @param jsonPathExpressions JsonPath expressions
+     * @param source String which contains JSON
+     * @return the results, in the order of the expressions
+     * @throws TransformationException If the source is no valid JSON, or an expression is invalid or does not match
+     */
+    @Override
+    public List<@Nullable String> transform(List<String> jsonPathExpressions, String source)
+            throws TransformationException {
+        logger.debug("about to transform '{}' by the functions '{}'", source, jsonPathExpressions);
+
+        Object document = parse(source);
+        List<@Nullable String> results = new ArrayList<>(jsonPathExpressions.size());
+        for (String jsonPathExpression : jsonPathExpressions) {
+            results.add(read(document, jsonPathExpression, source));
+        }
+        return results;
+    }
+
+    private @Nullable Object parse(String source) throws TransformationException {
+        synchronized (documentCache) {
+            Object document = documentCache.get(source);
+            if (document != null) {
+                documentCacheHits.incrementAndGet();
+                return document;
+            }
+        }
+        documentCacheMisses.incrementAndGet();
+        try {
+            Object document = configuration.jsonProvider().parse(source);
+            if (document != null) {
+                synchronized (documentCache) {
+                    documentCache.put(source, document);
+                }
+            }
+            return document;
+        } catch (InvalidJsonException e) {
+            throw new TransformationException("An error occurred while transforming JSON expression.", e);
+        }
+    }
+
+    private JsonPath compile(String jsonPathExpression) throws TransformationException {
+        synchronized (pathCache) {
+            JsonPath path = pathCache.get(jsonPathExpression);
+            if (path != null) {
+                return path;
+            }
+        }
+        try {
+            JsonPath path = JsonPath.compile(jsonPathExpression);
+            synchronized (pathCache) {
+                pathCache.put(jsonPathExpression, path);
+            }
+            return path;
+        } catch (InvalidPathException e) {
+            throw new TransformationException("An error occurred while transforming JSON expression.", e);
+        }
+    }
+
+    private @Nullable String read(@Nullable Object document, String jsonPathExpression, String source)
+            throws TransformationException {
+        JsonPath path = compile(jsonPathExpression);
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = path.read(document, configuration);
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -76,6 +187,20 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    /**
+     * Get number of transformations that used a cached parsed document
+     */
+    public long getDocumentCacheHits() {
+        return documentCacheHits.get();
+    }
+
+    /**
+     * Get number of transformations that had to parse the source
+     */
+    public long getDocumentCacheMisses() {
+        return documentCacheMisses.get();
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.jsonpath.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.transform.TransformationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * JMH benchmark of one JSON payload feeding many channels, with a Tasmota SENSOR message and a Shelly status
+ * response.
+ *
+ * <ul>
+ * <li><code>readPerChannel</code> parses the payload and compiles the path for every channel, as the service did
+ * before caching.</li>
+ * <li><code>transformPerChannel</code> transforms the payload for every channel like the profiles do, with a new
+ * string instance per channel, using the cached document.</li>
+ * <li><code>transformAllPaths</code> evaluates all paths against a single parse of the payload.</li>
+ * </ul>
+ *
+ * Every invocation uses a new payload, so that the first transformation always parses it.
+ *
+ * Not run by the build, start it with the {@link #main(String[])} method from the IDE.
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSonPathTransformationBenchmark {
+
+    private static final String TASMOTA = "{\"Time\":\"2020-01-12T18:32:%02d\",\"ENERGY\":{\"TotalStartTime\":"
+            + "\"2019-11-09T14:03:11\",\"Total\":52.411,\"Yesterday\":1.204,\"Today\":0.673,\"Period\":2,"
+            + "\"Power\":%d,\"ApparentPower\":152,\"ReactivePower\":37,\"Factor\":0.97,\"Voltage\":231,"
+            + "\"Current\":0.659},\"AM2301\":{\"Temperature\":21.4,\"Humidity\":48.2},\"DS18B20\":{\"Id\":"
+            + "\"0316A2791FFF\",\"Temperature\":19.8},\"TempUnit\":\"C\"}";
+
+    private static final List<String> TASMOTA_PATHS = Arrays.asList("$.Time", "$.ENERGY.Total", "$.ENERGY.Yesterday",
+            "$.ENERGY.Today", "$.ENERGY.Period", "$.ENERGY.Power", "$.ENERGY.ApparentPower", "$.ENERGY.ReactivePower",
+            "$.ENERGY.Factor", "$.ENERGY.Voltage", "$.ENERGY.Current", "$.AM2301.Temperature", "$.AM2301.Humidity",
+            "$.DS18B20.Id", "$.DS18B20.Temperature", "$.TempUnit", "$.ENERGY.TotalStartTime", "$.ENERGY.Power",
+            "$.AM2301.Temperature", "$.ENERGY.Total");
+
+    private static final String SHELLY = "{\"wifi_sta\":{\"connected\":true,\"ssid\":\"home\",\"ip\":"
+            + "\"192.168.1.42\",\"rssi\":-61},\"cloud\":{\"enabled\":false,\"connected\":false},\"mqtt\":"
+            + "{\"connected\":true},\"time\":\"18:32\",\"unixtime\":1578850320,\"serial\":%d,\"has_update\":false,"
+            + "\"mac\":\"A4CF12F39A11\",\"cfg_changed_cnt\":3,\"actions_stats\":{\"skipped\":0},\"relays\":["
+            + "{\"ison\":true,\"has_timer\":false,\"timer_started\":0,\"timer_duration\":0,\"timer_remaining\":0,"
+            + "\"overpower\":false,\"source\":\"http\"},{\"ison\":false,\"has_timer\":false,\"timer_started\":0,"
+            + "\"timer_duration\":0,\"timer_remaining\":0,\"overpower\":false,\"source\":\"input\"}],\"meters\":["
+            + "{\"power\":%d.35,\"overpower\":0.00,\"is_valid\":true,\"timestamp\":1578850320,\"counters\":"
+            + "[52.104, 51.877, 53.012],\"total\":1834511},{\"power\":0.00,\"overpower\":0.00,\"is_valid\":true,"
+            + "\"timestamp\":1578850320,\"counters\":[0.000, 0.000, 0.000],\"total\":4411}],\"inputs\":["
+            + "{\"input\":0,\"event\":\"\",\"event_cnt\":0},{\"input\":1,\"event\":\"\",\"event_cnt\":0}],"
+            + "\"temperature\":48.21,\"overtemperature\":false,\"tmp\":{\"tC\":48.21,\"tF\":118.78,\"is_valid\":true},"
+            + "\"update\":{\"status\":\"idle\",\"has_update\":false,\"new_version\":"
+            + "\"20191216-090511/v1.5.7@c30657ba\","
+            + "\"old_version\":\"20191216-090511/v1.5.7@c30657ba\"},\"ram_total\":50928,\"ram_free\":38800,"
+            + "\"fs_size\":233681,\"fs_free\":165660,\"voltage\":230.34,\"uptime\":%d}";
+
+    private static final List<String> SHELLY_PATHS = Arrays.asList("$.wifi_sta.rssi", "$.wifi_sta.ip",
+            "$.cloud.connected", "$.mqtt.connected", "$.unixtime", "$.relays[0].ison", "$.relays[1].ison",
+            "$.relays[0].source", "$.meters[0].power", "$.meters[1].power", "$.meters[0].total", "$.meters[1].total",
+            "$.inputs[0].event_cnt", "$.inputs[1].event_cnt", "$.temperature", "$.overtemperature", "$.tmp.tF",
+            "$.update.has_update", "$.voltage", "$.uptime");
+
+    @Param({ "tasmota", "shelly" })
+    public String device = "";
+
+    private final JSonPathTransformationService service = new JSonPathTransformationService();
+    private List<String> paths = TASMOTA_PATHS;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        paths = "tasmota".equals(device) ? TASMOTA_PATHS : SHELLY_PATHS;
+    }
+
+    private String nextPayload() {
+        counter++;
+        return "tasmota".equals(device) ? String.format(TASMOTA, counter % 60, counter % 3000)
+                : String.format(SHELLY, counter, counter % 3000, counter);
+    }
+
+    @Benchmark
+    public void readPerChannel(Blackhole blackhole) {
+        String payload = nextPayload();
+        for (String path : paths) {
+            blackhole.consume(JsonPath.read(payload, path));
+        }
+    }
+
+    @Benchmark
+    public void transformPerChannel(Blackhole blackhole) throws TransformationException {
+        String payload = nextPayload();
+        for (String path : paths) {
+            blackhole.consume(service.transform(path, String.format("%s", payload)));
+        }
+    }
+
+    @Benchmark
+    public void transformAllPaths(Blackhole blackhole) throws TransformationException {
+        blackhole.consume(service.transform(paths, nextPayload()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JSonPathTransformationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
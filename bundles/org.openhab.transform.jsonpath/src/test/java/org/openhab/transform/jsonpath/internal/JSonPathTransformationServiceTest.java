@@ -14,6 +14,8 @@ package org.openhab.transform.jsonpath.internal;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Assert;
 import org.junit.Before;
@@ -129,4 +131,20 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testSeveralPathsParseOnce() throws TransformationException {
+        assertEquals(Arrays.asList("bob", "2", null),
+                processor.transform(Arrays.asList("$[0].name", "$[1].id", "$[0].empty"), jsonArray));
+        assertEquals("alice", processor.transform("$[1].name", jsonArray));
+        assertEquals(1, processor.getDocumentCacheMisses());
+        assertEquals(1, processor.getDocumentCacheHits());
+    }
+
+    @Test
+    public void testChangedPayloadIsParsedAgain() throws TransformationException {
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+        assertEquals("carol", processor.transform("$[0].name", jsonArray.replace("bob", "carol")));
+        assertEquals(2, processor.getDocumentCacheMisses());
+    }
 }
@@ -12,6 +12,9 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,6 +33,10 @@ import org.slf4j.LoggerFactory;
  * <p>
  * <b>Note:</b> the given Regular Expression must contain exactly one group!
  *
+ * <p>
+ * Compiled expressions are kept in a bounded LRU cache, as the same expressions are typically applied to every state
+ * update of a channel.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
@@ -40,6 +47,39 @@ public class RegExTransformationService implements TransformationService {
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    /**
+     * Maximum number of compiled expressions kept in the cache
+     */
+    static final int CACHE_SIZE = 256;
+
+    /**
+     * Regular expression compiled either to the substitution or the matching form
+     */
+    private static class CompiledRegEx {
+        private final Pattern pattern;
+        private final boolean substitution;
+        private final String replacement;
+        private final boolean global;
+
+        private CompiledRegEx(Pattern pattern, boolean substitution, String replacement, boolean global) {
+            this.pattern = pattern;
+            this.substitution = substitution;
+            this.replacement = replacement;
+            this.global = global;
+        }
+    }
+
+    private final Map<String, CompiledRegEx> cache = new LinkedHashMap<String, CompiledRegEx>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, CompiledRegEx> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -50,23 +90,18 @@ public class RegExTransformationService implements TransformationService {
 
         String result = "";
 
-        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
-        if (substMatcher.matches()) {
+        CompiledRegEx compiled = compile(regExpression);
+        if (compiled.substitution) {
             logger.debug("Using substitution form of regex transformation");
-            String regex = substMatcher.group(1);
-            String substitution = substMatcher.group(2);
-            String options = substMatcher.group(3);
-            if (options.equals("g")) {
-                result = source.trim().replaceAll(regex, substitution);
+            Matcher substMatcher = compiled.pattern.matcher(source.trim());
+            if (compiled.global) {
+                return substMatcher.replaceAll(compiled.replacement);
             } else {
-                result = source.trim().replaceFirst(regex, substitution);
-            }
-            if (result != null) {
-                return result;
+                return substMatcher.replaceFirst(compiled.replacement);
             }
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        Matcher matcher = compiled.pattern.matcher(source.trim());
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
@@ -95,4 +130,50 @@ public class RegExTransformationService implements TransformationService {
         return result;
     }
 
+    private CompiledRegEx compile(String regExpression) {
+        synchronized (cache) {
+            CompiledRegEx compiled = cache.get(regExpression);
+            if (compiled != null) {
+                cacheHits.incrementAndGet();
+                return compiled;
+            }
+        }
+        cacheMisses.incrementAndGet();
+        CompiledRegEx compiled;
+        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+        if (substMatcher.matches()) {
+            compiled = new CompiledRegEx(Pattern.compile(substMatcher.group(1)), true, substMatcher.group(2),
+                    substMatcher.group(3).equals("g"));
+        } else {
+            compiled = new CompiledRegEx(Pattern.compile("^" + regExpression + "$", Pattern.DOTALL), false, "", false);
+        }
+        synchronized (cache) {
+            cache.put(regExpression, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Get number of transformations that used a cached compiled expression
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Get number of transformations that had to compile the expression
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * Get number of compiled expressions in the cache
+     */
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
 }
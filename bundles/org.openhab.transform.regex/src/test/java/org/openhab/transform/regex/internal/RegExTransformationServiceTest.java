@@ -79,4 +79,31 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testCompiledExpressionsAreCached() throws TransformationException {
+        processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "X12,Y54");
+        processor.transform(".*?<temp_c data=\"(.*?)\".*", source);
+        assertEquals(0, processor.getCacheHits());
+        assertEquals(2, processor.getCacheMisses());
+
+        assertEquals("varA=1 ", processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "A1"));
+        assertEquals("8", processor.transform(".*?<temp_c data=\"(.*?)\".*", source));
+        assertEquals(2, processor.getCacheHits());
+        assertEquals(2, processor.getCacheSize());
+    }
+
+    @Test
+    public void testCacheIsBounded() throws TransformationException {
+        for (int i = 0; i <= RegExTransformationService.CACHE_SIZE; i++) {
+            processor.transform("(" + i + ")", String.valueOf(i));
+        }
+        assertEquals(RegExTransformationService.CACHE_SIZE, processor.getCacheSize());
+
+        // least recently used expression was evicted
+        processor.transform("(0)", "0");
+        assertEquals(0, processor.getCacheHits());
+        processor.transform("(" + RegExTransformationService.CACHE_SIZE + ")", "0");
+        assertEquals(1, processor.getCacheHits());
+    }
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.regex.internal.profiles;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.thing.profiles.ProfileCallback;
+import org.eclipse.smarthome.core.thing.profiles.ProfileContext;
+import org.eclipse.smarthome.core.transform.TransformationService;
+import org.eclipse.smarthome.core.types.Command;
+import org.openhab.transform.regex.internal.RegExTransformationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of state updates passing through {@link RegexTransformationProfile}, with the matching and the
+ * substitution form of the expression.
+ *
+ * <code>cachedProfile</code> uses the compiled-pattern cache of {@link RegExTransformationService}, while
+ * <code>uncachedProfile</code> uses a service compiling the expression on every update, as the service did before the
+ * cache.
+ *
+ * Not run by the build, start it with the {@link #main(String[])} method from the IDE.
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexTransformationProfileBenchmark {
+
+    private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
+
+    @Param({ "temperature=(.*?);.*", "s/([A-Z]+)([0-9]+),*/var$1=$2 /g" })
+    public String function = "";
+
+    private final StringType update = new StringType("temperature=21.5;humidity=45;pressure=1013");
+    private RegexTransformationProfile cachedProfile;
+    private RegexTransformationProfile uncachedProfile;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("function", function);
+        ProfileContext context = new ProfileContext() {
+            @Override
+            public Configuration getConfiguration() {
+                return new Configuration(configuration);
+            }
+
+            @Override
+            public ScheduledExecutorService getExecutorService() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        ProfileCallback callback = new ProfileCallback() {
+            @Override
+            public void handleCommand(Command command) {
+            }
+
+            @Override
+            public void handleUpdate(org.eclipse.smarthome.core.types.State state) {
+            }
+
+            @Override
+            public void sendCommand(Command command) {
+            }
+
+            @Override
+            public void sendUpdate(org.eclipse.smarthome.core.types.State state) {
+                RegexTransformationProfileBenchmark.this.blackhole.consume(state);
+            }
+        };
+        cachedProfile = new RegexTransformationProfile(callback, context, new RegExTransformationService());
+        uncachedProfile = new RegexTransformationProfile(callback, context, uncachedService);
+    }
+
+    private final TransformationService uncachedService = (function, value) -> {
+        String source = value.trim();
+        Matcher substMatcher = SUBSTR_PATTERN.matcher(function);
+        if (substMatcher.matches()) {
+            return source.replaceAll(substMatcher.group(1), substMatcher.group(2));
+        }
+        Matcher matcher = Pattern.compile("^" + function + "$", Pattern.DOTALL).matcher(source);
+        return matcher.matches() ? matcher.group(1) : null;
+    };
+
+    @Benchmark
+    public void cachedProfile() {
+        cachedProfile.onStateUpdateFromHandler(update);
+    }
+
+    @Benchmark
+    public void uncachedProfile() {
+        uncachedProfile.onStateUpdateFromHandler(update);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RegexTransformationProfileBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.scale.internal;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Interval index of the ranges of a scale file, answering lookups with a binary search.
+ *
+ * The limits of all ranges split the number line into elementary intervals: the open intervals between two
+ * neighbouring limits, and the limits themselves. Every range covers a contiguous sequence of elementary intervals, so
+ * the label of each elementary interval is determined once when the file is loaded. Ranges are applied in the order of
+ * the file, and an elementary interval keeps the label of the first range covering it. Lookups therefore return the
+ * same label as testing the ranges one after the other, also when ranges overlap.
+ *
+ * Values given as plain decimal strings are looked up with <code>double</code> comparisons when the limits are
+ * distinct as doubles. Only values equal as double to a limit are compared exactly as {@link BigDecimal}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ScaleIndex {
+
+    private final BigDecimal[] limits;
+    private final double[] doubleLimits;
+    private final String[] labels;
+    private final String format;
+    private final String nonNumeric;
+
+    /**
+     * Builds the index
+     *
+     * @param ranges ranges with their labels, in the order of the scale file
+     * @param format format of the result, containing <code>%label%</code> and <code>%value%</code>
+     * @param nonNumeric label of non numeric values, or null if they are not supported
+     */
+    public ScaleIndex(Map<Range, String> ranges, String format, String nonNumeric) {
+        this.format = format;
+        this.nonNumeric = nonNumeric;
+
+        TreeSet<BigDecimal> sortedLimits = new TreeSet<>();
+        for (Range range : ranges.keySet()) {
+            if (range.min != null) {
+                sortedLimits.add(range.min);
+            }
+            if (range.max != null) {
+                sortedLimits.add(range.max);
+            }
+        }
+        limits = sortedLimits.toArray(new BigDecimal[sortedLimits.size()]);
+
+        // elementary interval 2 * i + 1 is limit i, even intervals are the open intervals around the limits
+        labels = new String[2 * limits.length + 1];
+        for (Map.Entry<Range, String> entry : ranges.entrySet()) {
+            Range range = entry.getKey();
+            int first = range.min == null ? 0 : limitInterval(range.min) + (range.minInclusive ? 0 : 1);
+            int last = range.max == null ? labels.length - 1 : limitInterval(range.max) - (range.maxInclusive ? 0 : 1);
+            for (int interval = first; interval <= last; interval++) {
+                if (labels[interval] == null) {
+                    labels[interval] = entry.getValue();
+                }
+            }
+        }
+
+        double[] doubles = new double[limits.length];
+        boolean distinct = true;
+        for (int i = 0; i < limits.length; i++) {
+            doubles[i] = limits[i].doubleValue();
+            if (Double.isInfinite(doubles[i]) || (i > 0 && doubles[i] <= doubles[i - 1])) {
+                distinct = false;
+            }
+        }
+        doubleLimits = distinct ? doubles : null;
+    }
+
+    private int limitInterval(BigDecimal limit) {
+        return 2 * Arrays.binarySearch(limits, limit) + 1;
+    }
+
+    /**
+     * Get the label of the range containing a value
+     *
+     * @param value the value
+     * @return the label, or null if no range contains the value
+     */
+    public String getLabel(BigDecimal value) {
+        int index = Arrays.binarySearch(limits, value);
+        return labels[index >= 0 ? 2 * index + 1 : 2 * (-index - 1)];
+    }
+
+    /**
+     * Get the label of the range containing a value given as string
+     *
+     * @param value the value
+     * @return the label, or null if no range contains the value
+     * @throws NumberFormatException if the value is not a valid {@link BigDecimal}
+     */
+    public String getLabel(String value) {
+        if (doubleLimits == null || !isPlainNumber(value)) {
+            return getLabel(new BigDecimal(value));
+        }
+        // adding 0.0 turns -0.0 into 0.0, which binarySearch would order before 0.0
+        double doubleValue = Double.parseDouble(value) + 0.0;
+        int index = Arrays.binarySearch(doubleLimits, doubleValue);
+        if (index < 0) {
+            return labels[2 * (-index - 1)];
+        }
+        // equal as double, the exact value might still be a little smaller or larger than the limit
+        int cmp = new BigDecimal(value).compareTo(limits[index]);
+        return labels[2 * index + 1 + Integer.signum(cmp)];
+    }
+
+    /**
+     * Get the format of the result
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Get the label of non numeric values
+     *
+     * @return the label, or null if non numeric values are not supported
+     */
+    public String getNonNumeric() {
+        return nonNumeric;
+    }
+
+    /**
+     * Check whether a string consists of an optional sign, decimal digits with an optional decimal point and an
+     * optional exponent, which both {@link BigDecimal} and {@link Double#parseDouble(String)} parse to the same value
+     */
+    static boolean isPlainNumber(String value) {
+        int length = value.length();
+        int i = 0;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        boolean digits = false;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == exponentStart) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+}
@@ -38,11 +38,14 @@ import org.slf4j.LoggerFactory;
  * The implementation of {@link TransformationService} which transforms the
  * input by matching it between limits of ranges in a scale file
  *
+ * The ranges are indexed by {@link ScaleIndex} when the file is loaded, so the cost of a transformation hardly depends
+ * on the number of ranges.
+ *
  * @author Gaël L'hopital
  * @author Markus Rathgeb - drop usage of Guava
  */
 @Component(immediate = true, service = TransformationService.class, property = { "smarthome.transform=SCALE" })
-public class ScaleTransformationService extends AbstractFileTransformationService<Map<Range, String>> {
+public class ScaleTransformationService extends AbstractFileTransformationService<ScaleIndex> {
 
     private final Logger logger = LoggerFactory.getLogger(ScaleTransformationService.class);
 
@@ -54,9 +57,6 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
     private static final String FORMAT_VALUE = "%value%";
     private static final String FORMAT_LABEL = "%label%";
 
-    /** Inaccessible range used to store presentation format ]0..0[ */
-    private static final Range FORMAT_RANGE = Range.range(BigDecimal.ZERO, false, BigDecimal.ZERO, false);
-
     /**
      * The implementation of {@link OrderedProperties} that let access
      * properties in the same order than presented in the source file
@@ -98,18 +98,16 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
      *
      */
     @Override
-    protected String internalTransform(Map<Range, String> data, String source) throws TransformationException {
+    protected String internalTransform(ScaleIndex data, String source) throws TransformationException {
         try {
-            final BigDecimal value = new BigDecimal(source);
-
-            return formatResult(data, source, value);
+            return formatResult(data, source, data.getLabel(source));
         } catch (NumberFormatException e) {
             // Scale can only be used with numeric inputs, so lets try to see if ever its a valid quantity type
             try {
                 final QuantityType<?> quantity = new QuantityType<>(source);
-                return formatResult(data, source, quantity.toBigDecimal());
+                return formatResult(data, source, data.getLabel(quantity.toBigDecimal()));
             } catch (NumberFormatException e2) {
-                String nonNumeric = data.get(null);
+                String nonNumeric = data.getNonNumeric();
                 if (nonNumeric != null) {
                     return nonNumeric;
                 } else {
@@ -120,25 +118,23 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
         }
     }
 
-    private String formatResult(Map<Range, String> data, String source, final BigDecimal value)
-            throws TransformationException {
-        String format = data.get(FORMAT_RANGE);
-        String result = getScaleResult(data, source, value);
+    private String formatResult(ScaleIndex data, String source, String result) throws TransformationException {
+        if (result == null) {
+            throw new TransformationException("No matching range for '" + source + "'");
+        }
+        String format = data.getFormat();
+        if (FORMAT_LABEL.equals(format)) {
+            return result;
+        }
         return format.replaceAll(FORMAT_VALUE, source).replaceAll(FORMAT_LABEL, result);
     }
 
-    private String getScaleResult(Map<Range, String> data, String source, final BigDecimal value)
-            throws TransformationException {
-        return data.entrySet().stream().filter(entry -> entry.getKey().contains(value)).findFirst()
-                .map(Map.Entry::getValue)
-                .orElseThrow(() -> new TransformationException("No matching range for '" + source + "'"));
-    }
-
     @Override
-    protected Map<Range, String> internalLoadTransform(String filename) throws TransformationException {
+    protected ScaleIndex internalLoadTransform(String filename) throws TransformationException {
         try (FileReader reader = new FileReader(filename)) {
             final Map<Range, String> data = new LinkedHashMap<>();
-            data.put(FORMAT_RANGE, FORMAT_LABEL);
+            String format = FORMAT_LABEL;
+            String nonNumeric = null;
             final OrderedProperties properties = new OrderedProperties();
             properties.load(reader);
 
@@ -164,9 +160,9 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                     }
                 } else {
                     if (NON_NUMBER.equals(entry)) {
-                        data.put(null, value);
+                        nonNumeric = value;
                     } else if (FORMAT.equals(entry)) {
-                        data.put(FORMAT_RANGE, value);
+                        format = value;
                     } else {
                         logger.warn("Scale transform file '{}' does not comply with syntax for entry : '{}', '{}'",
                                 filename, entry, value);
@@ -174,7 +170,7 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                 }
             }
 
-            return data;
+            return new ScaleIndex(data, format, nonNumeric);
         } catch (final IOException ex) {
             throw new TransformationException("An error occurred while opening file.", ex);
         }
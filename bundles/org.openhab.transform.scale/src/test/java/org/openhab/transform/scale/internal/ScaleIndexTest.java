@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.scale.internal;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ScaleIndexTest {
+
+    private static BigDecimal bd(String value) {
+        return new BigDecimal(value);
+    }
+
+    private static String linearLookup(Map<Range, String> ranges, BigDecimal value) {
+        return ranges.entrySet().stream().filter(entry -> entry.getKey().contains(value)).findFirst()
+                .map(Map.Entry::getValue).orElse(null);
+    }
+
+    @Test
+    public void testOverlappingRangesKeepFileOrder() {
+        Map<Range, String> ranges = new LinkedHashMap<>();
+        ranges.put(Range.lessThan(bd("15")), "first");
+        ranges.put(Range.closedOpen(bd("10"), bd("17")), "second");
+        ranges.put(Range.atLeast(bd("15")), "last");
+        ScaleIndex index = new ScaleIndex(ranges, "%label%", null);
+
+        assertEquals("first", index.getLabel("12"));
+        assertEquals("first", index.getLabel("14.999"));
+        assertEquals("second", index.getLabel("15"));
+        assertEquals("second", index.getLabel("16.5"));
+        assertEquals("last", index.getLabel("17"));
+    }
+
+    @Test
+    public void testLimits() {
+        Map<Range, String> ranges = new LinkedHashMap<>();
+        ranges.put(Range.closed(bd("-40"), bd("20")), "low");
+        ranges.put(Range.openClosed(bd("20"), bd("29")), "middle");
+        ranges.put(Range.open(bd("29"), bd("38")), "high");
+        ScaleIndex index = new ScaleIndex(ranges, "%label%", null);
+
+        assertNull(index.getLabel("-40.0001"));
+        assertEquals("low", index.getLabel("-40"));
+        assertEquals("low", index.getLabel("20.00"));
+        assertEquals("middle", index.getLabel("2.0000000000000001E1"));
+        assertEquals("middle", index.getLabel("29"));
+        assertEquals("high", index.getLabel("29.000000000000000000001"));
+        assertNull(index.getLabel("38"));
+        assertEquals("low", index.getLabel("-0"));
+        assertEquals("low", index.getLabel(bd("0")));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testNonNumericValue() {
+        Map<Range, String> ranges = new LinkedHashMap<>();
+        ranges.put(Range.all(), "all");
+        new ScaleIndex(ranges, "%label%", null).getLabel("10d");
+    }
+
+    @Test
+    public void testPlainNumbers() {
+        assertTrue(ScaleIndex.isPlainNumber("10"));
+        assertTrue(ScaleIndex.isPlainNumber("-1.5E-3"));
+        assertTrue(ScaleIndex.isPlainNumber(".5"));
+        assertFalse(ScaleIndex.isPlainNumber("NaN"));
+        assertFalse(ScaleIndex.isPlainNumber("Infinity"));
+        assertFalse(ScaleIndex.isPlainNumber("10d"));
+        assertFalse(ScaleIndex.isPlainNumber("0x10"));
+        assertFalse(ScaleIndex.isPlainNumber("1e"));
+        assertFalse(ScaleIndex.isPlainNumber(" 10"));
+        assertFalse(ScaleIndex.isPlainNumber("-"));
+    }
+
+    @Test
+    public void testSameResultAsLinearLookup() {
+        Random random = new Random(42);
+        Map<Range, String> ranges = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            BigDecimal lower = BigDecimal.valueOf(random.nextInt(500) - 250, 1);
+            BigDecimal upper = lower.add(BigDecimal.valueOf(random.nextInt(100), 1));
+            ranges.put(Range.range(random.nextInt(10) == 0 ? null : lower, random.nextBoolean(),
+                    random.nextInt(10) == 0 ? null : upper, random.nextBoolean()), "label" + i);
+        }
+        ScaleIndex index = new ScaleIndex(ranges, "%label%", null);
+
+        for (int i = 0; i < 10000; i++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextInt(6000) - 3000, 2);
+            assertEquals(value.toString(), linearLookup(ranges, value), index.getLabel(value.toString()));
+            assertEquals(value.toString(), linearLookup(ranges, value), index.getLabel(value));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.xpath;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.transform.TransformationException;
+
+/**
+ * Transforms XML by several XPath expressions at once. Bindings extracting several values from one payload can
+ * reference this service, so that the payload is parsed only once.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface XPathMultiTransformationService {
+
+    /**
+     * Transforms the input <code>source</code> by several XPath expressions, parsing it only once.
+     *
+     * @param xpathExpressions the expressions to evaluate
+     * @param source the input to transform
+     * @return the results, in the order of the expressions
+     * @throws TransformationException if the input cannot be parsed or an expression is invalid
+     */
+    List<String> transform(List<String> xpathExpressions, String source) throws TransformationException;
+}
@@ -13,19 +13,29 @@
 package org.openhab.transform.xpath.internal;
 
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
+import org.openhab.transform.xpath.XPathMultiTransformationService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -34,15 +44,64 @@ import org.xml.sax.InputSource;
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XPath Expressions.
+ * As {@link XPathMultiTransformationService} it also evaluates several expressions on one input for bindings.
+ *
+ * <p>
+ * Neither {@link DocumentBuilder} nor {@link XPathExpression} are thread-safe, so every transformation borrows a
+ * context with its own builder and its own cache of compiled expressions from a small pool. The document parsed last is
+ * kept per context as well, so that several expressions applied one after the other to the same input, e.g. by the
+ * profiles of the channels fed by one polled payload, parse it only once. The most recently returned context is
+ * borrowed first, which makes such subsequent transformations use the same context.
  *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
-@Component(immediate = true, property = { "smarthome.transform=XPATH" })
-public class XPathTransformationService implements TransformationService {
+@Component(immediate = true, service = { TransformationService.class,
+        XPathMultiTransformationService.class }, property = { "smarthome.transform=XPATH" })
+public class XPathTransformationService implements TransformationService, XPathMultiTransformationService {
+
+    /**
+     * Maximum number of compiled expressions kept per context
+     */
+    static final int EXPRESSION_CACHE_SIZE = 64;
+
+    /**
+     * Maximum number of idle contexts kept for reuse
+     */
+    static final int MAX_IDLE_CONTEXTS = 4;
 
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    /**
+     * Parser, compiled expressions and last parsed document, used by one thread at a time
+     */
+    private static class ParserContext {
+        private final DocumentBuilder builder;
+        private final XPath xpath = XPathFactory.newInstance().newXPath();
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16,
+                0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, XPathExpression> eldest) {
+                return size() > EXPRESSION_CACHE_SIZE;
+            }
+        };
+        private @Nullable String lastSource;
+        private @Nullable Document lastDocument;
+
+        private ParserContext(DocumentBuilder builder) {
+            this.builder = builder;
+        }
+    }
+
+    private final BlockingDeque<ParserContext> idleContexts = new LinkedBlockingDeque<>(MAX_IDLE_CONTEXTS);
+
+    @Deactivate
+    protected void deactivate() {
+        idleContexts.clear();
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -51,35 +110,100 @@ public class XPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
-        StringReader stringReader = null;
-
+        ParserContext context = borrowContext();
         try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setNamespaceAware(true);
-            domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
+            String transformationResult = evaluate(context, xpathExpression, parse(context, source));
 
-            stringReader = new StringReader(source);
-            InputSource inputSource = new InputSource(stringReader);
-            inputSource.setEncoding("UTF-8");
+            logger.debug("transformation resulted in '{}'", transformationResult);
 
-            Document doc = builder.parse(inputSource);
+            return transformationResult;
+        } catch (Exception e) {
+            throw new TransformationException("transformation throws exceptions", e);
+        } finally {
+            idleContexts.offerFirst(context);
+        }
+    }
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+    /**
+     * Transforms the input <code>source</code> by several XPath expressions, parsing it only once.
+     *
+     * @param xpathExpressions the expressions to evaluate
+     * @param source the input to transform
+     * @return the results, in the order of the expressions
+     * @throws TransformationException if the input cannot be parsed or an expression is invalid
+     */
+    @Override
+    public List<String> transform(List<String> xpathExpressions, String source) throws TransformationException {
+        logger.debug("about to transform '{}' by the functions '{}'", source, xpathExpressions);
 
-            String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+        ParserContext context = borrowContext();
+        try {
+            Document doc = parse(context, source);
+            List<String> results = new ArrayList<>(xpathExpressions.size());
+            for (String xpathExpression : xpathExpressions) {
+                results.add(evaluate(context, xpathExpression, doc));
+            }
 
-            logger.debug("transformation resulted in '{}'", transformationResult);
+            logger.debug("transformation resulted in '{}'", results);
 
-            return transformationResult;
+            return results;
         } catch (Exception e) {
             throw new TransformationException("transformation throws exceptions", e);
         } finally {
-            if (stringReader != null) {
-                stringReader.close();
+            idleContexts.offerFirst(context);
+        }
+    }
+
+    /**
+     * Takes an idle context or creates a new one. The context must be given back with
+     * {@link BlockingDeque#offerFirst(Object)}, which drops it if enough contexts are idle.
+     */
+    private ParserContext borrowContext() throws TransformationException {
+        ParserContext context = idleContexts.pollFirst();
+        if (context == null) {
+            try {
+                DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+                domFactory.setNamespaceAware(true);
+                domFactory.setValidating(false);
+                context = new ParserContext(domFactory.newDocumentBuilder());
+            } catch (ParserConfigurationException e) {
+                throw new TransformationException("transformation throws exceptions", e);
             }
         }
+        return context;
+    }
+
+    private Document parse(ParserContext context, String source) throws Exception {
+        Document doc = context.lastDocument;
+        if (doc != null && source.equals(context.lastSource)) {
+            logger.trace("reusing parsed document");
+            return doc;
+        }
+        // forget the previous document first, in case parsing fails
+        context.lastSource = null;
+        context.lastDocument = null;
+
+        try (StringReader stringReader = new StringReader(source)) {
+            InputSource inputSource = new InputSource(stringReader);
+            inputSource.setEncoding("UTF-8");
+
+            doc = context.builder.parse(inputSource);
+        } finally {
+            context.builder.reset();
+        }
+        context.lastSource = source;
+        context.lastDocument = doc;
+        return doc;
+    }
+
+    private String evaluate(ParserContext context, String xpathExpression, Document doc)
+            throws XPathExpressionException {
+        XPathExpression expr = context.expressions.get(xpathExpression);
+        if (expr == null) {
+            expr = context.xpath.compile(xpathExpression);
+            context.expressions.put(xpathExpression, expr);
+        }
+        return (String) expr.evaluate(doc, XPathConstants.STRING);
     }
 
 }
@@ -14,6 +14,8 @@ package org.openhab.transform.xpath.internal;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,4 +43,24 @@ public class XPathTransformationServiceTest extends AbstractTransformationServic
         assertEquals("8", transformedResponse);
     }
 
+    @Test
+    public void testTransformSeveralExpressions() throws TransformationException {
+        assertEquals(Arrays.asList("8", "46", "Klar"), processor.transform(Arrays.asList(
+                "//current_conditions/temp_c/@data", "//current_conditions/temp_f/@data",
+                "//forecast_conditions[1]/condition/@data"), source));
+    }
+
+    @Test
+    public void testTransformChangedDocument() throws TransformationException {
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+        assertEquals("9", processor.transform("//current_conditions/temp_c/@data",
+                source.replace("<temp_c data=\"8\"/>", "<temp_c data=\"9\"/>")));
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void testInvalidDocument() throws TransformationException {
+        processor.transform("//current_conditions/temp_c/@data", "<xml_api_reply>");
+    }
+
 }
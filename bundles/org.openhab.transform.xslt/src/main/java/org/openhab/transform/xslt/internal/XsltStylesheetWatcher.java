@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.xslt.internal;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchEvent.Kind;
+
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.core.service.AbstractWatchService;
+import org.eclipse.smarthome.core.transform.TransformationService;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * The {@link XsltStylesheetWatcher} watches the transformation directory for files. If a deleted/modified file is
+ * detected, the compiled stylesheet is removed from the cache of the {@link XsltTransformationService}.
+ *
+ * @author agent - Initial contribution
+ */
+@Component()
+public class XsltStylesheetWatcher extends AbstractWatchService {
+
+    public static final String TRANSFORM_FOLDER = ConfigConstants.getConfigFolder() + File.separator
+            + TransformationService.TRANSFORM_FOLDER_NAME;
+
+    private XsltTransformationService service;
+
+    public XsltStylesheetWatcher() {
+        super(TRANSFORM_FOLDER);
+    }
+
+    @Reference
+    public void setXsltTransformationService(XsltTransformationService service) {
+        this.service = service;
+    }
+
+    public void unsetXsltTransformationService(XsltTransformationService service) {
+        this.service = null;
+    }
+
+    @Override
+    public void activate() {
+        super.activate();
+    }
+
+    @Override
+    protected boolean watchSubDirectories() {
+        return true;
+    }
+
+    @Override
+    protected Kind<?>[] getWatchEventKinds(Path directory) {
+        return new Kind<?>[] { ENTRY_DELETE, ENTRY_MODIFY };
+    }
+
+    @Override
+    protected void processWatchEvent(WatchEvent<?> event, Kind<?> kind, Path path) {
+        logger.debug("New watch event {} for path {}.", kind, path);
+
+        if (kind == OVERFLOW) {
+            return;
+        }
+
+        // stylesheets are cached by their name relative to the transformation folder
+        Path relativePath = Paths.get(TRANSFORM_FOLDER).toAbsolutePath().relativize(path.toAbsolutePath());
+        service.removeFromCache(relativePath.toString());
+    }
+}
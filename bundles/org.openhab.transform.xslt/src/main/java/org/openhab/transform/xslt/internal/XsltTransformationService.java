@@ -13,18 +13,24 @@
 package org.openhab.transform.xslt.internal;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
@@ -35,14 +41,22 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XSLT.
  *
+ * <p>
+ * Stylesheets are compiled once to {@link Templates} and cached until the {@link XsltStylesheetWatcher} reports a
+ * change of the file.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
-@Component(immediate = true, property = { "smarthome.transform=XSLT" })
+@Component(immediate = true, service = { TransformationService.class,
+        XsltTransformationService.class }, property = { "smarthome.transform=XSLT" })
 public class XsltTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private final Map<String, Templates> templatesCache = new ConcurrentHashMap<>();
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
@@ -60,37 +74,103 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        Source xsl = null;
+        logger.debug("about to transform '{}' by the function '{}'", source, filename);
 
-        try {
-            String path = ConfigConstants.getConfigFolder() + File.separator
-                    + TransformationService.TRANSFORM_FOLDER_NAME + File.separator + filename;
-            xsl = new StreamSource(new File(path));
-        } catch (Exception e) {
-            String message = "opening file '" + filename + "' throws exception";
-
-            logger.error("{}", message, e);
-            throw new TransformationException(message, e);
-        }
+        StringWriter out = new StringWriter();
+        transform(filename, new StreamSource(new StringReader(source)), new StreamResult(out));
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+        logger.debug("transformation resulted in '{}'", out.toString());
 
-        StringReader xml = new StringReader(source);
-        StringWriter out = new StringWriter();
+        return out.toString();
+    }
 
-        Transformer transformer;
+    /**
+     * Transforms the XML document read from <code>in</code> by XSLT and writes the result to <code>out</code>, without
+     * holding the documents in memory as strings. The streams are not closed.
+     *
+     * @param filename the name of the file which contains the XSLT transformation rule.
+     *            The name may contain subfoldernames as well
+     * @param in the input to transform
+     * @param out the stream receiving the transformation result
+     */
+    public void transform(String filename, InputStream in, OutputStream out) throws TransformationException {
+        transform(filename, new StreamSource(in), new StreamResult(out));
+    }
 
+    /**
+     * Transforms the <code>source</code> by XSLT into the <code>result</code>.
+     *
+     * @param filename the name of the file which contains the XSLT transformation rule.
+     *            The name may contain subfoldernames as well
+     * @param source the input to transform
+     * @param result the holder of the transformation result
+     */
+    public void transform(String filename, Source source, Result result) throws TransformationException {
+        Templates templates = getTemplates(filename);
         try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
+            templates.newTransformer().transform(source, result);
         } catch (Exception e) {
             logger.error("transformation throws exception", e);
             throw new TransformationException("transformation throws exception", e);
         }
+    }
 
-        logger.debug("transformation resulted in '{}'", out.toString());
+    /**
+     * Get the compiled stylesheet from the cache, or compile it from the file when it is not cached yet
+     *
+     * @param filename the name of the file which contains the XSLT transformation rule
+     * @return the compiled stylesheet
+     * @throws TransformationException if the stylesheet cannot be read or compiled
+     */
+    protected Templates getTemplates(String filename) throws TransformationException {
+        String key = toCacheKey(filename);
+        Templates templates = templatesCache.get(key);
+        if (templates != null) {
+            return templates;
+        }
+        String path = XsltStylesheetWatcher.TRANSFORM_FOLDER + File.separator + filename;
+        logger.debug("Compiling stylesheet {}", path);
+        try {
+            // TransformerFactory is not thread-safe
+            synchronized (transformerFactory) {
+                templates = transformerFactory.newTemplates(new StreamSource(new File(path)));
+            }
+        } catch (TransformerConfigurationException e) {
+            String message = "compiling file '" + filename + "' throws exception";
 
-        return out.toString();
+            logger.error("{}", message, e);
+            throw new TransformationException(message, e);
+        }
+        templatesCache.put(key, templates);
+        return templates;
+    }
+
+    /**
+     * Remove a compiled stylesheet from the cache, so that it is compiled again on the next transformation
+     *
+     * @param filename the name of the stylesheet file, relative to the transformation folder
+     */
+    protected void removeFromCache(String filename) {
+        if (templatesCache.remove(toCacheKey(filename)) != null) {
+            logger.debug("Removed stylesheet {} from cache.", filename);
+        }
+    }
+
+    /**
+     * Normalize the name of a stylesheet file, so that different spellings of the same file share a cache entry
+     *
+     * @param filename the name of the stylesheet file, relative to the transformation folder
+     * @return the normalized name with '/' as separator
+     */
+    static String toCacheKey(String filename) {
+        return Paths.get(filename).normalize().toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Get the number of compiled stylesheets in the cache
+     */
+    public int getCacheSize() {
+        return templatesCache.size();
     }
 
 }
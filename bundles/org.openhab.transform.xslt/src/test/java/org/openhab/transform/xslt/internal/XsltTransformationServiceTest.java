@@ -12,7 +12,13 @@
  */
 package org.openhab.transform.xslt.internal;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.transform.Templates;
 
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Before;
@@ -41,4 +47,41 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         assertEquals("8", transformedResponse);
     }
 
+    @Test
+    public void testStylesheetIsCompiledOnce() throws TransformationException {
+        Templates templates = processor.getTemplates("http/google_weather.xsl");
+        assertSame(templates, processor.getTemplates("http/google_weather.xsl"));
+        assertEquals(1, processor.getCacheSize());
+
+        processor.removeFromCache("http/google_weather.xsl");
+        assertEquals(0, processor.getCacheSize());
+        assertEquals("8", processor.transform("http/google_weather.xsl", source));
+    }
+
+    @Test
+    public void testStylesheetNamesAreNormalized() throws TransformationException {
+        Templates templates = processor.getTemplates("http/google_weather.xsl");
+        assertSame(templates, processor.getTemplates("./http//google_weather.xsl"));
+        assertEquals(1, processor.getCacheSize());
+
+        // the watcher evicts by the path relative to the transformation folder
+        processor.removeFromCache("http/./google_weather.xsl");
+        assertEquals(0, processor.getCacheSize());
+    }
+
+    @Test
+    public void testStreamingTransformation() throws TransformationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        processor.transform("http/google_weather.xsl",
+                new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), out);
+
+        assertEquals("8", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void testMissingStylesheet() throws TransformationException {
+        processor.transform("http/missing.xsl", source);
+    }
+
 }
@@ -106,4 +106,27 @@ public class DiscoverComponentsTest extends JavaOSGiTest {
         discover.startDiscovery(connection, 50, discoveryIds, discovered).get(100, TimeUnit.MILLISECONDS);
 
     }
+
+    @Test
+    public void configurationIsParsedInBackground() throws InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1);
+
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ChannelConfigurationTypeAdapterFactory()).create();
+
+        DiscoverComponents discover = spy(new DiscoverComponents(ThingChannelConstants.testHomeAssistantThing,
+                scheduler, mock(ChannelStateUpdateListener.class), gson, transformationServiceProvider));
+
+        HandlerConfiguration config = new HandlerConfiguration("homeassistant",
+                Collections.singletonList("switch/object"));
+        Set<HaID> discoveryIds = new HashSet<>(HaID.fromConfig(config));
+        discover.startDiscovery(connection, 0, discoveryIds, discovered).get(100, TimeUnit.MILLISECONDS);
+
+        String topic = "homeassistant/switch/object/config";
+        discover.processMessage(topic,
+                "{'name':'testname','state_topic':'switch/state','command_topic':'switch/set'}".getBytes());
+
+        // The configuration is parsed on the scheduler, wait for the result
+        verify(discovered, timeout(1000)).componentDiscovered(eq(new HaID(topic)), any());
+        discover.stopDiscovery();
+    }
 }
@@ -163,7 +163,8 @@ public class HomeAssistantMQTTImplementationTest extends JavaOSGiTest {
                 new DiscoverComponents(ThingChannelConstants.testHomeAssistantThing, scheduler,
                         channelStateUpdateListener, gson, transformationServiceProvider));
 
-        // The DiscoverComponents object calls ComponentDiscovered callbacks.
+        // The DiscoverComponents object calls ComponentDiscovered callbacks, after parsing the configuration on the
+        // scheduler. The latch below waits for that.
         // In the following implementation we add the found component to the `haComponents` map
         // and add the types to the channelTypeProvider, like in the real Thing handler.
         final CountDownLatch latch = new CountDownLatch(1);